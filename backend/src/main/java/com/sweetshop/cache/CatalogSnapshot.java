@@ -0,0 +1,284 @@
+package com.sweetshop.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.dto.SweetResponse;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.inventory.LiveStock;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pre-serialized JSON of the full catalog listing, plus a gzip-compressed copy.
+ *
+ * <p>A snapshot is built from one catalog list of {@link SweetCatalogCache} and is current
+ * while the cache still hands out that list and no purchase outside the sweets table has
+ * landed. Local writes replace the list at once and schedule an off-thread rebuild; writes
+ * from other instances replace it when the cache's refresh-ahead reloads the catalog.
+ * Readers get the current bytes without any mapping or Jackson work. A reader that finds
+ * the snapshot behind, for instance after ledger or shard sales, which publish no event,
+ * queues the same single rebuild and is served the last snapshot meanwhile; only the
+ * very first snapshot is built on a request thread.</p>
+ *
+ * <p>The snapshot carries its own validators. Its ETag is a digest of the bytes, so it
+ * changes exactly when the body does; the gzip body, a different representation, gets
+ * its own ETag.</p>
+ */
+@Slf4j
+@Component
+public class CatalogSnapshot implements MeterBinder {
+
+    private final SweetCatalogCache sweetCatalogCache;
+    private final ObjectMapper objectMapper;
+    private final LiveStock liveStock;
+    private final Executor rebuildExecutor;
+
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final Object buildLock = new Object();
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public CatalogSnapshot(SweetCatalogCache sweetCatalogCache, ObjectMapper objectMapper, LiveStock liveStock) {
+        this(sweetCatalogCache, objectMapper, liveStock, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    CatalogSnapshot(SweetCatalogCache sweetCatalogCache, ObjectMapper objectMapper, LiveStock liveStock,
+                    Executor rebuildExecutor) {
+        this.sweetCatalogCache = sweetCatalogCache;
+        this.objectMapper = objectMapper;
+        this.liveStock = liveStock;
+        this.rebuildExecutor = rebuildExecutor;
+    }
+
+    /**
+     * Get the serialized catalog. If it is behind the cache or live stock, a rebuild is
+     * queued and the last snapshot is returned until that rebuild lands.
+     *
+     * @return the snapshot
+     */
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (buildLock) {
+                current = snapshot;
+                if (current == null) {
+                    return rebuild();
+                }
+            }
+        }
+        if (!isCurrent(current)) {
+            scheduleRebuild();
+        }
+        return current;
+    }
+
+    /**
+     * Check whether the last snapshot still matches the cache and live stock.
+     *
+     * @return true if {@link #current()} returns up-to-date bytes
+     */
+    public boolean isUpToDate() {
+        return isCurrent(snapshot);
+    }
+
+    /**
+     * Rebuild the snapshot in the background after a committed change.
+     * Ordered after the catalog cache so the rebuild reads the updated entries.
+     *
+     * @param event the change event
+     */
+    @Order(10)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSweetChanged(SweetChangedEvent event) {
+        scheduleRebuild();
+    }
+
+    public long getRebuildCount() {
+        return rebuilds.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("catalog.snapshot.rebuilds", rebuilds, AtomicLong::get)
+                .description("Full catalog snapshot serializations")
+                .register(registry);
+        Gauge.builder("catalog.snapshot.bytes", this, s -> {
+                    Snapshot current = s.snapshot;
+                    return current == null ? 0 : current.json.length;
+                })
+                .description("Size of the uncompressed catalog snapshot")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (rebuildExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Queue a rebuild unless one is already queued, so bursts of writes and stale reads
+     * collapse into one serialization.
+     */
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            try {
+                rebuildExecutor.execute(() -> {
+                    rebuildScheduled.set(false);
+                    try {
+                        synchronized (buildLock) {
+                            if (!isCurrent(snapshot)) {
+                                rebuild();
+                            }
+                        }
+                    } catch (RuntimeException ex) {
+                        log.warn("Catalog snapshot rebuild failed", ex);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                // Shutting down: readers keep the last snapshot.
+                rebuildScheduled.set(false);
+            }
+        }
+    }
+
+    private boolean isCurrent(Snapshot current) {
+        // The cache hands out the same list until a write or a reload replaces it.
+        return current != null && current.source == sweetCatalogCache.getAll()
+                && current.sales == liveStock.getSaleCount();
+    }
+
+    private Snapshot rebuild() {
+        // Read the sale count before the stock so a concurrent purchase always triggers another rebuild.
+        long sales = liveStock.getSaleCount();
+        long lastModified = liveStock.lastSaleAt();
+        List<Sweet> source = sweetCatalogCache.getAll();
+        List<SweetResponse> responses = new ArrayList<>(source.size());
+        for (Sweet sweet : liveStock.apply(source)) {
+            responses.add(SweetResponse.from(sweet));
+            if (sweet.getUpdatedAt() != null) {
+                lastModified = Math.max(lastModified, sweet.getUpdatedAt());
+            }
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(responses);
+            String digest = digest(json);
+            Snapshot built = new Snapshot(source, sales, json, gzip(json), "\"c" + digest + "\"",
+                    "\"c" + digest + "-gzip\"", lastModified == 0 ? -1 : lastModified);
+            snapshot = built;
+            rebuilds.incrementAndGet();
+            log.debug("Rebuilt catalog snapshot {} ({} sweets, {} bytes)", digest, responses.size(), json.length);
+            return built;
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize catalog snapshot", ex);
+        }
+    }
+
+    private static String digest(byte[] json) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(json);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Immutable serialized catalog with its validators. The byte arrays must not be modified.
+     */
+    public static final class Snapshot {
+        private final List<Sweet> source;
+        private final long sales;
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String etag;
+        private final String gzipEtag;
+        private final long lastModified;
+
+        private Snapshot(List<Sweet> source, long sales, byte[] json, byte[] gzip, String etag, String gzipEtag,
+                         long lastModified) {
+            this.source = source;
+            this.sales = sales;
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+            this.gzipEtag = gzipEtag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Get the strong entity tag of the uncompressed body.
+         *
+         * @return the quoted ETag
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * Get the strong entity tag of the gzip body.
+         *
+         * @return the quoted ETag
+         */
+        public String getGzipEtag() {
+            return gzipEtag;
+        }
+
+        /**
+         * Get the latest update or purchase among the sweets listed.
+         *
+         * @return epoch millis, or -1 for an empty catalog
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzip() {
+            return gzip;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.sweetshop.cache;
+
+import com.sweetshop.entity.Sweet;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Normalized search criteria, used as a result cache key.
+ *
+ * <p>Name and text terms are matched case-insensitively, so they are trimmed and
+ * lower-cased; blank terms count as absent. Prices are compared numerically, so
+ * trailing zeros are stripped and {@code 5} and {@code 5.00} share a key.</p>
+ */
+@Getter
+@EqualsAndHashCode
+public final class SearchKey {
+
+    private final String name;
+    private final String text;
+    private final String category;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+
+    private SearchKey(String name, String text, String category, BigDecimal minPrice, BigDecimal maxPrice) {
+        this.name = name;
+        this.text = text;
+        this.category = category;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    /**
+     * Build the key for a search.
+     *
+     * @param name the substring the name must contain (optional)
+     * @param text the substring the name or description must contain (optional)
+     * @param category the category (optional)
+     * @param minPrice the minimum price (optional)
+     * @param maxPrice the maximum price (optional)
+     * @return the normalized key
+     */
+    public static SearchKey of(String name, String text, String category,
+                               BigDecimal minPrice, BigDecimal maxPrice) {
+        return new SearchKey(term(name), term(text), category, price(minPrice), price(maxPrice));
+    }
+
+    /**
+     * Check whether a sweet satisfies these criteria.
+     *
+     * @param sweet the sweet
+     * @return true if the search would return it
+     */
+    public boolean matches(Sweet sweet) {
+        String sweetName = lower(sweet.getName());
+        if (name != null && !sweetName.contains(name)) {
+            return false;
+        }
+        if (text != null && !sweetName.contains(text) && !lower(sweet.getDescription()).contains(text)) {
+            return false;
+        }
+        if (category != null && !category.equals(sweet.getCategory())) {
+            return false;
+        }
+        BigDecimal price = sweet.getPrice();
+        if (price == null) {
+            return minPrice == null && maxPrice == null;
+        }
+        return (minPrice == null || price.compareTo(minPrice) >= 0)
+                && (maxPrice == null || price.compareTo(maxPrice) <= 0);
+    }
+
+    private static String term(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static BigDecimal price(BigDecimal value) {
+        return value == null ? null : value.stripTrailingZeros();
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
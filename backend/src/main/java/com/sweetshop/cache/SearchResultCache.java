@@ -0,0 +1,243 @@
+package com.sweetshop.cache;
+
+import com.sweetshop.concurrent.SingleFlight;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.CatalogIndexRebuiltEvent;
+import com.sweetshop.event.SweetChangedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of search results, keyed by normalized {@link SearchKey}.
+ *
+ * <p>Entries hold only the matching sweet IDs; hits are resolved against the
+ * catalog cache, so cached results never carry stale stock or prices. A sweet
+ * change invalidates just the entries it can affect: those whose result contains
+ * the sweet (it may no longer match) and those whose criteria match its new state
+ * (it may now appear). Results larger than the configured ID limit are not cached.</p>
+ *
+ * <p>Writes made by other instances raise no local events, so entries also expire after
+ * the catalog cache's expiry interval, and every entry is dropped when a search index is
+ * rebuilt from the catalog.</p>
+ *
+ * <p>Concurrent misses for the same key and row shape share one search.</p>
+ */
+@Component
+public class SearchResultCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "sweet-search";
+
+    private final SweetCatalogCache sweetCatalogCache;
+    private final int maximumSize;
+    private final int maximumIds;
+    private final long expireAfterMillis;
+    private final LongSupplier clock;
+    private final SingleFlight<List<Object>, List<Sweet>> searches;
+
+    private final Object lock = new Object();
+    private final Map<SearchKey, Entry> entries;
+
+    /** Bumped on every applied write; results computed across a write are not stored. */
+    private long writeVersion;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public SearchResultCache(SweetCatalogCache sweetCatalogCache,
+                             @Value("${sweetshop.search.result-cache.maximum-size:1000}") int maximumSize,
+                             @Value("${sweetshop.search.result-cache.maximum-ids:10000}") int maximumIds,
+                             @Value("${sweetshop.cache.expire-after:5m}") Duration expireAfter,
+                             @Value("${sweetshop.coalescing.timeout:2s}") Duration coalescingTimeout) {
+        this(sweetCatalogCache, maximumSize, maximumIds, expireAfter, coalescingTimeout, System::currentTimeMillis);
+    }
+
+    SearchResultCache(SweetCatalogCache sweetCatalogCache, int maximumSize, int maximumIds, Duration expireAfter,
+                      Duration coalescingTimeout, LongSupplier clock) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Cache maximum size must be at least 1");
+        }
+        this.sweetCatalogCache = sweetCatalogCache;
+        this.maximumSize = maximumSize;
+        this.maximumIds = maximumIds;
+        this.expireAfterMillis = expireAfter.toMillis();
+        this.clock = clock;
+        this.searches = new SingleFlight<>("sweet-search", coalescingTimeout);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SearchKey, Entry> eldest) {
+                if (size() > SearchResultCache.this.maximumSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the result of a search, running it on a miss.
+     *
+     * @param key the normalized search criteria
+     * @param shape distinguishes searches that return differently populated rows for the same key
+     * @param search runs the search; its result order is preserved
+     * @return the matching sweets
+     */
+    public List<Sweet> get(SearchKey key, Object shape, Supplier<List<Sweet>> search) {
+        Entry entry;
+        long version;
+        synchronized (lock) {
+            entry = entries.get(key);
+            if (entry != null && clock.getAsLong() - entry.createdAt >= expireAfterMillis) {
+                entries.remove(key);
+                entry = null;
+            }
+            version = writeVersion;
+        }
+
+        if (entry != null) {
+            hits.incrementAndGet();
+            return sweetCatalogCache.getAllById(entry.ids);
+        }
+
+        misses.incrementAndGet();
+        // The write version keeps readers arriving after a write from joining a search started before it.
+        List<Sweet> result = searches.execute(List.of(key, shape, version), search);
+        if (result.size() <= maximumIds) {
+            Entry computed = new Entry(result, clock.getAsLong());
+            synchronized (lock) {
+                if (writeVersion == version) {
+                    entries.put(key, computed);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drop the cached results a committed sweet change can affect.
+     * Runs after the catalog cache and the search indexes have applied the change.
+     *
+     * @param event the change event
+     */
+    @Order(20)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSweetChanged(SweetChangedEvent event) {
+        long id = event.getSweetId();
+        Sweet sweet = event.getType() == SweetChangedEvent.Type.DELETED ? null : event.getSweet();
+
+        synchronized (lock) {
+            writeVersion++;
+            Iterator<Map.Entry<SearchKey, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<SearchKey, Entry> cached = iterator.next();
+                if (cached.getValue().contains(id) || (sweet != null && cached.getKey().matches(sweet))) {
+                    iterator.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop every cached result once a search index has been rebuilt; results computed from
+     * the old index state, or before writes from other instances, must not outlive it.
+     *
+     * @param event the rebuild event
+     */
+    @EventListener
+    public void onIndexRebuilt(CatalogIndexRebuiltEvent event) {
+        invalidateAll();
+    }
+
+    /**
+     * Drop every cached result.
+     */
+    public void invalidateAll() {
+        synchronized (lock) {
+            writeVersion++;
+            entries.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, AtomicLong::get)
+                .tag("cache", CACHE_NAME).tag("result", "hit")
+                .description("Searches answered from cached results")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, AtomicLong::get)
+                .tag("cache", CACHE_NAME).tag("result", "miss")
+                .description("Searches that had to run")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, AtomicLong::get)
+                .tag("cache", CACHE_NAME)
+                .description("Entries evicted because the cache was full")
+                .register(registry);
+        FunctionCounter.builder("cache.invalidations", invalidations, AtomicLong::get)
+                .tag("cache", CACHE_NAME)
+                .description("Entries dropped because a sweet change could affect them")
+                .register(registry);
+        Gauge.builder("cache.size", this, SearchResultCache::size)
+                .tag("cache", CACHE_NAME)
+                .register(registry);
+        searches.bindTo(registry);
+    }
+
+    /**
+     * A cached result: IDs in result order plus a sorted copy for membership checks.
+     */
+    private static final class Entry {
+        private final List<Long> ids;
+        private final long[] sortedIds;
+        private final long createdAt;
+
+        private Entry(List<Sweet> result, long createdAt) {
+            this.ids = result.stream().map(Sweet::getId).toList();
+            this.sortedIds = ids.stream().mapToLong(Long::longValue).sorted().toArray();
+            this.createdAt = createdAt;
+        }
+
+        private boolean contains(long id) {
+            return Arrays.binarySearch(sortedIds, id) >= 0;
+        }
+    }
+}
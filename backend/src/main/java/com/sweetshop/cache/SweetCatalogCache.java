@@ -0,0 +1,551 @@
+package com.sweetshop.cache;
+
+import com.sweetshop.concurrent.SingleFlight;
+import com.sweetshop.dto.CatalogVersion;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.repository.SweetRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Read-through, in-process cache for the sweet catalog.
+ *
+ * <p>Holds individual sweets in a size-bounded LRU map and the full catalog listing
+ * in an id-ordered map. Entries older than the refresh interval are reloaded in the
+ * background while the current value keeps being served; entries older than the
+ * expiry interval are reloaded synchronously. Local writes are applied from
+ * {@link SweetChangedEvent}s after commit, so reads never see stale stock after a
+ * write made by this instance. Concurrent misses for the same sweet, or for the
+ * catalog, share a single database load; a reader arriving after a write starts a new one.</p>
+ *
+ * <p>The cache also keeps the catalog version behind the catalog-wide HTTP validators.
+ * It is bumped by every change applied here and by every catalog reload. A reload is
+ * how writes from other instances arrive, so their changes reach the validators within
+ * the refresh interval, as they reach the cached data.</p>
+ *
+ * <p>Returned sweets are shared cache copies and must be treated as read-only.</p>
+ */
+@Slf4j
+@Component
+public class SweetCatalogCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "sweet-catalog";
+    private final SweetRepository sweetRepository;
+    private final int maximumSize;
+    private final long refreshAfterMillis;
+    private final long expireAfterMillis;
+    private final Executor refreshExecutor;
+    private final LongSupplier clock;
+    /** Keyed by ID and write version, so a reader arriving after a write never joins an older load. */
+    private final SingleFlight<List<Long>, Optional<Sweet>> sweetLoads;
+    /** Keyed by write version, for the same reason. */
+    private final SingleFlight<Long, List<Sweet>> catalogLoads;
+
+    private final Object lock = new Object();
+    private final Map<Long, Entry> entries;
+    private ConcurrentSkipListMap<Long, Sweet> catalog;
+    private long catalogLoadedAt;
+    private boolean catalogRefreshing;
+    private volatile List<Sweet> catalogView;
+
+    /** Bumped on every applied write; loads started before a write are discarded. */
+    private long writeVersion;
+    /** Bumped on every applied write and every catalog reload; never goes back. */
+    private long catalogVersion;
+    /** Latest update seen in a loaded catalog, or the time a later write was applied. */
+    private long catalogModifiedAt;
+    /** Tells this process's catalog versions apart from those of other instances and earlier runs. */
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 1);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    @Autowired
+    public SweetCatalogCache(SweetRepository sweetRepository,
+                             @Value("${sweetshop.cache.maximum-size:10000}") int maximumSize,
+                             @Value("${sweetshop.cache.refresh-after:30s}") Duration refreshAfter,
+                             @Value("${sweetshop.cache.expire-after:5m}") Duration expireAfter,
+                             @Value("${sweetshop.coalescing.timeout:2s}") Duration coalescingTimeout) {
+        this(sweetRepository, maximumSize, refreshAfter, expireAfter, coalescingTimeout,
+                newRefreshExecutor(), System::currentTimeMillis);
+    }
+
+    SweetCatalogCache(SweetRepository sweetRepository, int maximumSize, Duration refreshAfter,
+                      Duration expireAfter, Duration coalescingTimeout,
+                      Executor refreshExecutor, LongSupplier clock) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Cache maximum size must be at least 1");
+        }
+        if (refreshAfter.compareTo(expireAfter) > 0) {
+            throw new IllegalArgumentException("Cache refresh interval must not exceed expiry interval");
+        }
+        this.sweetRepository = sweetRepository;
+        this.maximumSize = maximumSize;
+        this.refreshAfterMillis = refreshAfter.toMillis();
+        this.expireAfterMillis = expireAfter.toMillis();
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+        this.sweetLoads = new SingleFlight<>("sweet-by-id", coalescingTimeout);
+        this.catalogLoads = new SingleFlight<>("sweet-catalog", coalescingTimeout);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > SweetCatalogCache.this.maximumSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get a sweet by ID, loading it from the repository on a miss.
+     *
+     * @param id the sweet ID
+     * @return Optional containing the sweet if it exists
+     */
+    public Optional<Sweet> get(Long id) {
+        long now = clock.getAsLong();
+        boolean refresh = false;
+        Sweet cached = null;
+        long version;
+
+        synchronized (lock) {
+            version = writeVersion;
+            Entry entry = entries.get(id);
+            if (entry != null && now - entry.loadedAt < expireAfterMillis) {
+                cached = entry.sweet;
+                if (now - entry.loadedAt >= refreshAfterMillis && !entry.refreshing) {
+                    entry.refreshing = true;
+                    refresh = true;
+                }
+            } else if (catalog != null && now - catalogLoadedAt < expireAfterMillis) {
+                cached = catalog.get(id);
+                if (cached == null) {
+                    // A fresh full catalog is authoritative for local writes.
+                    hits.incrementAndGet();
+                    return Optional.empty();
+                }
+            }
+        }
+
+        if (cached != null) {
+            hits.incrementAndGet();
+            if (refresh) {
+                scheduleRefresh(id);
+            }
+            return Optional.of(cached);
+        }
+
+        misses.incrementAndGet();
+        return sweetLoads.execute(List.of(id, version), () -> load(id, version));
+    }
+
+    /**
+     * Get the full catalog ordered by ID, loading it from the repository on a miss.
+     *
+     * @return unmodifiable list of all sweets
+     */
+    public List<Sweet> getAll() {
+        long now = clock.getAsLong();
+        boolean refresh = false;
+        List<Sweet> view;
+        long version;
+
+        synchronized (lock) {
+            version = writeVersion;
+            if (catalog == null || now - catalogLoadedAt >= expireAfterMillis) {
+                view = null;
+            } else {
+                view = catalogView;
+                if (view == null) {
+                    view = List.copyOf(catalog.values());
+                    catalogView = view;
+                }
+                if (now - catalogLoadedAt >= refreshAfterMillis && !catalogRefreshing) {
+                    catalogRefreshing = true;
+                    refresh = true;
+                }
+            }
+        }
+
+        if (view != null) {
+            hits.incrementAndGet();
+            if (refresh) {
+                scheduleCatalogRefresh();
+            }
+            return view;
+        }
+
+        misses.incrementAndGet();
+        return catalogLoads.execute(version, () -> loadCatalog(version));
+    }
+
+    /**
+     * Get the version of the catalog this cache serves, without querying the database
+     * unless the catalog has to be loaded first.
+     *
+     * @return the catalog version
+     */
+    public CatalogVersion getVersion() {
+        // Keeps the catalog loaded and refreshing, so other instances' writes bump the version.
+        getAll();
+        synchronized (lock) {
+            return new CatalogVersion(epoch, catalogVersion, catalogModifiedAt == 0 ? null : catalogModifiedAt);
+        }
+    }
+
+    /**
+     * Apply a committed sweet change to the cached entries.
+     * Runs before any listener that rebuilds derived views from this cache.
+     *
+     * @param event the change event
+     */
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSweetChanged(SweetChangedEvent event) {
+        Long id = event.getSweetId();
+        long now = clock.getAsLong();
+
+        synchronized (lock) {
+            writeVersion++;
+            catalogVersion++;
+            catalogModifiedAt = Math.max(catalogModifiedAt, now);
+            if (event.getType() == SweetChangedEvent.Type.DELETED) {
+                entries.remove(id);
+                if (catalog != null) {
+                    catalog.remove(id);
+                }
+            } else {
+                Sweet sweet = event.getSweet();
+                if (event.getType() == SweetChangedEvent.Type.UPDATED || entries.containsKey(id)) {
+                    entries.put(id, new Entry(sweet, now));
+                }
+                if (catalog != null) {
+                    catalog.put(id, sweet);
+                }
+            }
+            catalogView = null;
+        }
+    }
+
+    /**
+     * Drop every cached entry.
+     */
+    public void invalidateAll() {
+        synchronized (lock) {
+            writeVersion++;
+            catalogVersion++;
+            entries.clear();
+            catalog = null;
+            catalogView = null;
+        }
+    }
+
+    /**
+     * Get the sweets with the given IDs from the full catalog, in the order the IDs are given.
+     * IDs with no sweet are skipped.
+     *
+     * @param ids the sweet IDs
+     * @return the sweets that exist
+     */
+    public List<Sweet> getAllById(Collection<Long> ids) {
+        List<Sweet> all = getAll();
+        List<Sweet> found = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            int index = indexOf(all, id);
+            if (index >= 0) {
+                found.add(all.get(index));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Get several sweets by ID, loading every miss with a single repository query.
+     *
+     * @param ids the sweet IDs
+     * @return the sweets that exist, keyed by ID
+     */
+    public Map<Long, Sweet> getMany(Collection<Long> ids) {
+        long now = clock.getAsLong();
+        Map<Long, Sweet> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        List<Long> stale = new ArrayList<>();
+
+        synchronized (lock) {
+            boolean catalogFresh = catalog != null && now - catalogLoadedAt < expireAfterMillis;
+            for (Long id : ids) {
+                Entry entry = entries.get(id);
+                if (entry != null && now - entry.loadedAt < expireAfterMillis) {
+                    found.put(id, entry.sweet);
+                    if (now - entry.loadedAt >= refreshAfterMillis && !entry.refreshing) {
+                        entry.refreshing = true;
+                        stale.add(id);
+                    }
+                } else if (catalogFresh) {
+                    // A fresh full catalog is authoritative, including for absent IDs.
+                    Sweet sweet = catalog.get(id);
+                    if (sweet != null) {
+                        found.put(id, sweet);
+                    }
+                } else {
+                    missing.add(id);
+                }
+            }
+        }
+
+        hits.addAndGet(ids.size() - missing.size());
+        stale.forEach(this::scheduleRefresh);
+        if (!missing.isEmpty()) {
+            misses.addAndGet(missing.size());
+            found.putAll(loadAll(missing));
+        }
+        return found;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getRefreshCount() {
+        return refreshes.get();
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, AtomicLong::get)
+                .tag("cache", CACHE_NAME).tag("result", "hit")
+                .description("Catalog cache lookups served from memory")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, AtomicLong::get)
+                .tag("cache", CACHE_NAME).tag("result", "miss")
+                .description("Catalog cache lookups that went to the database")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, AtomicLong::get)
+                .tag("cache", CACHE_NAME)
+                .description("Entries evicted because the cache was full")
+                .register(registry);
+        FunctionCounter.builder("cache.refreshes", refreshes, AtomicLong::get)
+                .tag("cache", CACHE_NAME)
+                .description("Background refresh-ahead reloads")
+                .register(registry);
+        Gauge.builder("cache.size", this, SweetCatalogCache::size)
+                .tag("cache", CACHE_NAME)
+                .register(registry);
+        sweetLoads.bindTo(registry);
+        catalogLoads.bindTo(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private Optional<Sweet> load(Long id, long version) {
+        Optional<Sweet> loaded = sweetRepository.findById(id).map(this::copyOf);
+
+        loaded.ifPresent(sweet -> {
+            synchronized (lock) {
+                if (writeVersion == version) {
+                    entries.put(id, new Entry(sweet, clock.getAsLong()));
+                }
+            }
+        });
+        return loaded;
+    }
+
+    private Map<Long, Sweet> loadAll(List<Long> ids) {
+        long version = currentWriteVersion();
+        Map<Long, Sweet> loaded = new HashMap<>();
+        for (Sweet sweet : sweetRepository.findAllById(ids)) {
+            loaded.put(sweet.getId(), copyOf(sweet));
+        }
+
+        synchronized (lock) {
+            if (writeVersion == version) {
+                long now = clock.getAsLong();
+                loaded.forEach((id, sweet) -> entries.put(id, new Entry(sweet, now)));
+            }
+        }
+        return loaded;
+    }
+
+    private List<Sweet> loadCatalog(long version) {
+        ConcurrentSkipListMap<Long, Sweet> loaded = new ConcurrentSkipListMap<>();
+        long modifiedAt = 0;
+        // Rows are projected rather than managed, so they can be cached without copying.
+        for (Sweet sweet : sweetRepository.findAllRows()) {
+            loaded.put(sweet.getId(), sweet);
+            if (sweet.getUpdatedAt() != null) {
+                modifiedAt = Math.max(modifiedAt, sweet.getUpdatedAt());
+            }
+        }
+        List<Sweet> view = List.copyOf(loaded.values());
+
+        synchronized (lock) {
+            if (writeVersion == version) {
+                catalog = loaded;
+                catalogLoadedAt = clock.getAsLong();
+                catalogView = view;
+                catalogVersion++;
+                catalogModifiedAt = Math.max(catalogModifiedAt, modifiedAt);
+            }
+            catalogRefreshing = false;
+        }
+        return view;
+    }
+
+    private void scheduleRefresh(Long id) {
+        Runnable reset = () -> {
+            synchronized (lock) {
+                Entry entry = entries.get(id);
+                if (entry != null) {
+                    entry.refreshing = false;
+                }
+            }
+        };
+        submit(() -> {
+            refreshes.incrementAndGet();
+            try {
+                if (load(id, currentWriteVersion()).isEmpty()) {
+                    synchronized (lock) {
+                        entries.remove(id);
+                    }
+                }
+            } finally {
+                reset.run();
+            }
+        }, reset);
+    }
+
+    private void scheduleCatalogRefresh() {
+        Runnable reset = () -> {
+            synchronized (lock) {
+                catalogRefreshing = false;
+            }
+        };
+        submit(() -> {
+            refreshes.incrementAndGet();
+            try {
+                loadCatalog(currentWriteVersion());
+            } finally {
+                reset.run();
+            }
+        }, reset);
+    }
+
+    private void submit(Runnable task, Runnable onRejected) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    log.warn("Catalog cache refresh failed", ex);
+                }
+            });
+        } catch (RuntimeException ex) {
+            // Queue full or shutting down: the stale value expires on its own.
+            onRejected.run();
+        }
+    }
+
+    private long currentWriteVersion() {
+        synchronized (lock) {
+            return writeVersion;
+        }
+    }
+
+    /**
+     * Binary search an ID-ordered catalog view.
+     */
+    private static int indexOf(List<Sweet> sweets, long id) {
+        int low = 0;
+        int high = sweets.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = sweets.get(mid).getId();
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private Sweet copyOf(Sweet sweet) {
+        return sweet.toBuilder().build();
+    }
+
+    private static ExecutorService newRefreshExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 2, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(256), runnable -> {
+                    Thread thread = new Thread(runnable, "catalog-cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static final class Entry {
+        private final Sweet sweet;
+        private final long loadedAt;
+        private boolean refreshing;
+
+        private Entry(Sweet sweet, long loadedAt) {
+            this.sweet = sweet;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
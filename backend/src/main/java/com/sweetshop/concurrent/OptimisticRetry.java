@@ -0,0 +1,193 @@
+package com.sweetshop.concurrent;
+
+import com.sweetshop.exception.ConcurrentUpdateException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Retries writes that lost an optimistic-lock race, with capped exponential backoff and full jitter.
+ *
+ * <p>Each attempt must run in its own transaction and reload the row, so callers wrap the whole
+ * read-modify-write rather than just the save. Attempts, conflicts and retries are counted per
+ * sweet; a sweet's meters are registered the first time it conflicts, so only contended sweets
+ * show up in the metrics and their cardinality stays bounded by actual contention.</p>
+ */
+@Slf4j
+@Component
+public class OptimisticRetry implements MeterBinder {
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final LongConsumer sleeper;
+
+    private final ConcurrentHashMap<Long, Contention> contention = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    @Autowired
+    public OptimisticRetry(@Value("${sweetshop.inventory.retry.max-attempts:5}") int maxAttempts,
+                           @Value("${sweetshop.inventory.retry.initial-backoff:10ms}") Duration initialBackoff,
+                           @Value("${sweetshop.inventory.retry.max-backoff:200ms}") Duration maxBackoff) {
+        this(maxAttempts, initialBackoff, maxBackoff, OptimisticRetry::sleep);
+    }
+
+    OptimisticRetry(int maxAttempts, Duration initialBackoff, Duration maxBackoff, LongConsumer sleeper) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Retry max attempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = Math.max(initialBackoffMillis, maxBackoff.toMillis());
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Run a write, retrying it while it fails on an optimistic-lock conflict.
+     *
+     * @param sweetId the sweet being written, used for metrics
+     * @param write the whole read-modify-write, run once per attempt
+     * @return the write result
+     * @throws ConcurrentUpdateException if every attempt conflicted
+     */
+    public <T> T execute(Long sweetId, Supplier<T> write) {
+        Contention counts = contention.computeIfAbsent(sweetId, id -> new Contention());
+        for (int attempt = 1; ; attempt++) {
+            counts.attempts.incrementAndGet();
+            try {
+                return write.get();
+            } catch (OptimisticLockingFailureException ex) {
+                counts.conflicts.incrementAndGet();
+                register(sweetId, counts);
+                if (attempt >= maxAttempts) {
+                    counts.exhausted.incrementAndGet();
+                    throw new ConcurrentUpdateException("Sweet " + sweetId
+                            + " is being modified concurrently, please retry", ex);
+                }
+                counts.retries.incrementAndGet();
+                long backoff = backoffMillis(attempt);
+                log.debug("Write conflict on sweet {} (attempt {}), retrying in {} ms", sweetId, attempt, backoff);
+                sleeper.accept(backoff);
+            }
+        }
+    }
+
+    /**
+     * Get the number of write attempts, first tries included, for a sweet.
+     *
+     * @param sweetId the sweet ID
+     * @return attempts so far
+     */
+    public long getAttemptCount(Long sweetId) {
+        Contention counts = contention.get(sweetId);
+        return counts == null ? 0 : counts.attempts.get();
+    }
+
+    /**
+     * Get the number of optimistic-lock conflicts for a sweet.
+     *
+     * @param sweetId the sweet ID
+     * @return conflicts so far
+     */
+    public long getConflictCount(Long sweetId) {
+        Contention counts = contention.get(sweetId);
+        return counts == null ? 0 : counts.conflicts.get();
+    }
+
+    /**
+     * Get the number of retries for a sweet.
+     *
+     * @param sweetId the sweet ID
+     * @return retries so far
+     */
+    public long getRetryCount(Long sweetId) {
+        Contention counts = contention.get(sweetId);
+        return counts == null ? 0 : counts.retries.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        contention.forEach((sweetId, counts) -> {
+            if (counts.conflicts.get() > 0) {
+                register(sweetId, counts);
+            }
+        });
+    }
+
+    /**
+     * Full jitter: a uniform delay up to the capped exponential backoff, so writers
+     * that collided once do not collide again on the next attempt.
+     */
+    long backoffMillis(int attempt) {
+        long ceiling = initialBackoffMillis << Math.min(attempt - 1, 20);
+        ceiling = Math.min(maxBackoffMillis, ceiling);
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void register(Long sweetId, Contention counts) {
+        MeterRegistry meters = registry;
+        if (meters == null || counts.registered) {
+            return;
+        }
+        synchronized (counts) {
+            if (counts.registered) {
+                return;
+            }
+            String sweet = String.valueOf(sweetId);
+            FunctionCounter.builder("inventory.write.attempts", counts.attempts, AtomicLong::get)
+                    .tag("sweet", sweet)
+                    .description("Write attempts on a contended sweet, retries included")
+                    .register(meters);
+            FunctionCounter.builder("inventory.write.conflicts", counts.conflicts, AtomicLong::get)
+                    .tag("sweet", sweet)
+                    .description("Writes that failed on an optimistic-lock conflict")
+                    .register(meters);
+            FunctionCounter.builder("inventory.write.retries", counts.retries, AtomicLong::get)
+                    .tag("sweet", sweet)
+                    .description("Writes retried after a conflict")
+                    .register(meters);
+            FunctionCounter.builder("inventory.write.exhausted", counts.exhausted, AtomicLong::get)
+                    .tag("sweet", sweet)
+                    .description("Writes that gave up after the last retry")
+                    .register(meters);
+            counts.registered = true;
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentUpdateException("Interrupted while backing off a conflicting write", ex);
+        }
+    }
+
+    /**
+     * Per-sweet counters; the attempt count is kept for every written sweet so a
+     * sweet's conflict rate is correct from the moment its meters appear.
+     */
+    private static final class Contention {
+        private final AtomicLong attempts = new AtomicLong();
+        private final AtomicLong conflicts = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong exhausted = new AtomicLong();
+        private volatile boolean registered;
+    }
+}
@@ -0,0 +1,131 @@
+package com.sweetshop.concurrent;
+
+import com.sweetshop.exception.ReadTimeoutException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical reads into one execution.
+ *
+ * <p>The first caller for a key runs the read on its own thread; callers that arrive
+ * while it is in flight wait for and share its result or exception instead of issuing
+ * their own query. Waiters give up after the timeout with a {@link ReadTimeoutException},
+ * so a slow query holds one connection rather than one per request. Nothing is cached:
+ * once the read completes, the next caller starts a new one.</p>
+ *
+ * <p>Metrics are tagged by flight name rather than by key, to keep their cardinality bounded.</p>
+ *
+ * @param <K> the read key
+ * @param <V> the read result
+ */
+public class SingleFlight<K, V> implements MeterBinder {
+
+    private final String name;
+    private final long timeoutMillis;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong joins = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    public SingleFlight(String name, Duration timeout) {
+        this.name = name;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    /**
+     * Run the read, or join an identical one already in flight.
+     *
+     * @param key identifies identical reads
+     * @param read the read to run if none is in flight
+     * @return the read result
+     * @throws ReadTimeoutException if an in-flight read did not finish within the timeout
+     */
+    public V execute(K key, Supplier<V> read) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            joins.incrementAndGet();
+            return await(leader);
+        }
+
+        executions.incrementAndGet();
+        try {
+            V value = read.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public long getExecutionCount() {
+        return executions.get();
+    }
+
+    public long getJoinCount() {
+        return joins.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("reads.coalescing.executions", executions, AtomicLong::get)
+                .tag("flight", name)
+                .description("Reads that ran against the data source")
+                .register(registry);
+        FunctionCounter.builder("reads.coalescing.joins", joins, AtomicLong::get)
+                .tag("flight", name)
+                .description("Reads that shared the result of an identical in-flight read")
+                .register(registry);
+        FunctionCounter.builder("reads.coalescing.timeouts", timeouts, AtomicLong::get)
+                .tag("flight", name)
+                .description("Reads that gave up waiting for an in-flight read")
+                .register(registry);
+        Gauge.builder("reads.coalescing.in.flight", this, SingleFlight::inFlight)
+                .tag("flight", name)
+                .register(registry);
+    }
+
+    private V await(CompletableFuture<V> leader) {
+        try {
+            return leader.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            timeouts.incrementAndGet();
+            throw new ReadTimeoutException("Timed out waiting for an in-flight " + name + " read");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ReadTimeoutException("Interrupted waiting for an in-flight " + name + " read", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -1,22 +1,50 @@
 package com.sweetshop.controller;
 
+import com.sweetshop.cache.CatalogSnapshot;
+import com.sweetshop.dto.BulkRestockRequest;
+import com.sweetshop.dto.BulkRestockResponse;
+import com.sweetshop.dto.CatalogVersion;
+import com.sweetshop.dto.CheckoutRequest;
+import com.sweetshop.dto.CheckoutResponse;
+import com.sweetshop.dto.FacetsResponse;
+import com.sweetshop.dto.InventoryModeRequest;
 import com.sweetshop.dto.PurchaseRequest;
 import com.sweetshop.dto.RestockRequest;
+import com.sweetshop.dto.SweetBatchResponse;
+import com.sweetshop.dto.SweetPageResponse;
 import com.sweetshop.dto.SweetRequest;
+import com.sweetshop.dto.SuggestionResponse;
 import com.sweetshop.dto.SweetResponse;
 import com.sweetshop.entity.Sweet;
 import com.sweetshop.entity.User;
+import com.sweetshop.importer.ImportFormat;
+import com.sweetshop.pagination.CatalogPage;
+import com.sweetshop.projection.SweetField;
+import com.sweetshop.search.FacetCounts;
+import com.sweetshop.service.CatalogExportService;
+import com.sweetshop.service.CatalogImportService;
+import com.sweetshop.service.CheckoutService;
 import com.sweetshop.service.SweetService;
 import com.sweetshop.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 /**
  * Controller for sweet management endpoints.
@@ -29,6 +57,10 @@ public class SweetController {
 
     private final SweetService sweetService;
     private final UserService userService;
+    private final CatalogExportService catalogExportService;
+    private final CatalogImportService catalogImportService;
+    private final CheckoutService checkoutService;
+    private final CatalogSnapshot catalogSnapshot;
 
     /**
      * Add a new sweet (Admin only).
@@ -53,55 +85,342 @@ public class SweetController {
     /**
      * Get all sweets.
      * GET /api/sweets
+     * Served from the pre-serialized catalog snapshot, gzip-compressed when the client accepts it.
+     * Answers 304 when the client's ETag or Last-Modified still matches the snapshot. The
+     * validators come from the snapshot itself, so they always describe the bytes served;
+     * the gzip body has an ETag of its own.
      *
-     * @return list of all sweets
+     * @param acceptEncoding the Accept-Encoding request header
+     * @param webRequest the current request, for conditional checks
+     * @return JSON array of all sweets
      */
     @GetMapping
-    public ResponseEntity<List<SweetResponse>> getAllSweets() {
-        List<Sweet> sweets = sweetService.getAllSweets();
-        List<SweetResponse> responses = sweets.stream()
-                .map(this::mapToResponse)
+    public ResponseEntity<byte[]> getAllSweets(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest) {
+        CatalogSnapshot.Snapshot snapshot = catalogSnapshot.current();
+        boolean gzip = acceptsGzip(acceptEncoding);
+        if (webRequest.checkNotModified(gzip ? snapshot.getGzipEtag() : snapshot.getEtag(),
+                snapshot.getLastModified())) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzip());
+        }
+        return response.body(snapshot.getJson());
+    }
+
+    /**
+     * Get all sweets with only the selected fields.
+     * GET /api/sweets?fields=name,price,...
+     * Built from the catalog cache instead of the full pre-serialized snapshot.
+     *
+     * @param fields the comma-separated fields to include; the ID is always included
+     * @param webRequest the current request, for conditional checks
+     * @return list of sparse sweets
+     */
+    @GetMapping(params = {"fields", "!size", "!ids"})
+    public ResponseEntity<List<SweetResponse>> getAllSweetFields(
+            @RequestParam String fields,
+            WebRequest webRequest) {
+        Set<SweetField> selection = SweetField.parse(fields);
+        if (isCatalogNotModified(webRequest)) {
+            return null;
+        }
+
+        List<SweetResponse> responses = sweetService.getAllSweets().stream()
+                .map(sweet -> mapToResponse(sweet, selection))
                 .toList();
 
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(responses);
+    }
+
+    /**
+     * Get one keyset page of sweets.
+     * GET /api/sweets?size=...&sort=id|price|updatedAt&direction=asc|desc&cursor=...&fields=...
+     *
+     * @param size the page size (capped server-side)
+     * @param sort the sort field for the first page
+     * @param direction the sort direction for the first page
+     * @param cursor the continuation token from the previous page
+     * @param fields the comma-separated fields to include (optional)
+     * @param webRequest the current request, for conditional checks
+     * @return the page of sweets
+     */
+    @GetMapping(params = {"size", "!ids"})
+    public ResponseEntity<SweetPageResponse> getSweetsPage(
+            @RequestParam int size,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields,
+            WebRequest webRequest) {
+        Set<SweetField> selection = SweetField.parse(fields);
+        if (isCatalogNotModified(webRequest)) {
+            return null;
+        }
+
+        CatalogPage page = sweetService.getSweetsPage(sort, direction, cursor, size, selection);
+        List<SweetResponse> items = page.getItems().stream()
+                .map(sweet -> mapToResponse(sweet, selection))
+                .toList();
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(SweetPageResponse.builder()
+                .items(items)
+                .size(items.size())
+                .nextCursor(page.getNextCursor())
+                .hasNext(page.hasNext())
+                .build());
+    }
+
+    /**
+     * Get several sweets by ID in one round trip.
+     * GET /api/sweets?ids=3,1,2&fields=...
+     * Found sweets come back in request order; unknown IDs are listed instead of failing the call.
+     *
+     * @param ids the sweet IDs
+     * @param fields the comma-separated fields to include (optional)
+     * @return the found sweets and the missing IDs
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<SweetBatchResponse> getSweetsByIds(
+            @RequestParam List<Long> ids,
+            @RequestParam(required = false) String fields) {
+        Set<SweetField> selection = SweetField.parse(fields);
+        List<Sweet> sweets = sweetService.getSweetsByIds(ids);
+
+        Set<Long> missing = new LinkedHashSet<>(ids);
+        missing.remove(null);
+        List<SweetResponse> items = new ArrayList<>(sweets.size());
+        for (Sweet sweet : sweets) {
+            missing.remove(sweet.getId());
+            items.add(mapToResponse(sweet, selection));
+        }
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(SweetBatchResponse.builder()
+                .items(items)
+                .missingIds(List.copyOf(missing))
+                .build());
+    }
+
+    /**
+     * Export the full catalog as newline-delimited JSON.
+     * GET /api/sweets/export
+     * Rows are streamed from a database cursor; gzip is used when the client accepts it.
+     *
+     * @param acceptEncoding the Accept-Encoding request header
+     * @return the streaming response
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportSweets(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = out -> catalogExportService.exportNdjson(out, gzip, this::mapToResponse);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Import a supplier catalog (Admin only).
+     * POST /api/sweets/import
+     * Accepts CSV with a header row or one JSON sweet per line; rows are upserted by name.
+     * Progress and row errors are streamed back as newline-delimited JSON while the upload is read.
+     *
+     * @param contentType the upload content type
+     * @param upload the upload
+     * @param authentication the authenticated user
+     * @return the streaming progress response
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<StreamingResponseBody> importSweets(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream upload,
+            Authentication authentication) {
+        verifyAdminRole(authentication);
+
+        ImportFormat format = ImportFormat.fromContentType(contentType);
+        StreamingResponseBody body = out -> catalogImportService.importCatalog(upload, format, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
     }
 
     /**
      * Get a sweet by ID.
      * GET /api/sweets/:id
      *
+     * Answers 304 when the client's ETag or Last-Modified still matches the sweet.
+     *
      * @param id the sweet ID
+     * @param fields the comma-separated fields to include (optional)
+     * @param webRequest the current request, for conditional checks
      * @return the sweet response
      */
     @GetMapping("/{id}")
-    public ResponseEntity<SweetResponse> getSweetById(@PathVariable Long id) {
+    public ResponseEntity<SweetResponse> getSweetById(
+            @PathVariable Long id,
+            @RequestParam(required = false) String fields,
+            WebRequest webRequest) {
+        Set<SweetField> selection = SweetField.parse(fields);
         Sweet sweet = sweetService.getSweetById(id);
-        return ResponseEntity.ok(mapToResponse(sweet));
+        long lastModified = sweetService.getLastModified(sweet);
+        // The live quantity tells apart purchases that landed within the same millisecond.
+        String etag = "\"s" + Long.toHexString(sweet.getId()) + "-" + Long.toHexString(Math.max(lastModified, 0))
+                + "-" + Integer.toHexString(sweet.getQuantity()) + "\"";
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(mapToResponse(sweet, selection));
     }
 
     /**
-     * Search for sweets by name, category, or price range.
-     * GET /api/sweets/search?name=...&category=...&minPrice=...&maxPrice=...
+     * Search for sweets by name, free text, category, or price range.
+     * GET /api/sweets/search?name=...&q=...&category=...&minPrice=...&maxPrice=...&fields=...
+     * With fuzzy=true the name may be misspelled and results are ranked by closeness.
      *
      * @param name the name to search for
+     * @param q text to find in the name or description
      * @param category the category
      * @param minPrice the minimum price
      * @param maxPrice the maximum price
+     * @param fuzzy whether to tolerate typos in the name
+     * @param limit the maximum number of fuzzy results
+     * @param fields the comma-separated fields to include (optional)
+     * @param webRequest the current request, for conditional checks
      * @return list of matching sweets
      */
     @GetMapping("/search")
     public ResponseEntity<List<SweetResponse>> searchSweets(
             @RequestParam(required = false) String name,
+            @RequestParam(required = false) String q,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) BigDecimal minPrice,
-            @RequestParam(required = false) BigDecimal maxPrice) {
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String fields,
+            WebRequest webRequest) {
+        Set<SweetField> selection = SweetField.parse(fields);
+        if (isCatalogNotModified(webRequest)) {
+            return null;
+        }
 
-        List<Sweet> sweets = sweetService.searchSweets(name, category, minPrice, maxPrice);
+        List<Sweet> sweets = fuzzy
+                ? sweetService.fuzzySearchSweets(name, category, minPrice, maxPrice, limit)
+                : sweetService.searchSweets(name, q, category, minPrice, maxPrice, selection);
         List<SweetResponse> responses = sweets.stream()
+                .map(sweet -> mapToResponse(sweet, selection))
+                .toList();
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(responses);
+    }
+
+    /**
+     * List sweets in price order.
+     * GET /api/sweets/by-price?minPrice=...&maxPrice=...&category=...&direction=asc|desc&limit=...
+     *
+     * @param minPrice the minimum price
+     * @param maxPrice the maximum price
+     * @param category the category
+     * @param direction the price order
+     * @param limit the maximum number of sweets
+     * @param webRequest the current request, for conditional checks
+     * @return the sweets ordered by price
+     */
+    @GetMapping("/by-price")
+    public ResponseEntity<List<SweetResponse>> getSweetsByPrice(
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(defaultValue = "20") int limit,
+            WebRequest webRequest) {
+        if (isCatalogNotModified(webRequest)) {
+            return null;
+        }
+
+        List<SweetResponse> responses = sweetService.getSweetsByPrice(minPrice, maxPrice, category, direction, limit)
+                .stream()
                 .map(this::mapToResponse)
                 .toList();
 
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(responses);
+    }
+
+    /**
+     * Get category counts and a price histogram for a search filter.
+     * GET /api/sweets/facets?name=...&q=...&category=...&minPrice=...&maxPrice=...&bucketWidth=...
+     * Category counts ignore the category filter and the histogram ignores the price
+     * filter, so the UI can show the alternatives to the current selection.
+     *
+     * @param name the name to search for
+     * @param q text to find in the name or description
+     * @param category the selected category
+     * @param minPrice the minimum price
+     * @param maxPrice the maximum price
+     * @param bucketWidth the histogram bucket width
+     * @param webRequest the current request, for conditional checks
+     * @return the facets
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<FacetsResponse> getFacets(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "5") BigDecimal bucketWidth,
+            WebRequest webRequest) {
+        if (isCatalogNotModified(webRequest)) {
+            return null;
+        }
+
+        FacetCounts facets = sweetService.getFacets(name, q, category, minPrice, maxPrice, bucketWidth);
+        List<FacetsResponse.PriceBucket> buckets = facets.getPriceBuckets().entrySet().stream()
+                .map(bucket -> new FacetsResponse.PriceBucket(
+                        bucket.getKey(), bucket.getKey().add(facets.getBucketWidth()), bucket.getValue()))
+                .toList();
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(FacetsResponse.builder()
+                .total(facets.getTotal())
+                .categories(facets.getCategories())
+                .bucketWidth(facets.getBucketWidth())
+                .priceBuckets(buckets)
+                .build());
+    }
+
+    /**
+     * Autocomplete sweet names and categories.
+     * GET /api/sweets/suggest?prefix=...&limit=...
+     *
+     * @param prefix the typed prefix
+     * @param limit the maximum number of suggestions
+     * @return the suggestions, most popular first
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionResponse>> suggest(
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<SuggestionResponse> suggestions = sweetService.suggest(prefix, limit).stream()
+                .map(suggestion -> SuggestionResponse.builder()
+                        .text(suggestion.getText())
+                        .type(suggestion.getType().name())
+                        .score(suggestion.getScore())
+                        .build())
+                .toList();
+
+        return ResponseEntity.ok(suggestions);
     }
 
     /**
@@ -165,6 +484,29 @@ public class SweetController {
         return ResponseEntity.ok(mapToResponse(sweet));
     }
 
+    /**
+     * Buy several sweets in one all-or-nothing order.
+     * POST /api/sweets/checkout
+     * Answers 409 with the per-line outcome if any line cannot be bought.
+     *
+     * @param request the checkout request
+     * @param authentication the authenticated user
+     * @return the checkout response
+     */
+    @PostMapping("/checkout")
+    public ResponseEntity<CheckoutResponse> checkout(
+            @Valid @RequestBody CheckoutRequest request,
+            Authentication authentication) {
+        // User must be authenticated
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        CheckoutResponse response = checkoutService.checkout(request.getItems());
+        return ResponseEntity.status(response.isCompleted() ? HttpStatus.OK : HttpStatus.CONFLICT)
+                .body(response);
+    }
+
     /**
      * Restock a sweet (increase quantity, Admin only).
      * POST /api/sweets/:id/restock
@@ -185,6 +527,90 @@ public class SweetController {
         return ResponseEntity.ok(mapToResponse(sweet));
     }
 
+    /**
+     * Restock many sweets in one call (Admin only).
+     * POST /api/sweets/restock
+     *
+     * @param request the bulk restock request
+     * @param authentication the authenticated user
+     * @return the per-line restock outcome
+     */
+    @PostMapping("/restock")
+    public ResponseEntity<BulkRestockResponse> restockSweets(
+            @Valid @RequestBody BulkRestockRequest request,
+            Authentication authentication) {
+        verifyAdminRole(authentication);
+
+        return ResponseEntity.ok(sweetService.restockSweets(request.getItems()));
+    }
+
+    /**
+     * Switch where a sweet's purchases are decided (Admin only).
+     * PUT /api/sweets/:id/inventory-mode
+     *
+     * @param id the sweet ID
+     * @param request the inventory mode request
+     * @param authentication the authenticated user
+     * @return the sweet response with its live quantity
+     */
+    @PutMapping("/{id}/inventory-mode")
+    public ResponseEntity<SweetResponse> setInventoryMode(
+            @PathVariable Long id,
+            @Valid @RequestBody InventoryModeRequest request,
+            Authentication authentication) {
+        verifyAdminRole(authentication);
+
+        Sweet sweet = sweetService.setInventoryMode(id, request.getMode());
+        return ResponseEntity.ok(mapToResponse(sweet));
+    }
+
+    /**
+     * Check the request's validators against the current catalog version.
+     * Any catalog-wide view is unchanged as long as no sweet was added, changed or removed.
+     * Sets ETag and Last-Modified on the response either way.
+     *
+     * @param webRequest the current request
+     * @return true if a 304 has been prepared and the body should be skipped
+     */
+    private boolean isCatalogNotModified(WebRequest webRequest) {
+        CatalogVersion version = sweetService.getCatalogVersion();
+        return webRequest.checkNotModified(version.toEtag(), version.toLastModifiedMillis());
+    }
+
+    /**
+     * Check Accept-Encoding for gzip with a non-zero q-value (RFC 9110 section 12.5.3).
+     * An explicit gzip entry wins over a {@code *} wildcard.
+     */
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        quality = 0.0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = quality;
+            } else if (coding.equals("*")) {
+                wildcard = quality;
+            }
+        }
+        Double quality = gzip != null ? gzip : wildcard;
+        return quality != null && quality > 0;
+    }
+
     /**
      * Map Sweet entity to SweetResponse DTO.
      *
@@ -192,16 +618,18 @@ public class SweetController {
      * @return the sweet response
      */
     private SweetResponse mapToResponse(Sweet sweet) {
-        return SweetResponse.builder()
-                .id(sweet.getId())
-                .name(sweet.getName())
-                .category(sweet.getCategory())
-                .price(sweet.getPrice())
-                .quantity(sweet.getQuantity())
-                .description(sweet.getDescription())
-                .createdAt(sweet.getCreatedAt())
-                .updatedAt(sweet.getUpdatedAt())
-                .build();
+        return SweetResponse.from(sweet);
+    }
+
+    /**
+     * Map the selected fields of a Sweet entity to a sparse SweetResponse DTO.
+     *
+     * @param sweet the sweet entity
+     * @param fields the fields to include
+     * @return the sweet response
+     */
+    private SweetResponse mapToResponse(Sweet sweet, Set<SweetField> fields) {
+        return SweetResponse.from(sweet, fields);
     }
 
     /**
@@ -0,0 +1,23 @@
+package com.sweetshop.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for a bulk restock request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRestockRequest {
+
+    @NotEmpty(message = "Items are required")
+    @Size(max = 10000, message = "A bulk restock can have at most 10000 items")
+    private List<@Valid RestockItem> items;
+}
@@ -0,0 +1,25 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for a bulk restock result.
+ * Lines for unknown sweets are reported and skipped; the other lines are still applied.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkRestockResponse {
+
+    private int restocked;
+    private int notFound;
+
+    /** Line outcomes, in the order the items were requested. */
+    private List<RestockLineResponse> lines;
+}
@@ -0,0 +1,68 @@
+package com.sweetshop.dto;
+
+import lombok.Getter;
+
+/**
+ * Fingerprint of the catalog state this instance serves, used as an HTTP validator.
+ * The version is a counter bumped by every change the catalog cache applies, so two
+ * writes within the same millisecond still give different tags. Purchases that do not
+ * touch the sweets table move the live sale count instead. Counters are per process, so
+ * the tag also carries a random epoch and never matches one issued by another instance.
+ */
+@Getter
+public class CatalogVersion {
+
+    private final String epoch;
+    private final long version;
+    private final Long lastModified;
+    private final long liveSales;
+
+    public CatalogVersion(String epoch, long version, Long lastModified) {
+        this(epoch, version, lastModified, 0);
+    }
+
+    private CatalogVersion(String epoch, long version, Long lastModified, long liveSales) {
+        this.epoch = epoch;
+        this.version = version;
+        this.lastModified = lastModified;
+        this.liveSales = liveSales;
+    }
+
+    /**
+     * Fold in purchases this instance took outside the sweets table.
+     *
+     * @param liveSales the number of such purchases so far
+     * @param lastSaleAt when the latest of them happened, or 0 if none has
+     * @return the combined version
+     */
+    public CatalogVersion withLiveSales(long liveSales, long lastSaleAt) {
+        if (liveSales == 0) {
+            return this;
+        }
+        Long latest = lastModified == null || lastSaleAt > lastModified ? Long.valueOf(lastSaleAt) : lastModified;
+        return new CatalogVersion(epoch, version, latest, liveSales);
+    }
+
+    /**
+     * Get the strong entity tag for this catalog state.
+     *
+     * @return the quoted ETag
+     */
+    public String toEtag() {
+        StringBuilder etag = new StringBuilder("\"c")
+                .append(epoch).append('-').append(Long.toHexString(version));
+        if (liveSales != 0) {
+            etag.append("-l").append(Long.toHexString(liveSales));
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * Get the Last-Modified time in epoch millis.
+     *
+     * @return the timestamp, or -1 for an empty catalog
+     */
+    public long toLastModifiedMillis() {
+        return lastModified == null ? -1 : lastModified;
+    }
+}
@@ -0,0 +1,23 @@
+package com.sweetshop.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for one line of a cart checkout.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutItem {
+
+    @NotNull(message = "Sweet ID is required")
+    private Long sweetId;
+
+    @NotNull(message = "Quantity is required")
+    @Min(value = 1, message = "Quantity must be at least 1")
+    private Integer quantity;
+}
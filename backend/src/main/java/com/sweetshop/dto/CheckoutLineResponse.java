@@ -0,0 +1,43 @@
+package com.sweetshop.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO for the outcome of one checkout line.
+ * Sweet details are omitted for lines whose sweet does not exist.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CheckoutLineResponse {
+
+    /** Outcome of a checkout line. */
+    public enum Status {
+        /** The line was bought. */
+        PURCHASED,
+        /** The line could have been bought, but another line failed so nothing was. */
+        NOT_PURCHASED,
+        /** Not enough stock for this line (including other lines for the same sweet). */
+        INSUFFICIENT_QUANTITY,
+        /** No sweet with this ID. */
+        NOT_FOUND
+    }
+
+    private Long sweetId;
+    private Status status;
+    private String name;
+    private Integer quantity;
+    private BigDecimal unitPrice;
+    private BigDecimal lineTotal;
+
+    /** Stock left after the checkout, or the stock on hand if it did not complete. */
+    private Integer remainingQuantity;
+}
@@ -0,0 +1,23 @@
+package com.sweetshop.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for a cart checkout request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutRequest {
+
+    @NotEmpty(message = "Items are required")
+    @Size(max = 100, message = "A checkout can have at most 100 items")
+    private List<@Valid CheckoutItem> items;
+}
@@ -0,0 +1,28 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * DTO for a cart checkout result.
+ * A checkout is all-or-nothing: either every line is purchased or none is.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CheckoutResponse {
+
+    private boolean completed;
+
+    /** Line outcomes, in the order the items were requested. */
+    private List<CheckoutLineResponse> lines;
+
+    /** Sum of the purchased line totals; zero if the checkout did not complete. */
+    private BigDecimal total;
+}
@@ -0,0 +1,37 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO for category counts and a price histogram.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FacetsResponse {
+
+    private long total;
+    private Map<String, Long> categories;
+    private BigDecimal bucketWidth;
+    private List<PriceBucket> priceBuckets;
+
+    /**
+     * One non-empty histogram bucket covering [from, to).
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceBucket {
+        private BigDecimal from;
+        private BigDecimal to;
+        private long count;
+    }
+}
@@ -0,0 +1,44 @@
+package com.sweetshop.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for one line of a catalog import's NDJSON progress stream.
+ * Row errors carry a line and errors; progress and final events carry the running counts.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportEvent {
+
+    /** Kind of import event. */
+    public enum Type {
+        /** A row was skipped; the rest of the upload is still imported. */
+        ERROR,
+        /** A batch was committed. */
+        PROGRESS,
+        /** The whole upload was read. */
+        COMPLETED,
+        /** The upload was malformed and reading stopped; committed batches are kept. */
+        FAILED
+    }
+
+    private Type type;
+
+    /** Line of the upload the row starts on. */
+    private Long line;
+    private List<String> errors;
+
+    private Long rows;
+    private Long inserted;
+    private Long updated;
+    private Long failed;
+}
@@ -0,0 +1,19 @@
+package com.sweetshop.dto;
+
+import com.sweetshop.inventory.InventoryMode;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for switching a sweet's inventory mode.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryModeRequest {
+
+    @NotNull(message = "Mode is required")
+    private InventoryMode mode;
+}
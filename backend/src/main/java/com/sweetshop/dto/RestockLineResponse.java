@@ -0,0 +1,31 @@
+package com.sweetshop.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the outcome of one bulk restock line.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RestockLineResponse {
+
+    /** Outcome of a restock line. */
+    public enum Status {
+        RESTOCKED,
+        NOT_FOUND
+    }
+
+    private Long sweetId;
+    private Status status;
+    private Integer quantity;
+
+    /** The sweet's quantity once the whole bulk restock is applied; absent if not found. */
+    private Integer newQuantity;
+}
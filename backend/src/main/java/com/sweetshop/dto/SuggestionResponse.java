@@ -0,0 +1,20 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for one autocomplete suggestion.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SuggestionResponse {
+
+    private String text;
+    private String type;
+    private long score;
+}
@@ -0,0 +1,24 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for a multi-get of sweets by ID.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SweetBatchResponse {
+
+    /** Found sweets, in the order their IDs were requested. */
+    private List<SweetResponse> items;
+
+    /** Requested IDs with no sweet, in request order. */
+    private List<Long> missingIds;
+}
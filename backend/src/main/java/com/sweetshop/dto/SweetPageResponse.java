@@ -0,0 +1,23 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for one keyset page of sweets.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SweetPageResponse {
+
+    private List<SweetResponse> items;
+    private int size;
+    private String nextCursor;
+    private boolean hasNext;
+}
@@ -1,15 +1,21 @@
 package com.sweetshop.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.projection.SweetField;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
+import java.util.Set;
 
 /**
  * DTO for sweet response.
+ * Fields left out of a sparse selection are null and omitted from the JSON.
  */
 @Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
@@ -23,4 +29,46 @@ public class SweetResponse {
     private String description;
     private Long createdAt;
     private Long updatedAt;
-}
\ No newline at end of file
+
+    /**
+     * Map a Sweet entity to its response DTO.
+     *
+     * @param sweet the sweet entity
+     * @return the sweet response
+     */
+    public static SweetResponse from(Sweet sweet) {
+        return SweetResponse.builder()
+                .id(sweet.getId())
+                .name(sweet.getName())
+                .category(sweet.getCategory())
+                .price(sweet.getPrice())
+                .quantity(sweet.getQuantity())
+                .description(sweet.getDescription())
+                .createdAt(sweet.getCreatedAt())
+                .updatedAt(sweet.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * Map the selected fields of a Sweet entity to a sparse response DTO.
+     *
+     * @param sweet the sweet entity
+     * @param fields the fields to include
+     * @return the sweet response
+     */
+    public static SweetResponse from(Sweet sweet, Set<SweetField> fields) {
+        if (fields.size() == SweetField.values().length) {
+            return from(sweet);
+        }
+        return SweetResponse.builder()
+                .id(sweet.getId())
+                .name(fields.contains(SweetField.NAME) ? sweet.getName() : null)
+                .category(fields.contains(SweetField.CATEGORY) ? sweet.getCategory() : null)
+                .price(fields.contains(SweetField.PRICE) ? sweet.getPrice() : null)
+                .quantity(fields.contains(SweetField.QUANTITY) ? sweet.getQuantity() : null)
+                .description(fields.contains(SweetField.DESCRIPTION) ? sweet.getDescription() : null)
+                .createdAt(fields.contains(SweetField.CREATED_AT) ? sweet.getCreatedAt() : null)
+                .updatedAt(fields.contains(SweetField.UPDATED_AT) ? sweet.getUpdatedAt() : null)
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.sweetshop.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stored response to a request sent with an Idempotency-Key.
+ * The status is null while the first request with the key is still running.
+ */
+@Entity
+@Table(name = "idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    /** The client's key, namespaced by the user who sent it. */
+    @Id
+    @Column(name = "idempotency_key", length = 512)
+    private String idempotencyKey;
+
+    /** SHA-256 of the request method, path and body, hex-encoded. */
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    private Integer status;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "expires_at", nullable = false)
+    private Long expiresAt;
+}
@@ -0,0 +1,24 @@
+package com.sweetshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Net units the inventory ledger has written behind to one sweet.
+ * Advanced in the same transaction as the write, so it always matches what the row holds.
+ */
+@Entity
+@Table(name = "inventory_ledger_offsets")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerOffset {
+
+    @Id
+    @Column(name = "sweet_id")
+    private Long sweetId;
+
+    @Column(nullable = false)
+    private Long units;
+}
@@ -0,0 +1,45 @@
+package com.sweetshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * One sub-row of a sharded sweet's stock.
+ * Purchases of a hot sweet decrement different shards, so they do not queue on one row lock.
+ */
+@Entity
+@Table(name = "sweet_stock_shards")
+@IdClass(StockShard.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockShard {
+
+    @Id
+    @Column(name = "sweet_id")
+    private Long sweetId;
+
+    @Id
+    private Integer shard;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    /** Units sold from this shard since the last rebalance folded them into the sweet. */
+    @Column(name = "sold_count", nullable = false)
+    private Long soldCount;
+
+    /**
+     * Composite key of a stock shard.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long sweetId;
+        private Integer shard;
+    }
+}
@@ -1,5 +1,6 @@
 package com.sweetshop.entity;
 
+import com.sweetshop.event.SweetEntityListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.math.BigDecimal;
@@ -10,14 +11,17 @@ import java.math.BigDecimal;
  */
 @Entity
 @Table(name = "sweets")
+@EntityListeners(SweetEntityListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class Sweet {
 
+    /** Drawn from a pooled sequence, 50 IDs per round trip, so inserts can be batched. */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sweet_id_seq")
+    @SequenceGenerator(name = "sweet_id_seq", sequenceName = "sweet_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -35,14 +39,26 @@ public class Sweet {
     @Column(nullable = false)
     private String description;
 
+    /** Units sold over the sweet's lifetime; used to rank search results by popularity. */
+    @Column(name = "sold_count")
+    private Long soldCount;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private Long createdAt;
 
     @Column(name = "updated_at")
     private Long updatedAt;
 
+    /** Optimistic lock; a stale write fails instead of overwriting a concurrent one. */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
+        if (soldCount == null) {
+            soldCount = 0L;
+        }
         createdAt = System.currentTimeMillis();
         updatedAt = System.currentTimeMillis();
     }
@@ -63,6 +79,16 @@ public class Sweet {
             throw new IllegalArgumentException("Insufficient quantity available");
         }
         this.quantity -= quantity;
+        this.soldCount = getPopularity() + quantity;
+    }
+
+    /**
+     * Get the number of units sold, treating rows created before tracking as unsold.
+     *
+     * @return units sold
+     */
+    public long getPopularity() {
+        return soldCount == null ? 0 : soldCount;
     }
 
     /**
@@ -0,0 +1,16 @@
+package com.sweetshop.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Application event published when an in-memory catalog index has been rebuilt from the
+ * catalog cache, picking up writes this instance never saw as {@link SweetChangedEvent}s.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogIndexRebuiltEvent {
+
+    /** The simple class name of the rebuilt index. */
+    private final String index;
+}
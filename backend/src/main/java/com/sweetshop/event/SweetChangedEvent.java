@@ -0,0 +1,30 @@
+package com.sweetshop.event;
+
+import com.sweetshop.entity.Sweet;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Application event published whenever a sweet row is inserted, updated or deleted.
+ * The carried sweet is a detached copy of the entity state at the time of the change.
+ */
+@Getter
+@AllArgsConstructor
+public class SweetChangedEvent {
+
+    private final Type type;
+    private final Sweet sweet;
+
+    /**
+     * Get the ID of the changed sweet.
+     *
+     * @return the sweet ID
+     */
+    public Long getSweetId() {
+        return sweet.getId();
+    }
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
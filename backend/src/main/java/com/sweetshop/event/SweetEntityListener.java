@@ -0,0 +1,40 @@
+package com.sweetshop.event;
+
+import com.sweetshop.entity.Sweet;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that turns Sweet lifecycle callbacks into {@link SweetChangedEvent}s.
+ * Hooking the persistence layer means every JPA write is observed, not only the ones
+ * made through SweetService.
+ */
+@Component
+@RequiredArgsConstructor
+public class SweetEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    public void onPersist(Sweet sweet) {
+        publish(SweetChangedEvent.Type.CREATED, sweet);
+    }
+
+    @PostUpdate
+    public void onUpdate(Sweet sweet) {
+        publish(SweetChangedEvent.Type.UPDATED, sweet);
+    }
+
+    @PostRemove
+    public void onRemove(Sweet sweet) {
+        publish(SweetChangedEvent.Type.DELETED, sweet);
+    }
+
+    private void publish(SweetChangedEvent.Type type, Sweet sweet) {
+        eventPublisher.publishEvent(new SweetChangedEvent(type, sweet.toBuilder().build()));
+    }
+}
@@ -0,0 +1,14 @@
+package com.sweetshop.exception;
+
+/**
+ * Exception thrown when a write kept conflicting with concurrent writes and ran out of retries.
+ */
+public class ConcurrentUpdateException extends RuntimeException {
+    public ConcurrentUpdateException(String message) {
+        super(message);
+    }
+
+    public ConcurrentUpdateException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
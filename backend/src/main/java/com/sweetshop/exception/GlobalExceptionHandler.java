@@ -53,6 +53,30 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
     }
 
+    /**
+     * Handle ConcurrentUpdateException.
+     */
+    @ExceptionHandler(ConcurrentUpdateException.class)
+    public ResponseEntity<Map<String, String>> handleConcurrentUpdateException(
+            ConcurrentUpdateException ex) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", ex.getMessage());
+        response.put("status", "CONFLICT");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    /**
+     * Handle ReadTimeoutException.
+     */
+    @ExceptionHandler(ReadTimeoutException.class)
+    public ResponseEntity<Map<String, String>> handleReadTimeoutException(
+            ReadTimeoutException ex) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", ex.getMessage());
+        response.put("status", "SERVICE_UNAVAILABLE");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
     /**
      * Handle validation errors for request bodies.
      */
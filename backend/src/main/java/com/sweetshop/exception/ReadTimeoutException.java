@@ -0,0 +1,14 @@
+package com.sweetshop.exception;
+
+/**
+ * Exception thrown when a read waited too long for an identical in-flight read.
+ */
+public class ReadTimeoutException extends RuntimeException {
+    public ReadTimeoutException(String message) {
+        super(message);
+    }
+
+    public ReadTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,249 @@
+package com.sweetshop.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Makes purchase, checkout and restock requests safe to retry.
+ *
+ * <p>A POST to one of these endpoints that carries an {@value #IDEMPOTENCY_KEY_HEADER}
+ * header runs at most once per user and key. A retry with the same key and body gets the
+ * first response back, marked with {@value #REPLAYED_HEADER}, without reaching the
+ * controller. A retry while the first request is still running gets 409, and reusing a
+ * key for a different request gets 422. Responses with a 5xx status are not stored, so
+ * the request can be retried under the same key. Once the controller has answered below
+ * 500 the key is never given up, even if storing the response fails.</p>
+ *
+ * <p>Registered as a servlet filter after the security chain, so the caller is known.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    static final int MAX_KEY_LENGTH = 255;
+    static final int COMPLETE_ATTEMPTS = 3;
+
+    private static final List<String> PATHS = List.of(
+            "/sweets/*/purchase",
+            "/sweets/*/restock",
+            "/sweets/checkout",
+            "/sweets/restock");
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!HttpMethod.POST.matches(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null) {
+            return true;
+        }
+        String path = path(request);
+        return PATHS.stream().noneMatch(pattern -> PATH_MATCHER.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String clientKey = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (clientKey.isBlank() || clientKey.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                    IDEMPOTENCY_KEY_HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        // Keys are per user, so one client cannot replay another's response.
+        String key = authentication.getName() + '\n' + clientKey;
+        String requestHash = hash(request.getMethod(), path(request), cachedRequest.body);
+
+        IdempotencyStore.Outcome outcome = store.begin(key, requestHash);
+        switch (outcome.getKind()) {
+            case REPLAY -> replay(response, outcome.getResponse());
+            case IN_PROGRESS -> writeError(response, HttpStatus.CONFLICT,
+                    "A request with this " + IDEMPOTENCY_KEY_HEADER + " is still in progress");
+            case MISMATCH -> writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    IDEMPOTENCY_KEY_HEADER + " was already used for a different request");
+            case CLAIMED -> proceed(cachedRequest, response, filterChain, key, requestHash);
+        }
+    }
+
+    private void proceed(CachedBodyRequest request, HttpServletResponse response, FilterChain filterChain,
+                         String key, String requestHash) throws ServletException, IOException {
+        ContentCachingResponseWrapper cachedResponse = new ContentCachingResponseWrapper(response);
+        boolean applied = false;
+        try {
+            filterChain.doFilter(request, cachedResponse);
+            applied = cachedResponse.getStatus() < 500;
+        } finally {
+            if (!applied) {
+                try {
+                    store.release(key);
+                } catch (RuntimeException ex) {
+                    log.warn("Could not release idempotency key after failed request", ex);
+                }
+            }
+        }
+        if (applied) {
+            complete(key, requestHash, new IdempotentResponse(cachedResponse.getStatus(),
+                    cachedResponse.getContentType(),
+                    new String(cachedResponse.getContentAsByteArray(), StandardCharsets.UTF_8)));
+        }
+        cachedResponse.copyBodyToResponse();
+    }
+
+    /**
+     * Store the response of a request that ran. Never releases the key: the write has happened,
+     * so if the store keeps failing the claim stays until its lease lapses.
+     */
+    private void complete(String key, String requestHash, IdempotentResponse response) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                store.complete(key, requestHash, response);
+                return;
+            } catch (RuntimeException ex) {
+                if (attempt == COMPLETE_ATTEMPTS) {
+                    log.error("Could not store the response for an idempotency key; keeping its claim", ex);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void replay(HttpServletResponse response, IdempotentResponse stored) throws IOException {
+        response.setStatus(stored.getStatus());
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.getBody() != null) {
+            byte[] body = stored.getBody().getBytes(StandardCharsets.UTF_8);
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", message, "status", status.name()));
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String hash(String method, String path, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((method + '\n' + path + '\n').getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(body));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /**
+     * Reads the body once for hashing and serves it again to the controller.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = StreamUtils.copyToByteArray(request.getInputStream());
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // The whole body is already in memory, so it is all available at once.
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException ex) {
+                        readListener.onError(ex);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.sweetshop.idempotency;
+
+import com.sweetshop.entity.IdempotencyRecord;
+import com.sweetshop.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Deduplicates requests sent with an Idempotency-Key.
+ *
+ * <p>Keys live in a bounded LRU map in front of the {@code idempotency_keys} table.
+ * A retry of a recently seen key is answered from memory with one hash lookup. A key
+ * not in memory is claimed with a single primary-key INSERT, which fails if another
+ * request or instance already holds it; the stored row is then read by primary key.
+ * Either way the cost of a lookup does not depend on how many keys are stored.</p>
+ *
+ * <p>Claims carry a short lease so a request lost to a crash does not block its key for
+ * the whole TTL. Completed responses are kept for the TTL; expired rows are purged
+ * periodically.</p>
+ */
+@Component
+@Slf4j
+public class IdempotencyStore implements MeterBinder {
+
+    private final IdempotencyRecordRepository repository;
+    private final long ttlMillis;
+    private final long leaseMillis;
+    private final int maximumSize;
+    private final long purgeIntervalMillis;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService purger;
+
+    private final Object lock = new Object();
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong memoryLookups = new AtomicLong();
+    private final AtomicLong memoryLookupNanos = new AtomicLong();
+    private final AtomicLong databaseLookups = new AtomicLong();
+    private final AtomicLong databaseLookupNanos = new AtomicLong();
+    private final AtomicLong claims = new AtomicLong();
+    private final AtomicLong replays = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong mismatches = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public IdempotencyStore(IdempotencyRecordRepository repository,
+                            @Value("${sweetshop.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${sweetshop.idempotency.lease:60s}") Duration lease,
+                            @Value("${sweetshop.idempotency.maximum-size:100000}") int maximumSize,
+                            @Value("${sweetshop.idempotency.purge-interval:5m}") Duration purgeInterval) {
+        this(repository, ttl, lease, maximumSize, purgeInterval, System::currentTimeMillis);
+    }
+
+    IdempotencyStore(IdempotencyRecordRepository repository, Duration ttl, Duration lease, int maximumSize,
+                     Duration purgeInterval, LongSupplier clock) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Idempotency store maximum size must be at least 1");
+        }
+        this.repository = repository;
+        this.ttlMillis = ttl.toMillis();
+        this.leaseMillis = lease.toMillis();
+        this.maximumSize = maximumSize;
+        this.purgeIntervalMillis = Math.max(1, purgeInterval.toMillis());
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > IdempotencyStore.this.maximumSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        purger.scheduleWithFixedDelay(this::purgeQuietly, purgeIntervalMillis, purgeIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        purger.shutdownNow();
+    }
+
+    /**
+     * Look up a key, claiming it for this request if it is new.
+     * A claimed key must be finished with {@link #complete} or {@link #release}.
+     *
+     * @param key the namespaced key
+     * @param requestHash the request fingerprint
+     * @return what to do with the request
+     */
+    public Outcome begin(String key, String requestHash) {
+        long started = System.nanoTime();
+        long now = clock.getAsLong();
+        synchronized (lock) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt >= now) {
+                Outcome outcome = outcome(entry.requestHash, entry.response, requestHash);
+                memoryLookups.incrementAndGet();
+                memoryLookupNanos.addAndGet(System.nanoTime() - started);
+                return outcome;
+            }
+            // Held here until the request finishes, so retries to this instance skip the database.
+            entries.put(key, new Entry(requestHash, null, Long.MAX_VALUE));
+        }
+
+        try {
+            IdempotencyRecord existing = claim(key, requestHash, now);
+            if (existing == null) {
+                claims.incrementAndGet();
+                return Outcome.CLAIMED;
+            }
+            IdempotentResponse response = existing.getStatus() == null ? null
+                    : new IdempotentResponse(existing.getStatus(), existing.getContentType(),
+                    existing.getResponseBody());
+            synchronized (lock) {
+                if (response == null) {
+                    entries.remove(key);
+                } else {
+                    entries.put(key, new Entry(existing.getRequestHash(), response, existing.getExpiresAt()));
+                }
+            }
+            return outcome(existing.getRequestHash(), response, requestHash);
+        } catch (RuntimeException ex) {
+            synchronized (lock) {
+                entries.remove(key);
+            }
+            throw ex;
+        } finally {
+            databaseLookups.incrementAndGet();
+            databaseLookupNanos.addAndGet(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Store the response of a claimed key for replay.
+     * Safe to call again if the table write fails.
+     *
+     * @param key the namespaced key
+     * @param requestHash the request fingerprint
+     * @param response the response
+     */
+    public void complete(String key, String requestHash, IdempotentResponse response) {
+        long expiresAt = clock.getAsLong() + ttlMillis;
+        // Remembered first, so this instance replays the response even if the table write fails.
+        synchronized (lock) {
+            entries.put(key, new Entry(requestHash, response, expiresAt));
+        }
+        repository.complete(key, response.getStatus(), response.getContentType(), response.getBody(), expiresAt);
+    }
+
+    /**
+     * Give up a claimed key without storing a response, so a retry runs the request again.
+     *
+     * @param key the namespaced key
+     */
+    public void release(String key) {
+        synchronized (lock) {
+            entries.remove(key);
+        }
+        repository.deleteById(key);
+    }
+
+    /**
+     * Delete expired keys from the table; expired entries in memory are ignored on lookup.
+     *
+     * @return rows deleted
+     */
+    public int purge() {
+        return repository.deleteExpired(clock.getAsLong());
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionTimer.builder("idempotency.lookups", memoryLookups, AtomicLong::get,
+                        count -> memoryLookupNanos.get(), TimeUnit.NANOSECONDS)
+                .tag("source", "memory")
+                .description("Idempotency-Key lookups answered in memory")
+                .register(registry);
+        FunctionTimer.builder("idempotency.lookups", databaseLookups, AtomicLong::get,
+                        count -> databaseLookupNanos.get(), TimeUnit.NANOSECONDS)
+                .tag("source", "database")
+                .description("Idempotency-Key lookups that claimed or read the key in the database")
+                .register(registry);
+        bindOutcome(registry, claims, "claimed", "Requests that ran under a new key");
+        bindOutcome(registry, replays, "replayed", "Retries answered with the stored response");
+        bindOutcome(registry, conflicts, "in_progress", "Retries rejected while the first request ran");
+        bindOutcome(registry, mismatches, "mismatch", "Keys reused for a different request");
+        FunctionCounter.builder("idempotency.evictions", evictions, AtomicLong::get)
+                .description("Keys evicted from memory because the store was full")
+                .register(registry);
+        Gauge.builder("idempotency.keys", this, IdempotencyStore::size)
+                .description("Keys held in memory")
+                .register(registry);
+    }
+
+    private static void bindOutcome(MeterRegistry registry, AtomicLong counter, String outcome, String description) {
+        FunctionCounter.builder("idempotency.requests", counter, AtomicLong::get)
+                .tag("outcome", outcome)
+                .description(description)
+                .register(registry);
+    }
+
+    /**
+     * Insert the claim row, clearing a lapsed one first.
+     *
+     * @return null if claimed, otherwise the live row holding the key
+     */
+    private IdempotencyRecord claim(String key, String requestHash, long now) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                repository.claim(key, requestHash, now + leaseMillis);
+                return null;
+            } catch (DataIntegrityViolationException ex) {
+                Optional<IdempotencyRecord> existing = repository.findById(key);
+                if (existing.isPresent() && existing.get().getExpiresAt() >= now) {
+                    return existing.get();
+                }
+                repository.deleteIfExpired(key, now);
+            }
+        }
+        // Lost the key to another claim twice in a row; that claim is in progress.
+        return IdempotencyRecord.builder()
+                .idempotencyKey(key)
+                .requestHash(requestHash)
+                .expiresAt(now + leaseMillis)
+                .build();
+    }
+
+    private Outcome outcome(String storedHash, IdempotentResponse response, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            mismatches.incrementAndGet();
+            return Outcome.MISMATCH;
+        }
+        if (response == null) {
+            conflicts.incrementAndGet();
+            return Outcome.IN_PROGRESS;
+        }
+        replays.incrementAndGet();
+        return Outcome.replay(response);
+    }
+
+    private void purgeQuietly() {
+        try {
+            int purged = purge();
+            if (purged > 0) {
+                log.debug("Purged {} expired idempotency keys", purged);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Idempotency key purge failed", ex);
+        }
+    }
+
+    /**
+     * Result of looking up a key.
+     */
+    @Getter
+    public static final class Outcome {
+
+        /** What to do with the request. */
+        public enum Kind {
+            /** New key: run the request, then complete or release the key. */
+            CLAIMED,
+            /** Seen before: send the stored response. */
+            REPLAY,
+            /** The first request with this key is still running. */
+            IN_PROGRESS,
+            /** The key was used for a different request. */
+            MISMATCH
+        }
+
+        static final Outcome CLAIMED = new Outcome(Kind.CLAIMED, null);
+        static final Outcome IN_PROGRESS = new Outcome(Kind.IN_PROGRESS, null);
+        static final Outcome MISMATCH = new Outcome(Kind.MISMATCH, null);
+
+        private final Kind kind;
+        private final IdempotentResponse response;
+
+        private Outcome(Kind kind, IdempotentResponse response) {
+            this.kind = kind;
+            this.response = response;
+        }
+
+        static Outcome replay(IdempotentResponse response) {
+            return new Outcome(Kind.REPLAY, response);
+        }
+    }
+
+    /**
+     * A key in memory; the response is null while the request runs.
+     */
+    private static final class Entry {
+        private final String requestHash;
+        private final IdempotentResponse response;
+        private final long expiresAt;
+
+        private Entry(String requestHash, IdempotentResponse response, long expiresAt) {
+            this.requestHash = requestHash;
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.sweetshop.idempotency;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * A response kept for replay to retries of the same request.
+ */
+@Getter
+@EqualsAndHashCode
+public final class IdempotentResponse {
+
+    private final int status;
+    private final String contentType;
+    private final String body;
+
+    public IdempotentResponse(int status, String contentType, String body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+    }
+}
@@ -0,0 +1,19 @@
+package com.sweetshop.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads a catalog upload one row at a time, so only the current row is held in memory.
+ */
+public interface CatalogRowReader extends Closeable {
+
+    /**
+     * Read the next data row.
+     *
+     * @return the row, or null at the end of the upload
+     * @throws IOException if reading the upload fails
+     * @throws IllegalArgumentException if the upload is malformed beyond a single row
+     */
+    ImportRow next() throws IOException;
+}
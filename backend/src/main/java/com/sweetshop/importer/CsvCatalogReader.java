@@ -0,0 +1,189 @@
+package com.sweetshop.importer;
+
+import com.sweetshop.dto.SweetRequest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads a CSV catalog upload record by record.
+ *
+ * <p>The first record is a header naming the columns, in any order and case:
+ * {@code name, category, price, quantity, description}; other columns are ignored.
+ * Fields follow RFC 4180 quoting, so quoted fields may contain commas, doubled quotes
+ * and line breaks. Empty cells are read as missing values.</p>
+ */
+public class CsvCatalogReader implements CatalogRowReader {
+
+    /** Longest record accepted, so a runaway quoted field cannot exhaust memory. */
+    static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private static final List<String> COLUMNS = List.of("name", "category", "price", "quantity", "description");
+    private static final int NONE = -2;
+
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+    private int[] columnIndexes;
+    private int headerWidth;
+    private long line = 1;
+    private int pushedBack = NONE;
+
+    public CsvCatalogReader(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public ImportRow next() throws IOException {
+        if (columnIndexes == null) {
+            readHeader();
+        }
+        while (true) {
+            long start = line;
+            List<String> fields = readRecord();
+            if (fields == null) {
+                return null;
+            }
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            if (fields.size() != headerWidth) {
+                return ImportRow.invalid(start,
+                        List.of("Expected " + headerWidth + " columns but found " + fields.size()));
+            }
+            return toRow(start, fields);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader() throws IOException {
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV upload is empty");
+        }
+        // Spreadsheet exports often start with a byte order mark.
+        List<String> names = header.stream()
+                .map(name -> name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT))
+                .toList();
+        int[] indexes = new int[COLUMNS.size()];
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            indexes[i] = names.indexOf(COLUMNS.get(i));
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException("CSV header is missing column: " + COLUMNS.get(i));
+            }
+        }
+        columnIndexes = indexes;
+        headerWidth = header.size();
+    }
+
+    private ImportRow toRow(long start, List<String> fields) {
+        List<String> errors = new ArrayList<>();
+        SweetRequest request = new SweetRequest();
+        request.setName(value(fields, 0));
+        request.setCategory(value(fields, 1));
+        String price = value(fields, 2);
+        if (price != null) {
+            try {
+                request.setPrice(new BigDecimal(price));
+            } catch (NumberFormatException e) {
+                errors.add("price: Price must be a number");
+            }
+        }
+        String quantity = value(fields, 3);
+        if (quantity != null) {
+            try {
+                request.setQuantity(Integer.valueOf(quantity));
+            } catch (NumberFormatException e) {
+                errors.add("quantity: Quantity must be a whole number");
+            }
+        }
+        request.setDescription(value(fields, 4));
+        return errors.isEmpty() ? ImportRow.parsed(start, request) : ImportRow.invalid(start, errors);
+    }
+
+    private String value(List<String> fields, int column) {
+        String value = fields.get(columnIndexes[column]).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Read one record.
+     *
+     * @return the record's fields, or null at the end of the upload
+     */
+    private List<String> readRecord() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        int length = 0;
+        while (true) {
+            if (++length > MAX_RECORD_LENGTH) {
+                throw new IllegalArgumentException(
+                        "Record at line " + line + " is longer than " + MAX_RECORD_LENGTH + " characters");
+            }
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("Quoted field not closed before the end of the upload");
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next != '"') {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                    field.append('"');
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        pushedBack = next;
+                    }
+                }
+                if (c != -1) {
+                    line++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != NONE) {
+            int c = pushedBack;
+            pushedBack = NONE;
+            return c;
+        }
+        return reader.read();
+    }
+}
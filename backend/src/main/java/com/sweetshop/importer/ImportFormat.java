@@ -0,0 +1,53 @@
+package com.sweetshop.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.io.InputStream;
+
+/**
+ * Upload formats accepted by the catalog import.
+ */
+public enum ImportFormat {
+    /** Comma-separated values with a header row naming the columns. */
+    CSV("text/csv"),
+    /** One JSON sweet per line. */
+    NDJSON("application/x-ndjson");
+
+    private final MediaType mediaType;
+
+    ImportFormat(String mediaType) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Resolve the format of an upload from its content type.
+     *
+     * @param contentType the request content type
+     * @return the format
+     * @throws IllegalArgumentException if the content type is not an import format
+     */
+    public static ImportFormat fromContentType(MediaType contentType) {
+        for (ImportFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(contentType)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported import format: " + contentType);
+    }
+
+    /**
+     * Open a row reader over an upload in this format.
+     *
+     * @param in the upload
+     * @param objectMapper the mapper for JSON rows
+     * @return the reader
+     */
+    public CatalogRowReader open(InputStream in, ObjectMapper objectMapper) {
+        return this == CSV ? new CsvCatalogReader(in) : new NdjsonCatalogReader(in, objectMapper);
+    }
+}
@@ -0,0 +1,50 @@
+package com.sweetshop.importer;
+
+import com.sweetshop.dto.SweetRequest;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One data row of a catalog upload: the parsed sweet, or why it could not be parsed.
+ */
+@Getter
+public final class ImportRow {
+
+    /** Line of the upload the row starts on, counting from 1. */
+    private final long line;
+    private final SweetRequest request;
+    private final List<String> errors;
+
+    private ImportRow(long line, SweetRequest request, List<String> errors) {
+        this.line = line;
+        this.request = request;
+        this.errors = errors;
+    }
+
+    /**
+     * A row that parsed; its values are not validated yet.
+     *
+     * @param line the line the row starts on
+     * @param request the parsed sweet
+     * @return the row
+     */
+    public static ImportRow parsed(long line, SweetRequest request) {
+        return new ImportRow(line, request, List.of());
+    }
+
+    /**
+     * A row that could not be parsed.
+     *
+     * @param line the line the row starts on
+     * @param errors what is wrong with it
+     * @return the row
+     */
+    public static ImportRow invalid(long line, List<String> errors) {
+        return new ImportRow(line, null, List.copyOf(errors));
+    }
+
+    public boolean isParsed() {
+        return request != null;
+    }
+}
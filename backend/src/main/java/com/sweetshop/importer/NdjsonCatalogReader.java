@@ -0,0 +1,55 @@
+package com.sweetshop.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.sweetshop.dto.SweetRequest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Reads a newline-delimited JSON catalog upload, one sweet object per line.
+ * Blank lines are skipped; a line that is not a sweet object is reported on its own.
+ */
+public class NdjsonCatalogReader implements CatalogRowReader {
+
+    private final BufferedReader reader;
+    private final ObjectReader objectReader;
+    private long line;
+
+    public NdjsonCatalogReader(InputStream in, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.objectReader = objectMapper.readerFor(SweetRequest.class);
+    }
+
+    @Override
+    public ImportRow next() throws IOException {
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            try {
+                SweetRequest request = objectReader.readValue(text);
+                if (request == null) {
+                    return ImportRow.invalid(line, List.of("Expected a JSON object"));
+                }
+                return ImportRow.parsed(line, request);
+            } catch (JsonProcessingException e) {
+                return ImportRow.invalid(line, List.of("Malformed JSON: " + e.getOriginalMessage()));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
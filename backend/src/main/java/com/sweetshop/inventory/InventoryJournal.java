@@ -0,0 +1,159 @@
+package com.sweetshop.inventory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Append-only local journal of ledger sales, used to recover sales that were accepted
+ * in memory but not yet written to the sweets table when the process died.
+ *
+ * <p>Each accepted sale appends {@code S <id> <quantity>} and each sale given back appends
+ * {@code R <id> <quantity>}. Flushes write nothing here: they advance the sweet's offset in
+ * {@code inventory_ledger_offsets} in the same transaction as the UPDATE. Instead, whenever
+ * a sweet has nothing pending, {@code M <id> <offset>} marks the offset the table had then.
+ * On startup the sales journaled after a sweet's last mark, less what its offset moved since,
+ * are what still has to be applied. A torn last line is ignored. Without {@code sync} the
+ * journal survives a process crash but not a power loss.</p>
+ */
+final class InventoryJournal implements Closeable {
+
+    static final char SOLD = 'S';
+    static final char RETURNED = 'R';
+    static final char MARK = 'M';
+    /** Appended after each flush by journals written before offsets; still read on replay. */
+    private static final char FLUSHED = 'F';
+
+    private final Path path;
+    private final boolean sync;
+    private final FileChannel channel;
+
+    InventoryJournal(Path path, boolean sync) {
+        this.path = path;
+        this.sync = sync;
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open inventory journal " + path, ex);
+        }
+    }
+
+    /**
+     * Append one record; returns once the record is in the OS (or on disk when syncing).
+     *
+     * @param kind {@link #SOLD}, {@link #RETURNED} or {@link #MARK}
+     * @param sweetId the sweet ID
+     * @param quantity the units sold or given back, or the offset marked
+     */
+    synchronized void append(char kind, long sweetId, long quantity) {
+        byte[] line = (kind + " " + sweetId + " " + quantity + "\n").getBytes(StandardCharsets.US_ASCII);
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot append to inventory journal " + path, ex);
+        }
+    }
+
+    /**
+     * Read the journal back into, per sweet, its last mark and the net units sold since.
+     *
+     * @return the journal tail by sweet ID
+     */
+    synchronized Map<Long, Tail> replay() {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(path, StandardCharsets.US_ASCII);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read inventory journal " + path, ex);
+        }
+        Map<Long, Tail> tails = new HashMap<>();
+        for (String line : lines) {
+            String[] parts = line.split(" ");
+            if (parts.length != 3 || parts[0].length() != 1) {
+                continue;
+            }
+            try {
+                long sweetId = Long.parseLong(parts[1]);
+                long quantity = Long.parseLong(parts[2]);
+                Tail tail = tails.computeIfAbsent(sweetId, id -> new Tail());
+                switch (parts[0].charAt(0)) {
+                    case SOLD -> tail.units += quantity;
+                    case RETURNED, FLUSHED -> tail.units -= quantity;
+                    case MARK -> {
+                        tail.mark = quantity;
+                        tail.marked = true;
+                        tail.units = 0;
+                    }
+                    default -> {
+                        // Unknown kind; skip it.
+                    }
+                }
+            } catch (NumberFormatException ex) {
+                // Torn write at the tail; the record was never acknowledged.
+            }
+        }
+        return tails;
+    }
+
+    /**
+     * Empty the journal if nothing in it is still outstanding, then mark the sweets still open.
+     * Both happen while appends are blocked, so no sale lands between the two.
+     *
+     * @param idle checked while appends are blocked
+     * @param marks the current offset of every open sweet, read while appends are blocked
+     * @return true if the journal was truncated
+     */
+    synchronized boolean compact(BooleanSupplier idle, Supplier<Map<Long, Long>> marks) {
+        if (!idle.getAsBoolean()) {
+            return false;
+        }
+        try {
+            channel.truncate(0);
+            if (sync) {
+                channel.force(true);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot truncate inventory journal " + path, ex);
+        }
+        marks.get().forEach((sweetId, offset) -> append(MARK, sweetId, offset));
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * What the journal holds for one sweet.
+     */
+    static final class Tail {
+        /** The sweet's offset at its last mark; meaningless unless {@link #marked}. */
+        long mark;
+        boolean marked;
+        /** Units sold less units given back since the last mark. */
+        long units;
+    }
+}
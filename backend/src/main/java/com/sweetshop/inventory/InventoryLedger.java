@@ -0,0 +1,646 @@
+package com.sweetshop.inventory;
+
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.entity.LedgerOffset;
+import com.sweetshop.repository.LedgerOffsetRepository;
+import com.sweetshop.repository.SweetRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * In-memory inventory for sweets switched to {@link InventoryMode#LEDGER}.
+ *
+ * <p>Each ledger sweet has its own account whose available quantity is authoritative:
+ * a purchase is a compare-and-set on that counter and never touches the database.
+ * Accounts live in a concurrent map, so purchases of different sweets never contend.
+ * Accepted sales are journaled locally, accumulated per sweet, and written behind to the
+ * sweets table in one UPDATE per sweet every flush interval, or sooner once a sweet has
+ * the threshold number of units pending. Each write also advances the sweet's offset in the
+ * same transaction, which is how recovery tells journaled sales the table already holds
+ * from those it never received.</p>
+ *
+ * <p>Switching a sweet is an admin operation meant to happen before its traffic peaks:
+ * plain purchases that are already running when a sweet is switched to the ledger are not
+ * seen by it. Switching back, and admin edits of a ledger sweet, first wait for in-flight
+ * ledger purchases and flush them, so the row is authoritative again.</p>
+ */
+@Slf4j
+@Component
+public class InventoryLedger implements MeterBinder {
+
+    private final SweetRepository sweetRepository;
+    private final LedgerOffsetRepository ledgerOffsetRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryJournal journal;
+    private final Set<Long> initialSweetIds;
+    private final long flushIntervalMillis;
+    private final long flushThreshold;
+    private final ScheduledExecutorService flusher;
+
+    private final ConcurrentHashMap<Long, Account> accounts = new ConcurrentHashMap<>();
+    /** Serializes switching sweets in and out of the ledger. */
+    private final Object modeLock = new Object();
+    /** Serializes flushes, compaction and opening accounts, so marks and offsets stay in step. */
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedUnits = new AtomicLong();
+    /** Striped, so purchases of different sweets do not contend on one counter. */
+    private final LongAdder sales = new LongAdder();
+
+    @Autowired
+    public InventoryLedger(SweetRepository sweetRepository,
+                           LedgerOffsetRepository ledgerOffsetRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${sweetshop.inventory.ledger.sweet-ids:}") Set<Long> sweetIds,
+                           @Value("${sweetshop.inventory.ledger.flush-interval:100ms}") Duration flushInterval,
+                           @Value("${sweetshop.inventory.ledger.flush-threshold:500}") int flushThreshold,
+                           @Value("${sweetshop.inventory.ledger.journal:data/inventory-ledger.journal}") String journal,
+                           @Value("${sweetshop.inventory.ledger.journal-sync:false}") boolean journalSync) {
+        this(sweetRepository, ledgerOffsetRepository, eventPublisher, transactionManager,
+                new InventoryJournal(Path.of(journal), journalSync), sweetIds, flushInterval, flushThreshold);
+    }
+
+    InventoryLedger(SweetRepository sweetRepository, LedgerOffsetRepository ledgerOffsetRepository,
+                    ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                    InventoryJournal journal, Set<Long> sweetIds, Duration flushInterval, int flushThreshold) {
+        if (flushThreshold < 1) {
+            throw new IllegalArgumentException("Ledger flush threshold must be at least 1");
+        }
+        this.sweetRepository = sweetRepository;
+        this.ledgerOffsetRepository = ledgerOffsetRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.journal = journal;
+        this.initialSweetIds = Set.copyOf(sweetIds);
+        this.flushIntervalMillis = flushInterval.toMillis();
+        this.flushThreshold = flushThreshold;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-ledger-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Replay the journal, switch the configured sweets to the ledger and start flushing.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        recover();
+        for (Long id : initialSweetIds) {
+            try {
+                enable(id);
+            } catch (ResourceNotFoundException ex) {
+                log.warn("Configured ledger sweet {} does not exist", id);
+            }
+        }
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Check whether purchases of a sweet are decided by the ledger.
+     *
+     * @param id the sweet ID
+     * @return true if the sweet is in ledger mode
+     */
+    public boolean isManaged(Long id) {
+        Account account = accounts.get(id);
+        return account != null && !account.closed;
+    }
+
+    /**
+     * Check whether purchases of any sweet are decided by the ledger.
+     *
+     * @return true if at least one sweet is in ledger mode
+     */
+    public boolean managesAny() {
+        return !accounts.isEmpty();
+    }
+
+    /**
+     * Get the live available quantity of a ledger sweet.
+     *
+     * @param id the sweet ID
+     * @return the available quantity, or empty if the sweet is not in ledger mode
+     */
+    public OptionalInt available(Long id) {
+        Account account = accounts.get(id);
+        if (account == null || account.closed) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of((int) account.available.get());
+    }
+
+    /**
+     * Get the number of purchases the ledger has accepted or given back so far.
+     * They reach the sweets table only at the next flush, so this is what shows that ledger stock moved.
+     *
+     * @return the purchase count
+     */
+    public long getSaleCount() {
+        return sales.sum();
+    }
+
+    /**
+     * Get when a ledger sweet last sold.
+     *
+     * @param id the sweet ID
+     * @return epoch millis, or 0 if the sweet is not in ledger mode or has not sold since it was
+     */
+    public long lastSaleAt(Long id) {
+        Account account = accounts.get(id);
+        return account == null ? 0 : account.lastSaleAt;
+    }
+
+    /**
+     * Get when any ledger sweet last sold.
+     *
+     * @return epoch millis, or 0 if none has
+     */
+    public long lastSaleAt() {
+        long latest = 0;
+        for (Account account : accounts.values()) {
+            latest = Math.max(latest, account.lastSaleAt);
+        }
+        return latest;
+    }
+
+    /**
+     * Take stock from a ledger sweet without touching the database.
+     *
+     * @param id the sweet ID
+     * @param quantity the quantity to purchase
+     * @return the remaining quantity, or empty if the sweet is not in ledger mode
+     * @throws IllegalArgumentException if quantity is insufficient
+     */
+    public OptionalInt purchase(Long id, int quantity) {
+        Account account = accounts.get(id);
+        if (account == null) {
+            return OptionalInt.empty();
+        }
+        if (!account.enter()) {
+            // The row is not authoritative until the closing flush lands.
+            account.awaitDrained();
+            return OptionalInt.empty();
+        }
+        try {
+            long remaining = account.take(quantity);
+            if (remaining < 0) {
+                throw new IllegalArgumentException("Insufficient quantity available");
+            }
+            long pending = account.pending.addAndGet(quantity);
+            try {
+                journal.append(InventoryJournal.SOLD, id, quantity);
+            } catch (RuntimeException ex) {
+                account.pending.addAndGet(-quantity);
+                account.available.addAndGet(quantity);
+                throw ex;
+            }
+            account.lastSaleAt = System.currentTimeMillis();
+            sales.increment();
+            if (pending >= flushThreshold) {
+                requestFlush();
+            }
+            return OptionalInt.of((int) remaining);
+        } finally {
+            account.exit();
+        }
+    }
+
+    /**
+     * Give back units a ledger purchase took, for an order that did not go through.
+     * If the sweet has left the ledger since, its closing flush wrote the sale to the row,
+     * so the units go back to the row instead.
+     *
+     * @param id the sweet ID
+     * @param quantity the quantity the purchase took
+     */
+    public void refund(Long id, int quantity) {
+        Account account = accounts.get(id);
+        if (account != null && refund(id, account, quantity)) {
+            return;
+        }
+        // Closing and reseeding happen under the mode lock, so the account seen here is settled.
+        synchronized (modeLock) {
+            Account current = accounts.get(id);
+            if (current == null || !refund(id, current, quantity)) {
+                write(id, -quantity);
+            }
+        }
+    }
+
+    /**
+     * Add committed restocked units to a ledger sweet; no-op for other sweets.
+     *
+     * @param id the sweet ID
+     * @param quantity the quantity added to the row
+     */
+    public void credit(Long id, int quantity) {
+        Account account = accounts.get(id);
+        if (account != null && !account.closed) {
+            account.available.addAndGet(quantity);
+        }
+    }
+
+    /**
+     * Switch a sweet to the ledger, seeding its account from the row.
+     *
+     * @param id the sweet ID
+     * @return the available quantity
+     * @throws ResourceNotFoundException if the sweet is not found
+     */
+    public int enable(Long id) {
+        synchronized (modeLock) {
+            Account existing = accounts.get(id);
+            if (existing != null) {
+                return (int) existing.available.get();
+            }
+            Sweet sweet = sweetRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Sweet not found with id: " + id));
+            long offset = ledgerOffsetRepository.findById(id)
+                    .orElseGet(() -> ledgerOffsetRepository.save(new LedgerOffset(id, 0L)))
+                    .getUnits();
+            open(id, null, new Account(sweet.getQuantity(), offset));
+            log.info("Sweet {} switched to ledger inventory with {} available", id, sweet.getQuantity());
+            return sweet.getQuantity();
+        }
+    }
+
+    /**
+     * Switch a sweet back to plain database inventory, flushing its pending sales first.
+     *
+     * @param id the sweet ID
+     */
+    public void disable(Long id) {
+        synchronized (modeLock) {
+            Account account = accounts.get(id);
+            if (account == null) {
+                return;
+            }
+            close(id, account);
+            accounts.remove(id, account);
+            log.info("Sweet {} switched back to database inventory", id);
+        }
+    }
+
+    /**
+     * Run a direct write to a sweet's row with its ledger account suspended.
+     * Pending sales are flushed first, purchases meanwhile take the database path,
+     * and the account is reseeded from the row afterwards.
+     *
+     * @param id the sweet ID
+     * @param write the write to run
+     * @return the write result
+     */
+    public <T> T whileSuspended(Long id, Supplier<T> write) {
+        if (!accounts.containsKey(id)) {
+            return write.get();
+        }
+        synchronized (modeLock) {
+            Account account = accounts.get(id);
+            if (account == null) {
+                return write.get();
+            }
+            close(id, account);
+            try {
+                return write.get();
+            } finally {
+                sweetRepository.findById(id).ifPresentOrElse(
+                        sweet -> open(id, account, new Account(sweet.getQuantity(), account.offset)),
+                        () -> accounts.remove(id, account));
+            }
+        }
+    }
+
+    /**
+     * Drop the account of a deleted sweet.
+     *
+     * @param event the change event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSweetChanged(SweetChangedEvent event) {
+        if (event.getType() == SweetChangedEvent.Type.DELETED) {
+            Account account = accounts.remove(event.getSweetId());
+            if (account != null) {
+                account.closed = true;
+                account.drained.countDown();
+            }
+        }
+    }
+
+    /**
+     * Write every pending sale to the sweets table, then compact the journal if nothing is pending.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            accounts.forEach(this::flush);
+            journal.compact(() -> accounts.values().stream().allMatch(account -> account.pending.get() == 0),
+                    this::offsets);
+        }
+    }
+
+    /**
+     * Apply sales that the journal holds but the table never received, then empty the journal.
+     * A sweet's offset moving past its last mark means a flush committed after the mark, so
+     * those units are already in the row. Recovered units advance the offset too, so a crash
+     * during recovery does not apply them twice either.
+     */
+    void recover() {
+        synchronized (flushLock) {
+            int recovered = 0;
+            for (Map.Entry<Long, InventoryJournal.Tail> entry : journal.replay().entrySet()) {
+                Long id = entry.getKey();
+                InventoryJournal.Tail tail = entry.getValue();
+                long written = tail.marked
+                        ? ledgerOffsetRepository.findById(id).map(LedgerOffset::getUnits).orElse(tail.mark) - tail.mark
+                        : 0;
+                long outstanding = tail.units - written;
+                if (outstanding != 0) {
+                    writeBehind(id, Math.toIntExact(outstanding));
+                    recovered++;
+                }
+            }
+            if (recovered > 0) {
+                log.info("Recovered unflushed ledger sales for {} sweets from the journal", recovered);
+            }
+            journal.compact(() -> true, Map::of);
+        }
+    }
+
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    public long pendingUnits() {
+        return accounts.values().stream().mapToLong(account -> account.pending.get()).sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("inventory.ledger.sweets", accounts, Map::size)
+                .description("Sweets whose purchases are decided in memory")
+                .register(registry);
+        Gauge.builder("inventory.ledger.pending", this, InventoryLedger::pendingUnits)
+                .description("Units sold in memory and not yet written to the database")
+                .register(registry);
+        FunctionCounter.builder("inventory.ledger.flushes", flushes, AtomicLong::get)
+                .description("Write-behind UPDATEs issued for ledger sweets")
+                .register(registry);
+        FunctionCounter.builder("inventory.ledger.flushed.units", flushedUnits, AtomicLong::get)
+                .description("Units written behind to the database")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        flushQuietly();
+        try {
+            journal.close();
+        } catch (IOException ex) {
+            log.warn("Failed to close inventory journal", ex);
+        }
+    }
+
+    /**
+     * Close an account: stop new ledger purchases, wait out in-flight ones, flush the rest.
+     * Purchases arriving meanwhile wait for the flush, then take the database path.
+     */
+    private void close(Long id, Account account) {
+        account.closed = true;
+        while (account.inFlight.get() > 0) {
+            Thread.onSpinWait();
+        }
+        try {
+            synchronized (flushLock) {
+                flush(id, account);
+            }
+        } finally {
+            account.drained.countDown();
+        }
+    }
+
+    /**
+     * Make an account visible, marking the offset it starts from before any sale can be journaled.
+     * Under the flush lock, so a compaction never truncates the mark without writing it again.
+     */
+    private void open(Long id, Account previous, Account account) {
+        synchronized (flushLock) {
+            journal.append(InventoryJournal.MARK, id, account.offset);
+            if (previous == null) {
+                accounts.put(id, account);
+            } else {
+                accounts.replace(id, previous, account);
+            }
+        }
+    }
+
+    /**
+     * The current offset of every account; called under the flush lock.
+     */
+    private Map<Long, Long> offsets() {
+        Map<Long, Long> offsets = new HashMap<>();
+        accounts.forEach((id, account) -> offsets.put(id, account.offset));
+        return offsets;
+    }
+
+    private void flush(Long id, Account account) {
+        long units = account.pending.getAndSet(0);
+        if (units == 0) {
+            return;
+        }
+        try {
+            writeBehind(id, Math.toIntExact(units));
+        } catch (RuntimeException ex) {
+            account.pending.addAndGet(units);
+            throw ex;
+        }
+        account.offset += units;
+        flushes.incrementAndGet();
+        flushedUnits.addAndGet(units);
+    }
+
+    private boolean refund(Long id, Account account, int quantity) {
+        if (!account.enter()) {
+            return false;
+        }
+        try {
+            // Pending may go negative; the next flush then adds the units back to the row.
+            // Lowered before journaling, so a compaction in between does not see the account idle.
+            account.pending.addAndGet(-quantity);
+            try {
+                journal.append(InventoryJournal.RETURNED, id, quantity);
+            } catch (RuntimeException ex) {
+                account.pending.addAndGet(quantity);
+                throw ex;
+            }
+            account.available.addAndGet(quantity);
+            account.lastSaleAt = System.currentTimeMillis();
+            sales.increment();
+            return true;
+        } finally {
+            account.exit();
+        }
+    }
+
+    /**
+     * Write journaled sales to the row and advance its offset in one transaction.
+     */
+    private void writeBehind(Long id, int units) {
+        Boolean applied = transactionTemplate.execute(status -> {
+            if (sweetRepository.applySales(id, units, System.currentTimeMillis()) == 0) {
+                return false;
+            }
+            if (ledgerOffsetRepository.advance(id, units) == 0) {
+                ledgerOffsetRepository.save(new LedgerOffset(id, (long) units));
+            }
+            return true;
+        });
+        if (Boolean.TRUE.equals(applied)) {
+            publishUpdated(id);
+        } else {
+            log.warn("Dropping {} net ledger sales for missing sweet {}", units, id);
+        }
+    }
+
+    /**
+     * Write units given back after the sweet left the ledger. No journal record covers them,
+     * so the offset stays where it is.
+     */
+    private void write(Long id, int units) {
+        if (sweetRepository.applySales(id, units, System.currentTimeMillis()) == 0) {
+            log.warn("Dropping {} net ledger sales for missing sweet {}", units, id);
+            return;
+        }
+        publishUpdated(id);
+    }
+
+    /**
+     * Bulk updates bypass the entity listener, so publish the written state here.
+     */
+    private void publishUpdated(Long id) {
+        sweetRepository.findById(id).ifPresent(sweet -> eventPublisher.publishEvent(
+                new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet.toBuilder().build())));
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushRequested.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException ex) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Inventory ledger flush failed; pending sales will be retried", ex);
+        }
+    }
+
+    /**
+     * One ledger sweet: the authoritative available quantity and the sales not yet written behind.
+     */
+    private static final class Account {
+        private final AtomicLong available;
+        private final AtomicLong pending = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final CountDownLatch drained = new CountDownLatch(1);
+        private volatile boolean closed;
+        private volatile long lastSaleAt;
+        /** Mirror of the sweet's offset row; only touched under the flush lock. */
+        private long offset;
+
+        private Account(int available, long offset) {
+            this.available = new AtomicLong(available);
+            this.offset = offset;
+        }
+
+        /**
+         * Announce a purchase; the closed flag is read after the increment,
+         * so a closing account either waits for us or we see it closed.
+         */
+        private boolean enter() {
+            inFlight.incrementAndGet();
+            if (closed) {
+                inFlight.decrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        private void exit() {
+            inFlight.decrementAndGet();
+        }
+
+        private void awaitDrained() {
+            try {
+                drained.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Compare-and-set decrement that never goes below zero.
+         *
+         * @return the remaining quantity, or -1 if there was not enough
+         */
+        private long take(int quantity) {
+            while (true) {
+                long current = available.get();
+                if (current < quantity) {
+                    return -1;
+                }
+                if (available.compareAndSet(current, current - quantity)) {
+                    return current - quantity;
+                }
+            }
+        }
+    }
+}
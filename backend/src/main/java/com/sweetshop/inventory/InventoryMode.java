@@ -0,0 +1,13 @@
+package com.sweetshop.inventory;
+
+/**
+ * Where a sweet's available quantity is decided.
+ */
+public enum InventoryMode {
+    /** Every purchase is a conditional UPDATE of the sweet's row. */
+    DATABASE,
+    /** Purchases are decided by in-memory counters and written behind to the row. */
+    LEDGER,
+    /** Stock is split across shard rows, so concurrent purchases lock different rows. */
+    SHARDED
+}
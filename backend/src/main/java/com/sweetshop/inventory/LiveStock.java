@@ -0,0 +1,101 @@
+package com.sweetshop.inventory;
+
+import com.sweetshop.entity.Sweet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * Overlays stock the sweets row does not hold on everything read from it.
+ *
+ * <p>Ledger sweets hold their available quantity in memory, with the row lagging by one
+ * flush; sharded sweets hold most of it in their shards on top of the row. Neither kind
+ * of purchase moves the row's update timestamp, so the sale count and times here also
+ * feed the HTTP validators.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class LiveStock {
+
+    private final InventoryLedger inventoryLedger;
+    private final ShardedStock shardedStock;
+
+    /**
+     * Get a sweet with its live available quantity.
+     *
+     * @param sweet the sweet as read from the row or a cache
+     * @return the same sweet if its row is authoritative, otherwise a copy
+     */
+    public Sweet apply(Sweet sweet) {
+        if (sweet.getQuantity() == null) {
+            // Sparse read without the quantity column.
+            return sweet;
+        }
+        OptionalInt ledger = inventoryLedger.available(sweet.getId());
+        if (ledger.isPresent()) {
+            return sweet.toBuilder().quantity(ledger.getAsInt()).build();
+        }
+        OptionalInt shards = shardedStock.available(sweet.getId());
+        if (shards.isPresent()) {
+            return sweet.toBuilder().quantity(sweet.getQuantity() + shards.getAsInt()).build();
+        }
+        return sweet;
+    }
+
+    /**
+     * Get sweets with their live available quantities.
+     *
+     * @param sweets the sweets as read from the table or a cache
+     * @return the same list if every row is authoritative, otherwise a copy
+     */
+    public List<Sweet> apply(List<Sweet> sweets) {
+        if (!inventoryLedger.managesAny() && !shardedStock.managesAny()) {
+            return sweets;
+        }
+        List<Sweet> live = null;
+        for (int i = 0; i < sweets.size(); i++) {
+            Sweet sweet = sweets.get(i);
+            Sweet current = apply(sweet);
+            if (live == null && current != sweet) {
+                live = new ArrayList<>(sweets.size());
+                live.addAll(sweets.subList(0, i));
+            }
+            if (live != null) {
+                live.add(current);
+            }
+        }
+        return live == null ? sweets : live;
+    }
+
+    /**
+     * Get the number of purchases taken outside the sweets row so far.
+     * Changes whenever a live quantity does.
+     *
+     * @return the purchase count
+     */
+    public long getSaleCount() {
+        return inventoryLedger.getSaleCount() + shardedStock.getSaleCount();
+    }
+
+    /**
+     * Get when live stock last moved for any sweet.
+     *
+     * @return epoch millis, or 0 if it never has
+     */
+    public long lastSaleAt() {
+        return Math.max(inventoryLedger.lastSaleAt(), shardedStock.lastSaleAt());
+    }
+
+    /**
+     * Get when a sweet's live stock last moved.
+     *
+     * @param id the sweet ID
+     * @return epoch millis, or 0 if it never has
+     */
+    public long lastSaleAt(Long id) {
+        return Math.max(inventoryLedger.lastSaleAt(id), shardedStock.lastSaleAt(id));
+    }
+}
@@ -0,0 +1,282 @@
+package com.sweetshop.inventory;
+
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.repository.SweetRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Group commit for purchases of the same sweet.
+ *
+ * <p>The first purchase of a sweet to arrive opens a batch and becomes its leader; purchases
+ * of that sweet arriving within the batching window join it. When the window closes, or the
+ * batch is full, the leader applies the whole batch in one transaction: it locks the row once,
+ * accepts purchases in arrival order while stock lasts, and writes the accepted total in one
+ * UPDATE. Each caller then gets its own result, so a purchase that no longer fits once stock
+ * runs out mid-batch is rejected on its own. Purchases arriving while a batch commits start
+ * the next one.</p>
+ *
+ * <p>Accepted purchases are answered from the row the leader locked, so an answer never
+ * depends on a second read after commit. Every caller's future is completed however the
+ * batch ends, errors included, so no caller is left waiting on a leader that gave up.</p>
+ */
+@Component
+public class PurchaseBatcher implements MeterBinder {
+
+    private final SweetRepository sweetRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    private final ConcurrentHashMap<Long, Batch> open = new ConcurrentHashMap<>();
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong purchases = new AtomicLong();
+
+    @Autowired
+    public PurchaseBatcher(SweetRepository sweetRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${sweetshop.inventory.batching.enabled:false}") boolean enabled,
+                           @Value("${sweetshop.inventory.batching.window:2ms}") Duration window,
+                           @Value("${sweetshop.inventory.batching.max-size:256}") int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Purchase batch size must be at least 1");
+        }
+        this.sweetRepository = sweetRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Purchase as part of the current batch for the sweet, waiting for the batch to commit.
+     *
+     * @param id the sweet ID
+     * @param quantity the quantity to purchase
+     * @return the sweet as of this purchase
+     * @throws ResourceNotFoundException if sweet is not found
+     * @throws IllegalArgumentException if quantity is insufficient
+     */
+    public Sweet purchase(Long id, int quantity) {
+        Request request = new Request(quantity);
+        while (true) {
+            Batch batch = open.computeIfAbsent(id, key -> new Batch());
+            int position = batch.add(request);
+            if (position < 0) {
+                // Closed between lookup and add; the leader has already removed it.
+                continue;
+            }
+            if (position == 0) {
+                lead(id, batch);
+            } else if (position + 1 >= maxBatchSize) {
+                open.remove(id, batch);
+                batch.wakeLeader();
+            }
+            return await(request);
+        }
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getPurchaseCount() {
+        return purchases.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("inventory.purchase.batches", batches, AtomicLong::get)
+                .description("Purchase batches committed in one transaction")
+                .register(registry);
+        FunctionCounter.builder("inventory.purchase.batched", purchases, AtomicLong::get)
+                .description("Purchases applied through a batch")
+                .register(registry);
+    }
+
+    private void lead(Long id, Batch batch) {
+        List<Request> requests;
+        try {
+            long deadline = System.nanoTime() + windowNanos;
+            while (!batch.isFull(maxBatchSize)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            // Closed however the wait ends, so no purchase joins a batch nobody will apply.
+            open.remove(id, batch);
+            requests = batch.close();
+        }
+
+        batches.incrementAndGet();
+        purchases.addAndGet(requests.size());
+        Throwable failure = null;
+        try {
+            Sweet written = transactionTemplate.execute(status -> apply(id, requests));
+            if (written == null) {
+                failure = new ResourceNotFoundException("Sweet not found with id: " + id);
+            } else {
+                complete(written, requests);
+            }
+        } catch (Throwable ex) {
+            // Errors too: the leader rethrows its own through await(), like every follower.
+            failure = ex;
+        } finally {
+            for (Request request : requests) {
+                // No-op for callers already answered.
+                request.result.completeExceptionally(failure != null ? failure
+                        : new IllegalStateException("Purchase batch ended without a result"));
+            }
+        }
+    }
+
+    /**
+     * Lock the row, accept purchases in arrival order while stock lasts, write the total once.
+     *
+     * @return the row as written, or null if the sweet does not exist
+     */
+    private Sweet apply(Long id, List<Request> requests) {
+        Sweet sweet = sweetRepository.findByIdForUpdate(id).orElse(null);
+        if (sweet == null) {
+            return null;
+        }
+        int available = sweet.getQuantity();
+        int accepted = 0;
+        for (Request request : requests) {
+            if (request.quantity <= available - accepted) {
+                accepted += request.quantity;
+                request.remaining = available - accepted;
+            }
+        }
+        if (accepted == 0) {
+            return sweet.toBuilder().build();
+        }
+        // The row is locked, so the already-checked total can be written unconditionally.
+        long now = System.currentTimeMillis();
+        sweetRepository.applySales(id, accepted, now);
+        long sold = sweet.getSoldCount() == null ? 0 : sweet.getSoldCount();
+        // Mirror what applySales wrote, so callers are answered without reading the row again.
+        return sweet.toBuilder()
+                .quantity(available - accepted)
+                .soldCount(sold + accepted)
+                .updatedAt(now)
+                .version(sweet.getVersion() + 1)
+                .build();
+    }
+
+    /**
+     * Runs after commit: publish the change once, then answer every caller.
+     */
+    private void complete(Sweet written, List<Request> requests) {
+        if (requests.stream().anyMatch(Request::isAccepted)) {
+            // Bulk updates bypass the entity listener, so publish the written state here.
+            eventPublisher.publishEvent(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED,
+                    written.toBuilder().build()));
+        }
+        for (Request request : requests) {
+            if (!request.isAccepted()) {
+                request.result.completeExceptionally(new IllegalArgumentException("Insufficient quantity available"));
+            } else {
+                request.result.complete(written.toBuilder().quantity(request.remaining).build());
+            }
+        }
+    }
+
+    private static Sweet await(Request request) {
+        try {
+            return request.result.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Purchases of one sweet collected during one window.
+     */
+    private static final class Batch {
+        private final List<Request> requests = new ArrayList<>();
+        private Thread leader;
+        private boolean closed;
+
+        /**
+         * @return the request's position in the batch, or -1 if the batch is already closed
+         */
+        private synchronized int add(Request request) {
+            if (closed) {
+                return -1;
+            }
+            if (requests.isEmpty()) {
+                leader = Thread.currentThread();
+            }
+            requests.add(request);
+            return requests.size() - 1;
+        }
+
+        private synchronized boolean isFull(int maxSize) {
+            return requests.size() >= maxSize;
+        }
+
+        private synchronized void wakeLeader() {
+            LockSupport.unpark(leader);
+        }
+
+        private synchronized List<Request> close() {
+            closed = true;
+            return requests;
+        }
+    }
+
+    /**
+     * One caller's purchase and the future its result is delivered through.
+     */
+    private static final class Request {
+        private final int quantity;
+        private final CompletableFuture<Sweet> result = new CompletableFuture<>();
+        private int remaining = -1;
+
+        private Request(int quantity) {
+            this.quantity = quantity;
+        }
+
+        private boolean isAccepted() {
+            return remaining >= 0;
+        }
+    }
+}
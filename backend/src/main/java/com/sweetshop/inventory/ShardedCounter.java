@@ -0,0 +1,135 @@
+package com.sweetshop.inventory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A quantity split across independently updated sub-counters.
+ *
+ * <p>Each thread starts at its own home shard, so concurrent takes mostly hit different
+ * counters; shards are spaced a cache line pair apart so neighbouring counters never share
+ * a line. A take only fails when no single shard holds enough on its own, which is the
+ * caller's cue to rebalance.</p>
+ */
+public final class ShardedCounter {
+
+    /** 16 longs = 128 bytes: one cache line plus the adjacent line the prefetcher pulls in. */
+    private static final int STRIDE = 16;
+
+    private final AtomicLongArray counts;
+    private final int size;
+
+    /**
+     * Create a counter with the given initial shard values.
+     *
+     * @param initial one value per shard
+     */
+    public ShardedCounter(long[] initial) {
+        if (initial.length < 1) {
+            throw new IllegalArgumentException("A sharded counter needs at least one shard");
+        }
+        this.size = initial.length;
+        this.counts = new AtomicLongArray(size * STRIDE);
+        for (int shard = 0; shard < size; shard++) {
+            counts.set(shard * STRIDE, initial[shard]);
+        }
+    }
+
+    /**
+     * Split a total as evenly as possible across shards.
+     *
+     * @param total the quantity to split
+     * @param shards the number of shards
+     * @return one value per shard, summing to the total
+     */
+    public static long[] split(long total, int shards) {
+        long[] values = new long[shards];
+        for (int shard = 0; shard < shards; shard++) {
+            values[shard] = total / shards + (shard < total % shards ? 1 : 0);
+        }
+        return values;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Take from the first shard, starting at the calling thread's home shard, that holds enough.
+     *
+     * @param quantity the quantity to take
+     * @return the shard taken from, or -1 if no single shard holds enough
+     */
+    public int take(long quantity) {
+        int home = home();
+        for (int i = 0; i < size; i++) {
+            int shard = (home + i) % size;
+            if (tryTake(shard, quantity)) {
+                return shard;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compare-and-set decrement of one shard that never goes below zero.
+     *
+     * @param shard the shard
+     * @param quantity the quantity to take
+     * @return true if taken
+     */
+    public boolean tryTake(int shard, long quantity) {
+        int index = shard * STRIDE;
+        while (true) {
+            long current = counts.get(index);
+            if (current < quantity) {
+                return false;
+            }
+            if (counts.compareAndSet(index, current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    public long get(int shard) {
+        return counts.get(shard * STRIDE);
+    }
+
+    public void set(int shard, long value) {
+        counts.set(shard * STRIDE, value);
+    }
+
+    /**
+     * Set one shard only if it still holds the expected value.
+     *
+     * @param shard the shard
+     * @param expected the value the shard must hold
+     * @param value the new value
+     * @return true if set
+     */
+    public boolean compareAndSet(int shard, long expected, long value) {
+        return counts.compareAndSet(shard * STRIDE, expected, value);
+    }
+
+    public void add(int shard, long delta) {
+        counts.addAndGet(shard * STRIDE, delta);
+    }
+
+    /**
+     * Sum all shards. Not atomic across shards; exact only when the counter is quiescent.
+     *
+     * @return the total quantity
+     */
+    public long sum() {
+        long sum = 0;
+        for (int shard = 0; shard < size; shard++) {
+            sum += counts.get(shard * STRIDE);
+        }
+        return sum;
+    }
+
+    private int home() {
+        long id = Thread.currentThread().getId();
+        // Spread sequential thread IDs across shards.
+        return (int) Math.floorMod(id * 0x9E3779B97F4A7C15L >>> 32, (long) size);
+    }
+}
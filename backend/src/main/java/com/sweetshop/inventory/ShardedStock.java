@@ -0,0 +1,574 @@
+package com.sweetshop.inventory;
+
+import com.sweetshop.entity.StockShard;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.repository.StockShardRepository;
+import com.sweetshop.repository.SweetRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Stock of sweets switched to {@link InventoryMode#SHARDED}, split across N shard rows.
+ *
+ * <p>The shard rows are authoritative; a {@link ShardedCounter} per sweet mirrors them so a
+ * purchase can pick a shard with enough stock without asking the database. A purchase is
+ * then one conditional UPDATE of that shard's row, so concurrent buyers of the same sweet
+ * lock different rows. Only when no single shard holds enough does a purchase take the
+ * sweet-wide path: lock the sweet and all its shards, pool their stock and spread what is
+ * left evenly again.</p>
+ *
+ * <p>A sharded sweet's total stock is its row's quantity plus its shards. Switching a sweet
+ * to shards moves the row's quantity into them; restocks land on the row and are pooled
+ * into the shards at the next rebalance. Because the row then holds only unpooled stock,
+ * a purchase that raced the switch onto the plain path cannot sell units the shards hold.
+ * Reads report the total through {@link LiveStock}.</p>
+ *
+ * <p>The shard rows also decide which sweets are sharded, so every instance agrees. Each
+ * instance resyncs its mirrors from the rows every refresh interval, picking up sweets
+ * that another instance switched and sales that another instance took. A purchase that
+ * this instance sent down the plain path and that found the row short checks the shard
+ * rows at once, so it does not have to wait for the next refresh.</p>
+ */
+@Slf4j
+@Component
+public class ShardedStock implements MeterBinder {
+
+    private final SweetRepository sweetRepository;
+    private final StockShardRepository stockShardRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int shardCount;
+    private final long refreshIntervalMillis;
+    private final ScheduledExecutorService refresher;
+
+    private final ConcurrentHashMap<Long, Stock> stocks = new ConcurrentHashMap<>();
+    /** Serializes switching sweets in and out of shards. */
+    private final Object modeLock = new Object();
+
+    private final AtomicLong shardTakes = new AtomicLong();
+    private final AtomicLong rebalances = new AtomicLong();
+    private final AtomicLong returns = new AtomicLong();
+    /** Resyncs that found the rows moved, by another instance's purchases or mode switches. */
+    private final AtomicLong resyncs = new AtomicLong();
+
+    @Autowired
+    public ShardedStock(SweetRepository sweetRepository,
+                        StockShardRepository stockShardRepository,
+                        ApplicationEventPublisher eventPublisher,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${sweetshop.inventory.shards.count:8}") int shardCount,
+                        @Value("${sweetshop.inventory.shards.refresh-interval:1s}") Duration refreshInterval) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1");
+        }
+        this.sweetRepository = sweetRepository;
+        this.stockShardRepository = stockShardRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardCount = shardCount;
+        this.refreshIntervalMillis = Math.max(1, refreshInterval.toMillis());
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sharded-stock-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Mirror the shard rows left by the previous run, so sharded sweets stay sharded,
+     * and start resyncing the mirrors from the rows.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresh();
+        if (!stocks.isEmpty()) {
+            log.info("Loaded sharded stock for {} sweets", stocks.size());
+        }
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMillis, refreshIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Resync membership and every mirror from the shard rows.
+     * Sweets with rows become sharded here; sweets whose rows are gone stop being sharded.
+     */
+    public void refresh() {
+        List<Long> switched = new ArrayList<>();
+        // Read under the mode lock, so a switch in progress on this instance is not undone.
+        synchronized (modeLock) {
+            // A take in flight may show in the mirror but not yet in the rows, so only
+            // sweets with no take running across the read are resynced this time.
+            Map<Long, Long> quiet = new HashMap<>();
+            stocks.forEach((id, stock) -> {
+                long started = stock.takesStarted.get();
+                if (started == stock.takesFinished.get()) {
+                    quiet.put(id, started);
+                }
+            });
+            Map<Long, List<StockShard>> bySweet = new TreeMap<>();
+            for (StockShard shard : stockShardRepository.findAll()) {
+                bySweet.computeIfAbsent(shard.getSweetId(), id -> new ArrayList<>()).add(shard);
+            }
+
+            boolean moved = false;
+            for (Long id : List.copyOf(stocks.keySet())) {
+                if (!bySweet.containsKey(id)) {
+                    stocks.remove(id);
+                    switched.add(id);
+                }
+            }
+            for (Map.Entry<Long, List<StockShard>> entry : bySweet.entrySet()) {
+                Stock stock = stocks.get(entry.getKey());
+                if (stock == null) {
+                    stocks.put(entry.getKey(), new Stock(mirror(entry.getValue())));
+                    switched.add(entry.getKey());
+                } else if (quiet.containsKey(entry.getKey())) {
+                    moved |= resync(stock, entry.getValue(), quiet.get(entry.getKey()));
+                }
+            }
+            if (moved || !switched.isEmpty()) {
+                resyncs.incrementAndGet();
+            }
+        }
+        // Another instance rewrote these rows with a bulk update; reload them.
+        switched.forEach(this::publishUpdated);
+    }
+
+    /**
+     * Check the shard rows of a sweet this instance does not know as sharded,
+     * for instance one that another instance switched since the last refresh.
+     *
+     * @param id the sweet ID
+     * @return true if the sweet turned out to be sharded and is now mirrored
+     */
+    public boolean discover(Long id) {
+        if (stocks.containsKey(id)) {
+            return false;
+        }
+        List<StockShard> shards = stockShardRepository.findBySweetIdOrderByShardAsc(id);
+        if (shards.isEmpty()) {
+            return false;
+        }
+        synchronized (modeLock) {
+            if (stocks.putIfAbsent(id, new Stock(mirror(shards))) != null) {
+                return false;
+            }
+        }
+        resyncs.incrementAndGet();
+        log.info("Sweet {} found sharded by another instance", id);
+        publishUpdated(id);
+        return true;
+    }
+
+    /**
+     * Check whether a sweet's stock is sharded.
+     *
+     * @param id the sweet ID
+     * @return true if the sweet is in sharded mode
+     */
+    public boolean isManaged(Long id) {
+        return stocks.containsKey(id);
+    }
+
+    /**
+     * Get the stock held in a sweet's shards, excluding its row's own quantity.
+     *
+     * @param id the sweet ID
+     * @return the summed shard quantity, or empty if the sweet is not sharded
+     */
+    public OptionalInt available(Long id) {
+        Stock stock = stocks.get(id);
+        return stock == null ? OptionalInt.empty() : OptionalInt.of((int) stock.counter.sum());
+    }
+
+    /**
+     * Check whether any sweet's stock is sharded.
+     *
+     * @return true if at least one sweet is in sharded mode
+     */
+    public boolean managesAny() {
+        return !stocks.isEmpty();
+    }
+
+    /**
+     * Get the number of times sharded stock moved so far: purchases served from or given back
+     * to it here, and resyncs that found another instance had moved it.
+     * Shard purchases leave the sweet's row untouched, so this is what shows that sharded stock moved.
+     *
+     * @return the purchase count
+     */
+    public long getSaleCount() {
+        return shardTakes.get() + rebalances.get() + returns.get() + resyncs.get();
+    }
+
+    /**
+     * Get when a sweet last sold from its shards.
+     *
+     * @param id the sweet ID
+     * @return epoch millis, or 0 if the sweet is not sharded or has not sold since it was
+     */
+    public long lastSaleAt(Long id) {
+        Stock stock = stocks.get(id);
+        return stock == null ? 0 : stock.lastSaleAt;
+    }
+
+    /**
+     * Get when any sharded sweet last sold from its shards.
+     *
+     * @return epoch millis, or 0 if none has
+     */
+    public long lastSaleAt() {
+        long latest = 0;
+        for (Stock stock : stocks.values()) {
+            latest = Math.max(latest, stock.lastSaleAt);
+        }
+        return latest;
+    }
+
+    /**
+     * Take stock from one of a sweet's shards, pooling the shards first if none holds enough.
+     *
+     * @param id the sweet ID
+     * @param quantity the quantity to purchase
+     * @return true if purchased, false if the sweet is not sharded
+     * @throws IllegalArgumentException if quantity is insufficient
+     */
+    public boolean purchase(Long id, int quantity) {
+        Stock stock = stocks.get(id);
+        if (stock == null) {
+            return false;
+        }
+        stock.takesStarted.incrementAndGet();
+        try {
+            if (takeFromShard(id, stock, quantity)) {
+                return true;
+            }
+            // Shards ran dry: one rebalance at a time per sweet; whoever waited retries the shards first.
+            stock.rebalanceLock.lock();
+            try {
+                return takeFromShard(id, stock, quantity) || rebalanceAndTake(id, stock, quantity);
+            } finally {
+                stock.rebalanceLock.unlock();
+            }
+        } finally {
+            stock.takesFinished.incrementAndGet();
+        }
+    }
+
+    /**
+     * Give back units a sharded purchase took, for an order that did not go through.
+     * They land on the sweet's row, which counts towards its total whether it is still
+     * sharded or was folded meanwhile, and are pooled into the shards at the next rebalance.
+     *
+     * @param id the sweet ID
+     * @param quantity the quantity the purchase took
+     */
+    public void giveBack(Long id, int quantity) {
+        if (sweetRepository.applySales(id, -quantity, System.currentTimeMillis()) == 0) {
+            log.warn("Dropping {} returned units for missing sweet {}", quantity, id);
+            return;
+        }
+        Stock stock = stocks.get(id);
+        if (stock != null) {
+            stock.lastSaleAt = System.currentTimeMillis();
+        }
+        returns.incrementAndGet();
+        publishUpdated(id);
+    }
+
+    /**
+     * Switch a sweet to sharded stock, moving its row's quantity into the shards.
+     *
+     * @param id the sweet ID
+     * @throws ResourceNotFoundException if the sweet is not found
+     */
+    public void enable(Long id) {
+        synchronized (modeLock) {
+            if (stocks.containsKey(id)) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Sweet sweet = sweetRepository.findByIdForUpdate(id)
+                            .orElseThrow(() -> new ResourceNotFoundException("Sweet not found with id: " + id));
+                    List<StockShard> existing = stockShardRepository.lockBySweetId(id);
+                    if (!existing.isEmpty()) {
+                        // Another instance switched it already; its rows hold the stock.
+                        stocks.put(id, new Stock(mirror(existing)));
+                        return;
+                    }
+                    long[] split = ShardedCounter.split(sweet.getQuantity(), shardCount);
+                    List<StockShard> shards = new ArrayList<>(shardCount);
+                    for (int shard = 0; shard < shardCount; shard++) {
+                        shards.add(new StockShard(id, shard, (int) split[shard], 0L));
+                    }
+                    stockShardRepository.saveAll(shards);
+                    sweetRepository.syncStock(id, 0, 0, System.currentTimeMillis());
+                    // Registered before commit: purchases that arrive now block on the row lock we hold.
+                    stocks.put(id, new Stock(new ShardedCounter(split)));
+                });
+            } catch (RuntimeException ex) {
+                stocks.remove(id);
+                throw ex;
+            }
+            log.info("Sweet {} switched to sharded stock across {} shards", id, shardCount);
+            publishUpdated(id);
+        }
+    }
+
+    /**
+     * Switch a sweet back to plain stock, folding its shards into its row.
+     *
+     * @param id the sweet ID
+     */
+    public void disable(Long id) {
+        synchronized (modeLock) {
+            if (stocks.remove(id) == null && !stockShardRepository.existsBySweetId(id)) {
+                return;
+            }
+            fold(id);
+            log.info("Sweet {} switched back from sharded stock", id);
+        }
+    }
+
+    /**
+     * Run a direct write to a sweet's row with its shards folded into it, re-sharding afterwards.
+     *
+     * @param id the sweet ID
+     * @param write the write to run
+     * @return the write result
+     */
+    public <T> T whileSuspended(Long id, Supplier<T> write) {
+        if (!stocks.containsKey(id) && !discover(id)) {
+            return write.get();
+        }
+        synchronized (modeLock) {
+            if (stocks.remove(id) == null) {
+                return write.get();
+            }
+            fold(id);
+            try {
+                return write.get();
+            } finally {
+                if (sweetRepository.existsById(id)) {
+                    enable(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the shards of a deleted sweet.
+     *
+     * @param event the change event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSweetChanged(SweetChangedEvent event) {
+        if (event.getType() == SweetChangedEvent.Type.DELETED && stocks.remove(event.getSweetId()) != null) {
+            stockShardRepository.deleteBySweetId(event.getSweetId());
+        }
+    }
+
+    public long getRebalanceCount() {
+        return rebalances.get();
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            log.warn("Sharded stock refresh failed; mirrors are resynced on the next run", ex);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("inventory.shards.sweets", stocks, Map::size)
+                .description("Sweets whose stock is split across shard rows")
+                .register(registry);
+        FunctionCounter.builder("inventory.shards.takes", shardTakes, AtomicLong::get)
+                .description("Purchases served by a single shard row")
+                .register(registry);
+        FunctionCounter.builder("inventory.shards.rebalances", rebalances, AtomicLong::get)
+                .description("Purchases that had to lock and pool all of a sweet's shards")
+                .register(registry);
+    }
+
+    private boolean takeFromShard(Long id, Stock stock, int quantity) {
+        for (int attempt = 0; attempt < stock.counter.size(); attempt++) {
+            int shard = stock.counter.take(quantity);
+            if (shard < 0) {
+                return false;
+            }
+            if (stockShardRepository.take(id, shard, quantity) == 1) {
+                stock.lastSaleAt = System.currentTimeMillis();
+                shardTakes.incrementAndGet();
+                return true;
+            }
+            // The mirror was ahead of the row (a rebalance or fold moved stock); resync and look again.
+            stock.counter.set(shard, stockShardRepository.findById(new StockShard.Key(id, shard))
+                    .map(StockShard::getQuantity)
+                    .orElse(0));
+        }
+        return false;
+    }
+
+    /**
+     * Lock the sweet and its shards, pool all their stock, take the purchase and spread the rest.
+     */
+    private boolean rebalanceAndTake(Long id, Stock stock, int quantity) {
+        Boolean sharded = transactionTemplate.execute(status -> {
+            Sweet sweet = sweetRepository.findByIdForUpdate(id).orElse(null);
+            List<StockShard> shards = stockShardRepository.lockBySweetId(id);
+            if (sweet == null || shards.isEmpty()) {
+                // Folded or deleted meanwhile; the row is authoritative again.
+                return false;
+            }
+            long total = sweet.getQuantity();
+            long sold = 0;
+            for (StockShard shard : shards) {
+                total += shard.getQuantity();
+                sold += shard.getSoldCount();
+            }
+            if (total < quantity) {
+                mirrorInto(stock, shards);
+                throw new IllegalArgumentException("Insufficient quantity available");
+            }
+
+            long[] split = ShardedCounter.split(total - quantity, shards.size());
+            for (StockShard shard : shards) {
+                shard.setQuantity((int) split[shard.getShard()]);
+                shard.setSoldCount(0L);
+            }
+            long now = System.currentTimeMillis();
+            sweetRepository.syncStock(id, 0, sold + quantity, now);
+            mirrorInto(stock, shards);
+            stock.lastSaleAt = now;
+            return true;
+        });
+        if (!Boolean.TRUE.equals(sharded)) {
+            stocks.remove(id, stock);
+            return false;
+        }
+        rebalances.incrementAndGet();
+        publishUpdated(id);
+        return true;
+    }
+
+    /**
+     * Move all shard stock and sales back into the sweet's row and delete the shards.
+     */
+    private void fold(Long id) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Sweet sweet = sweetRepository.findByIdForUpdate(id).orElse(null);
+            List<StockShard> shards = stockShardRepository.lockBySweetId(id);
+            if (sweet == null) {
+                return;
+            }
+            long total = sweet.getQuantity();
+            long sold = 0;
+            for (StockShard shard : shards) {
+                total += shard.getQuantity();
+                sold += shard.getSoldCount();
+            }
+            stockShardRepository.deleteBySweetId(id);
+            sweetRepository.syncStock(id, (int) total, sold, System.currentTimeMillis());
+        });
+        publishUpdated(id);
+    }
+
+    /**
+     * Bulk updates bypass the entity listener, so publish the written state here.
+     */
+    private void publishUpdated(Long id) {
+        sweetRepository.findById(id).ifPresent(sweet -> eventPublisher.publishEvent(
+                new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet.toBuilder().build())));
+    }
+
+    private static ShardedCounter mirror(List<StockShard> shards) {
+        int size = shards.stream().mapToInt(StockShard::getShard).max().orElse(0) + 1;
+        long[] values = new long[size];
+        for (StockShard shard : shards) {
+            values[shard.getShard()] = shard.getQuantity();
+        }
+        return new ShardedCounter(values);
+    }
+
+    private static void mirrorInto(Stock stock, List<StockShard> shards) {
+        for (StockShard shard : shards) {
+            stock.counter.set(shard.getShard(), shard.getQuantity());
+        }
+    }
+
+    /**
+     * Copy shard rows into a mirror, unless a take started since they were read.
+     *
+     * @return true if any mirrored shard differed from its row
+     */
+    private static boolean resync(Stock stock, List<StockShard> shards, long started) {
+        boolean moved = false;
+        for (StockShard shard : shards) {
+            int index = shard.getShard();
+            if (index >= stock.counter.size()) {
+                continue;
+            }
+            long mirrored = stock.counter.get(index);
+            // The compare-and-set loses to any take that moves the shard after the check.
+            if (mirrored != shard.getQuantity() && stock.takesStarted.get() == started
+                    && stock.counter.compareAndSet(index, mirrored, shard.getQuantity())) {
+                moved = true;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * The in-memory mirror of one sweet's shards.
+     */
+    private static final class Stock {
+        private final ShardedCounter counter;
+        private final ReentrantLock rebalanceLock = new ReentrantLock();
+        private final AtomicLong takesStarted = new AtomicLong();
+        private final AtomicLong takesFinished = new AtomicLong();
+        private volatile long lastSaleAt;
+
+        private Stock(ShardedCounter counter) {
+            this.counter = counter;
+        }
+    }
+}
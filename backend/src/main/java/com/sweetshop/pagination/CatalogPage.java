@@ -0,0 +1,24 @@
+package com.sweetshop.pagination;
+
+import com.sweetshop.entity.Sweet;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One keyset page of the sweet catalog.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogPage {
+
+    private final List<Sweet> items;
+
+    /** Token for the following page, or null when this is the last page. */
+    private final String nextCursor;
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,88 @@
+package com.sweetshop.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination.
+ *
+ * <p>Captures the sort field, direction and the sort key of the last row on the
+ * previous page, so the next page can be fetched with a seek predicate instead of
+ * an OFFSET. Encoded as URL-safe Base64; clients must treat it as opaque.</p>
+ */
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final SweetSortField sortField;
+    private final Sort.Direction direction;
+    private final String lastValue;
+    private final Long lastId;
+
+    /**
+     * Get the last seen value as a price.
+     *
+     * @return the price sort key
+     */
+    public BigDecimal getLastPrice() {
+        return new BigDecimal(lastValue);
+    }
+
+    /**
+     * Get the last seen value as an update timestamp.
+     *
+     * @return the updatedAt sort key
+     */
+    public Long getLastUpdatedAt() {
+        return Long.valueOf(lastValue);
+    }
+
+    /**
+     * Encode this cursor as an opaque token.
+     *
+     * @return the token
+     */
+    public String encode() {
+        String raw = sortField.name() + SEPARATOR + direction.name() + SEPARATOR
+                + lastValue + SEPARATOR + lastId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}.
+     *
+     * @param token the token
+     * @return the cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, -1);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            KeysetCursor cursor = new KeysetCursor(SweetSortField.valueOf(parts[0]),
+                    Sort.Direction.valueOf(parts[1]), parts[2], Long.valueOf(parts[3]));
+            // Fail fast on a tampered sort key rather than inside the query.
+            switch (cursor.sortField) {
+                case PRICE -> cursor.getLastPrice();
+                case UPDATED_AT -> cursor.getLastUpdatedAt();
+                default -> Long.valueOf(cursor.lastValue);
+            }
+            return cursor;
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
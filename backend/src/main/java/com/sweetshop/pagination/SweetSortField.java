@@ -0,0 +1,55 @@
+package com.sweetshop.pagination;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.Locale;
+
+/**
+ * Columns the sweet catalog can be keyset-paginated on.
+ * Every ordering uses the sweet ID as a tie-breaker so page boundaries are stable.
+ */
+public enum SweetSortField {
+
+    ID("id"),
+    PRICE("price"),
+    UPDATED_AT("updatedAt");
+
+    private final String property;
+
+    SweetSortField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Build the ORDER BY clause for this field, including the ID tie-breaker.
+     *
+     * @param direction the sort direction
+     * @return the sort
+     */
+    public Sort toSort(Sort.Direction direction) {
+        if (this == ID) {
+            return Sort.by(direction, property);
+        }
+        return Sort.by(direction, property).and(Sort.by(direction, ID.property));
+    }
+
+    /**
+     * Resolve a sort field from its request parameter value.
+     *
+     * @param value the parameter value (e.g. "price" or "updatedAt")
+     * @return the sort field
+     * @throws IllegalArgumentException if the value is not a sortable field
+     */
+    public static SweetSortField fromParameter(String value) {
+        for (SweetSortField field : values()) {
+            if (field.property.equalsIgnoreCase(value) || field.name().equals(value.toUpperCase(Locale.ROOT))) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sort field: " + value);
+    }
+}
@@ -0,0 +1,92 @@
+package com.sweetshop.projection;
+
+import com.sweetshop.entity.Sweet;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Sweet attributes a client can select with the {@code fields} request parameter.
+ * The ID is always part of a selection so clients can correlate sparse rows.
+ */
+public enum SweetField {
+
+    ID("id"),
+    NAME("name"),
+    CATEGORY("category"),
+    PRICE("price"),
+    QUANTITY("quantity"),
+    DESCRIPTION("description"),
+    CREATED_AT("createdAt"),
+    UPDATED_AT("updatedAt");
+
+    private static final Set<SweetField> ALL = Collections.unmodifiableSet(EnumSet.allOf(SweetField.class));
+
+    private final String property;
+
+    SweetField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Copy a selected column value onto a partially loaded sweet.
+     *
+     * @param sweet the sweet being populated
+     * @param value the column value
+     */
+    public void set(Sweet sweet, Object value) {
+        switch (this) {
+            case ID -> sweet.setId((Long) value);
+            case NAME -> sweet.setName((String) value);
+            case CATEGORY -> sweet.setCategory((String) value);
+            case PRICE -> sweet.setPrice((BigDecimal) value);
+            case QUANTITY -> sweet.setQuantity((Integer) value);
+            case DESCRIPTION -> sweet.setDescription((String) value);
+            case CREATED_AT -> sweet.setCreatedAt((Long) value);
+            case UPDATED_AT -> sweet.setUpdatedAt((Long) value);
+        }
+    }
+
+    /**
+     * Get every field.
+     *
+     * @return the full, unmodifiable selection
+     */
+    public static Set<SweetField> all() {
+        return ALL;
+    }
+
+    /**
+     * Resolve a comma-separated {@code fields} parameter.
+     *
+     * @param value the parameter value (e.g. "name,price"); blank or null selects every field
+     * @return the unmodifiable selection, always including the ID
+     * @throws IllegalArgumentException if a name is not a sweet field
+     */
+    public static Set<SweetField> parse(String value) {
+        if (value == null || value.isBlank()) {
+            return ALL;
+        }
+        EnumSet<SweetField> fields = EnumSet.of(ID);
+        for (String name : value.split(",")) {
+            fields.add(fromParameter(name.trim()));
+        }
+        return Collections.unmodifiableSet(fields);
+    }
+
+    private static SweetField fromParameter(String value) {
+        for (SweetField field : values()) {
+            if (field.property.equalsIgnoreCase(value) || field.name().equals(value.toUpperCase(Locale.ROOT))) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown field: " + value);
+    }
+}
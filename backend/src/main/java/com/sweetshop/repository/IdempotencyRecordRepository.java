@@ -0,0 +1,77 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository for stored idempotent responses.
+ */
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Claim a key for a request about to run. Fails on the primary key if the key exists,
+     * so only one request across all instances can claim it.
+     *
+     * @param key the namespaced key
+     * @param requestHash the request fingerprint
+     * @param expiresAt when the claim lapses if the request never completes
+     * @return rows inserted
+     * @throws org.springframework.dao.DataIntegrityViolationException if the key is already claimed
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_hash, expires_at) " +
+            "VALUES (:key, :requestHash, :expiresAt)", nativeQuery = true)
+    int claim(@Param("key") String key,
+              @Param("requestHash") String requestHash,
+              @Param("expiresAt") long expiresAt);
+
+    /**
+     * Record the response of a claimed key.
+     *
+     * @param key the namespaced key
+     * @param status the HTTP status
+     * @param contentType the response content type
+     * @param responseBody the response body
+     * @param expiresAt when the stored response may be purged
+     * @return rows updated
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = :status, r.contentType = :contentType, " +
+            "r.responseBody = :responseBody, r.expiresAt = :expiresAt WHERE r.idempotencyKey = :key")
+    int complete(@Param("key") String key,
+                 @Param("status") int status,
+                 @Param("contentType") String contentType,
+                 @Param("responseBody") String responseBody,
+                 @Param("expiresAt") long expiresAt);
+
+    /**
+     * Delete a key's row if it has expired.
+     *
+     * @param key the namespaced key
+     * @param now the current time
+     * @return rows deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.expiresAt < :now")
+    int deleteIfExpired(@Param("key") String key, @Param("now") long now);
+
+    /**
+     * Delete every expired key.
+     *
+     * @param now the current time
+     * @return rows deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") long now);
+}
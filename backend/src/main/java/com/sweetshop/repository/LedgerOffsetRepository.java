@@ -0,0 +1,29 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.LedgerOffset;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository for the write-behind offsets of ledger sweets.
+ */
+@Repository
+public interface LedgerOffsetRepository extends JpaRepository<LedgerOffset, Long> {
+
+    /**
+     * Advance a sweet's offset by the units just written to its row.
+     * Joins the caller's transaction, so the offset commits with the write.
+     *
+     * @param sweetId the sweet ID
+     * @param units the net units written
+     * @return 1 if advanced, 0 if the sweet has no offset
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE LedgerOffset o SET o.units = o.units + :units WHERE o.sweetId = :sweetId")
+    int advance(@Param("sweetId") Long sweetId, @Param("units") long units);
+}
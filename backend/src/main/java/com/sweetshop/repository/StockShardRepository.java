@@ -0,0 +1,75 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.StockShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Repository for the stock shards of sharded sweets.
+ */
+@Repository
+public interface StockShardRepository extends JpaRepository<StockShard, StockShard.Key> {
+
+    /**
+     * Lock every shard of a sweet, in shard order so concurrent lockers cannot deadlock.
+     * Must run inside a transaction.
+     *
+     * @param sweetId the sweet ID
+     * @return the sweet's shards
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM StockShard s WHERE s.sweetId = :sweetId ORDER BY s.shard ASC")
+    List<StockShard> lockBySweetId(@Param("sweetId") Long sweetId);
+
+    /**
+     * Read every shard of a sweet without locking.
+     *
+     * @param sweetId the sweet ID
+     * @return the sweet's shards, in shard order
+     */
+    List<StockShard> findBySweetIdOrderByShardAsc(Long sweetId);
+
+    /**
+     * Check whether a sweet has shards.
+     *
+     * @param sweetId the sweet ID
+     * @return true if its stock is sharded
+     */
+    boolean existsBySweetId(Long sweetId);
+
+    /**
+     * Take stock from one shard in one conditional statement.
+     *
+     * @param sweetId the sweet ID
+     * @param shard the shard
+     * @param quantity the quantity to purchase
+     * @return 1 if taken, 0 if the shard is missing or holds too little
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE StockShard s SET s.quantity = s.quantity - :quantity, " +
+            "s.soldCount = s.soldCount + CAST(:quantity AS Long) " +
+            "WHERE s.sweetId = :sweetId AND s.shard = :shard AND s.quantity >= :quantity")
+    int take(@Param("sweetId") Long sweetId,
+             @Param("shard") int shard,
+             @Param("quantity") int quantity);
+
+    /**
+     * Delete every shard of a sweet.
+     *
+     * @param sweetId the sweet ID
+     * @return the number of shards deleted
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM StockShard s WHERE s.sweetId = :sweetId")
+    int deleteBySweetId(@Param("sweetId") Long sweetId);
+}
@@ -0,0 +1,23 @@
+package com.sweetshop.repository;
+
+import java.util.List;
+
+/**
+ * Writes that touch many sweets at once, sent as JDBC batches.
+ */
+public interface SweetBatchRepository {
+
+    /** Statements sent per JDBC batch. */
+    int BATCH_SIZE = 500;
+
+    /**
+     * Add to the quantity of many sweets, {@link #BATCH_SIZE} statements per round trip.
+     * Bypasses the entity listener, so callers publish change events themselves.
+     *
+     * @param ids the sweet IDs; the same ID may appear more than once
+     * @param quantities the quantity to add for each ID, index-aligned with {@code ids}
+     * @param updatedAt the modification timestamp to record
+     * @return rows updated per input index, 0 where no sweet has the ID
+     */
+    int[] restockAll(List<Long> ids, List<Integer> quantities, long updatedAt);
+}
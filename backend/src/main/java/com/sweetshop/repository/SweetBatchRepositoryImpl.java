@@ -0,0 +1,49 @@
+package com.sweetshop.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * JDBC-batched bulk writes to the sweets table.
+ */
+public class SweetBatchRepositoryImpl implements SweetBatchRepository {
+
+    private static final String RESTOCK_SQL = "UPDATE sweets SET quantity = quantity + ?, updated_at = ?, "
+            + "version = version + 1 WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SweetBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public int[] restockAll(List<Long> ids, List<Integer> quantities, long updatedAt) {
+        if (ids.size() != quantities.size()) {
+            throw new IllegalArgumentException("Each sweet ID needs a quantity");
+        }
+        // Rows are updated in ascending ID order, so concurrent bulk writes cannot deadlock.
+        List<Integer> order = IntStream.range(0, ids.size()).boxed()
+                .sorted(Comparator.comparing(ids::get))
+                .toList();
+        int[][] batches = jdbcTemplate.batchUpdate(RESTOCK_SQL, order, BATCH_SIZE, (ps, index) -> {
+            ps.setInt(1, quantities.get(index));
+            ps.setLong(2, updatedAt);
+            ps.setLong(3, ids.get(index));
+        });
+
+        int[] updated = new int[ids.size()];
+        int position = 0;
+        for (int[] batch : batches) {
+            for (int count : batch) {
+                updated[order.get(position++)] = count;
+            }
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,40 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.pagination.KeysetCursor;
+import com.sweetshop.pagination.SweetSortField;
+import com.sweetshop.projection.SweetField;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Queries that select only the sweet columns a client asked for.
+ */
+public interface SweetColumnRepository {
+
+    /**
+     * Fetch sweets with only the selected columns populated, ordered by ID.
+     *
+     * @param fields the columns to select
+     * @param category the category (optional)
+     * @return unmanaged, partially populated sweets
+     */
+    List<Sweet> findColumns(Set<SweetField> fields, String category);
+
+    /**
+     * Fetch one keyset page with only the selected columns populated.
+     * The sort column is always selected as well, since the next cursor is built from it.
+     * Seeks the same way as the full-row page queries, so it uses the same indexes.
+     *
+     * @param fields the columns to select
+     * @param sortField the sort field
+     * @param direction the sort direction
+     * @param after the cursor to continue from, or null for the first page
+     * @param limit the maximum number of rows
+     * @return unmanaged, partially populated sweets
+     */
+    List<Sweet> findPageColumns(Set<SweetField> fields, SweetSortField sortField, Sort.Direction direction,
+                                KeysetCursor after, int limit);
+}
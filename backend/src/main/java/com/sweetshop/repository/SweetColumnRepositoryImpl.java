@@ -0,0 +1,113 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.pagination.KeysetCursor;
+import com.sweetshop.pagination.SweetSortField;
+import com.sweetshop.projection.SweetField;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the column list of each query from the selected fields, so unselected
+ * columns such as descriptions are never read from the database.
+ */
+public class SweetColumnRepositoryImpl implements SweetColumnRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Sweet> findColumns(Set<SweetField> fields, String category) {
+        List<SweetField> columns = List.copyOf(fields);
+        String jpql = select(columns)
+                + (category == null ? "" : " WHERE s.category = :category")
+                + " ORDER BY s.id ASC";
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql, Tuple.class);
+        if (category != null) {
+            query.setParameter("category", category);
+        }
+        return toSweets(columns, query.getResultList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Sweet> findPageColumns(Set<SweetField> fields, SweetSortField sortField, Sort.Direction direction,
+                                       KeysetCursor after, int limit) {
+        EnumSet<SweetField> selected = EnumSet.copyOf(fields);
+        selected.add(SweetField.ID);
+        selected.add(column(sortField));
+        List<SweetField> columns = List.copyOf(selected);
+
+        String order = direction.isAscending() ? " ASC" : " DESC";
+        String past = direction.isAscending() ? " > " : " < ";
+        String from = direction.isAscending() ? " >= " : " <= ";
+        String sort = "s." + sortField.getProperty();
+        StringBuilder jpql = new StringBuilder(select(columns));
+        if (after != null) {
+            if (sortField == SweetSortField.ID) {
+                jpql.append(" WHERE s.id").append(past).append(":id");
+            } else {
+                // Leading range on the sort column, as in the full-row queries, so the index can seek.
+                jpql.append(" WHERE ").append(sort).append(from).append(":value AND (")
+                        .append(sort).append(past).append(":value OR s.id").append(past).append(":id)");
+            }
+        }
+        jpql.append(" ORDER BY ");
+        if (sortField != SweetSortField.ID) {
+            jpql.append(sort).append(order).append(", ");
+        }
+        jpql.append("s.id").append(order);
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class);
+        if (after != null) {
+            query.setParameter("id", after.getLastId());
+            switch (sortField) {
+                case PRICE -> query.setParameter("value", after.getLastPrice());
+                case UPDATED_AT -> query.setParameter("value", after.getLastUpdatedAt());
+                case ID -> {
+                    // The ID alone positions the page.
+                }
+            }
+        }
+        query.setMaxResults(limit);
+        return toSweets(columns, query.getResultList());
+    }
+
+    private static String select(List<SweetField> columns) {
+        return "SELECT " + columns.stream()
+                .map(field -> "s." + field.getProperty())
+                .collect(Collectors.joining(", ")) + " FROM Sweet s";
+    }
+
+    private static SweetField column(SweetSortField sortField) {
+        return switch (sortField) {
+            case ID -> SweetField.ID;
+            case PRICE -> SweetField.PRICE;
+            case UPDATED_AT -> SweetField.UPDATED_AT;
+        };
+    }
+
+    private static List<Sweet> toSweets(List<SweetField> columns, List<Tuple> rows) {
+        List<Sweet> sweets = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Sweet sweet = new Sweet();
+            for (int i = 0; i < columns.size(); i++) {
+                columns.get(i).set(sweet, row.get(i));
+            }
+            sweets.add(sweet);
+        }
+        return sweets;
+    }
+}
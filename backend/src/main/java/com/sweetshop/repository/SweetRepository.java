@@ -1,19 +1,48 @@
 package com.sweetshop.repository;
 
 import com.sweetshop.entity.Sweet;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for Sweet entity operations.
  */
 @Repository
-public interface SweetRepository extends JpaRepository<Sweet, Long> {
+public interface SweetRepository extends JpaRepository<Sweet, Long>, SweetColumnRepository,
+        SweetBatchRepository, SweetSearchRepository {
+
+    /**
+     * Selects every column straight into an unmanaged {@link Sweet} through its all-args
+     * constructor, so list reads skip the persistence context and its dirty-tracking
+     * snapshots. Must follow the entity's field order.
+     */
+    String SWEET_ROWS = "SELECT new com.sweetshop.entity.Sweet(s.id, s.name, s.category, s.price, s.quantity, " +
+            "s.description, s.soldCount, s.createdAt, s.updatedAt, s.version) FROM Sweet s";
+
+    /**
+     * Fetch the whole catalog as detached rows, ordered by ID.
+     *
+     * @return all sweets, unmanaged
+     */
+    @Transactional(readOnly = true)
+    @Query(SWEET_ROWS + " ORDER BY s.id ASC")
+    List<Sweet> findAllRows();
 
     /**
      * Find sweets by name containing the search term (case-insensitive).
@@ -43,21 +72,211 @@ public interface SweetRepository extends JpaRepository<Sweet, Long> {
                                  @Param("maxPrice") BigDecimal maxPrice);
 
     /**
-     * Search for sweets by name, category, or price range.
+     * Fetch the first keyset page; ordering and limit come from the pageable.
      *
-     * @param name the name to search for
-     * @param category the category
-     * @param minPrice the minimum price
-     * @param maxPrice the maximum price
-     * @return list of matching sweets
+     * @param pageable the page window and sort
+     * @return the first rows of the catalog, unmanaged
+     */
+    @Transactional(readOnly = true)
+    @Query(SWEET_ROWS)
+    List<Sweet> findAllBy(Pageable pageable);
+
+    /**
+     * Fetch the keyset page after the given ID, ascending.
+     *
+     * @param id the last ID of the previous page
+     * @param pageable the page window
+     * @return the next rows, unmanaged
+     */
+    @Transactional(readOnly = true)
+    @Query(SWEET_ROWS + " WHERE s.id > :id ORDER BY s.id ASC")
+    List<Sweet> findPageAfterIdAsc(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * Fetch the keyset page after the given ID, descending.
+     *
+     * @param id the last ID of the previous page
+     * @param pageable the page window
+     * @return the next rows, unmanaged
+     */
+    @Transactional(readOnly = true)
+    @Query(SWEET_ROWS + " WHERE s.id < :id ORDER BY s.id DESC")
+    List<Sweet> findPageAfterIdDesc(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * Fetch the keyset page after the given (price, ID), ascending.
+     * The leading range on price lets the (price, id) index seek to the cursor;
+     * the OR on its own cannot be matched to the index.
+     *
+     * @param price the last price of the previous page
+     * @param id the last ID of the previous page
+     * @param pageable the page window
+     * @return the next rows, unmanaged
+     */
+    @Transactional(readOnly = true)
+    @Query(SWEET_ROWS + " WHERE s.price >= :price AND (s.price > :price OR s.id > :id) " +
+            "ORDER BY s.price ASC, s.id ASC")
+    List<Sweet> findPageAfterPriceAsc(@Param("price") BigDecimal price,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
+
+    /**
+     * Fetch the keyset page after the given (price, ID), descending.
+     *
+     * @param price the last price of the previous page
+     * @param id the last ID of the previous page
+     * @param pageable the page window
+     * @return the next rows, unmanaged
+     */
+    @Transactional(readOnly = true)
+    @Query(SWEET_ROWS + " WHERE s.price <= :price AND (s.price < :price OR s.id < :id) " +
+            "ORDER BY s.price DESC, s.id DESC")
+    List<Sweet> findPageAfterPriceDesc(@Param("price") BigDecimal price,
+                                       @Param("id") Long id,
+                                       Pageable pageable);
+
+    /**
+     * Fetch the keyset page after the given (updatedAt, ID), ascending.
+     *
+     * @param updatedAt the last update timestamp of the previous page
+     * @param id the last ID of the previous page
+     * @param pageable the page window
+     * @return the next rows, unmanaged
+     */
+    @Transactional(readOnly = true)
+    @Query(SWEET_ROWS + " WHERE s.updatedAt >= :updatedAt AND (s.updatedAt > :updatedAt OR s.id > :id) " +
+            "ORDER BY s.updatedAt ASC, s.id ASC")
+    List<Sweet> findPageAfterUpdatedAtAsc(@Param("updatedAt") Long updatedAt,
+                                          @Param("id") Long id,
+                                          Pageable pageable);
+
+    /**
+     * Fetch the keyset page after the given (updatedAt, ID), descending.
+     *
+     * @param updatedAt the last update timestamp of the previous page
+     * @param id the last ID of the previous page
+     * @param pageable the page window
+     * @return the next rows, unmanaged
+     */
+    @Transactional(readOnly = true)
+    @Query(SWEET_ROWS + " WHERE s.updatedAt <= :updatedAt AND (s.updatedAt < :updatedAt OR s.id < :id) " +
+            "ORDER BY s.updatedAt DESC, s.id DESC")
+    List<Sweet> findPageAfterUpdatedAtDesc(@Param("updatedAt") Long updatedAt,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+
+    /**
+     * Stream the whole catalog ordered by ID through a database cursor.
+     * Rows are fetched in bounded chunks; must be consumed inside a transaction
+     * and closed by the caller.
+     *
+     * @return stream of all sweets
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM Sweet s ORDER BY s.id ASC")
+    Stream<Sweet> streamAllOrderedById();
+
+    /**
+     * Take stock in one conditional statement, so concurrent purchases can never oversell.
+     * Also counts the units as sold and bumps the update timestamp and version.
+     *
+     * @param id the sweet ID
+     * @param quantity the quantity to purchase
+     * @param updatedAt the update timestamp to record
+     * @return 1 if the stock was taken, 0 if the sweet is missing or has too little stock
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Sweet s SET s.quantity = s.quantity - :quantity, " +
+            "s.soldCount = COALESCE(s.soldCount, 0) + :quantity, s.updatedAt = :updatedAt, " +
+            "s.version = s.version + 1 " +
+            "WHERE s.id = :id AND s.quantity >= :quantity")
+    int purchaseIfAvailable(@Param("id") Long id,
+                            @Param("quantity") int quantity,
+                            @Param("updatedAt") long updatedAt);
+
+    /**
+     * Add stock in one statement, without reading the row first.
+     * Bumps the version so stale entity writes still detect the change.
+     *
+     * @param id the sweet ID
+     * @param quantity the quantity to add
+     * @param updatedAt the update timestamp to record
+     * @return 1 if the sweet was restocked, 0 if it does not exist
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Sweet s SET s.quantity = s.quantity + :quantity, s.updatedAt = :updatedAt, " +
+            "s.version = s.version + 1 WHERE s.id = :id")
+    int restock(@Param("id") Long id,
+                @Param("quantity") int quantity,
+                @Param("updatedAt") long updatedAt);
+
+    /**
+     * Write sales already accepted by the in-memory inventory ledger.
+     * Unconditional: the ledger, not this row, decided the sale.
+     *
+     * @param id the sweet ID
+     * @param quantity the units sold since the last flush; negative to give units back
+     * @param updatedAt the update timestamp to record
+     * @return 1 if applied, 0 if the sweet no longer exists
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Sweet s SET s.quantity = s.quantity - :quantity, " +
+            "s.soldCount = COALESCE(s.soldCount, 0) + :quantity, s.updatedAt = :updatedAt, " +
+            "s.version = s.version + 1 WHERE s.id = :id")
+    int applySales(@Param("id") Long id,
+                   @Param("quantity") int quantity,
+                   @Param("updatedAt") long updatedAt);
+
+    /**
+     * Load a sweet and hold its row lock until the transaction ends.
+     *
+     * @param id the sweet ID
+     * @return the locked sweet
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Sweet s WHERE s.id = :id")
+    Optional<Sweet> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Find sweets by exact name, lowest ID first.
+     *
+     * @param names the names
+     * @return the sweets with any of the names
+     */
+    List<Sweet> findByNameInOrderByIdAsc(Collection<String> names);
+
+    /**
+     * Load several sweets and hold their row locks until the transaction ends.
+     * Rows are locked in ascending ID order, so concurrent callers cannot deadlock each other.
+     *
+     * @param ids the sweet IDs
+     * @return the locked sweets, ordered by ID
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Sweet s WHERE s.id IN :ids ORDER BY s.id ASC")
+    List<Sweet> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Set a sweet's quantity and add to its units sold, for stock moved in or out of shards.
+     *
+     * @param id the sweet ID
+     * @param quantity the new quantity
+     * @param sold the units sold to add
+     * @param updatedAt the update timestamp to record
+     * @return 1 if updated, 0 if the sweet does not exist
      */
-    @Query("SELECT s FROM Sweet s WHERE " +
-            "(:name IS NULL OR s.name ILIKE %:name%) AND " +
-            "(:category IS NULL OR s.category = :category) AND " +
-            "(:minPrice IS NULL OR s.price >= :minPrice) AND " +
-            "(:maxPrice IS NULL OR s.price <= :maxPrice)")
-    List<Sweet> search(@Param("name") String name,
-                       @Param("category") String category,
-                       @Param("minPrice") BigDecimal minPrice,
-                       @Param("maxPrice") BigDecimal maxPrice);
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Sweet s SET s.quantity = :quantity, s.soldCount = COALESCE(s.soldCount, 0) + :sold, " +
+            "s.updatedAt = :updatedAt, s.version = s.version + 1 WHERE s.id = :id")
+    int syncStock(@Param("id") Long id,
+                  @Param("quantity") int quantity,
+                  @Param("sold") long sold,
+                  @Param("updatedAt") long updatedAt);
 }
@@ -0,0 +1,24 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.Sweet;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Catalog search with optional filters.
+ */
+public interface SweetSearchRepository {
+
+    /**
+     * Search for sweets by name, category, or price range.
+     * Filters left null are not part of the query at all.
+     *
+     * @param name the name to search for (optional)
+     * @param category the category (optional)
+     * @param minPrice the minimum price (optional)
+     * @param maxPrice the maximum price (optional)
+     * @return list of matching sweets, unmanaged
+     */
+    List<Sweet> search(String name, String category, BigDecimal minPrice, BigDecimal maxPrice);
+}
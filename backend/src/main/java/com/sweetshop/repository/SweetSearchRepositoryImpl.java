@@ -0,0 +1,58 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.Sweet;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the WHERE clause from the filters actually given. A catch-all
+ * {@code (:x IS NULL OR ...)} predicate cannot be matched to an index, so every
+ * search would scan the table; here a category or price filter reaches the
+ * category and price indexes.
+ */
+public class SweetSearchRepositoryImpl implements SweetSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Sweet> search(String name, String category, BigDecimal minPrice, BigDecimal maxPrice) {
+        List<String> conditions = new ArrayList<>(4);
+        if (name != null) {
+            conditions.add("s.name ILIKE :name");
+        }
+        if (category != null) {
+            conditions.add("s.category = :category");
+        }
+        if (minPrice != null) {
+            conditions.add("s.price >= :minPrice");
+        }
+        if (maxPrice != null) {
+            conditions.add("s.price <= :maxPrice");
+        }
+        String jpql = SweetRepository.SWEET_ROWS
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions));
+
+        TypedQuery<Sweet> query = entityManager.createQuery(jpql, Sweet.class);
+        if (name != null) {
+            query.setParameter("name", "%" + name + "%");
+        }
+        if (category != null) {
+            query.setParameter("category", category);
+        }
+        if (minPrice != null) {
+            query.setParameter("minPrice", minPrice);
+        }
+        if (maxPrice != null) {
+            query.setParameter("maxPrice", maxPrice);
+        }
+        return query.getResultList();
+    }
+}
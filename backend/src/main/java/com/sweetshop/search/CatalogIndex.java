@@ -0,0 +1,215 @@
+package com.sweetshop.search;
+
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.CatalogIndexRebuiltEvent;
+import com.sweetshop.event.SweetChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Base class for in-memory secondary indexes over the sweet catalog.
+ *
+ * <p>The index state is built lazily from {@link SweetCatalogCache} and kept current by
+ * committed {@link SweetChangedEvent}s. Once the state is older than the rebuild
+ * interval it is rebuilt from the cache, picking up writes made by other instances;
+ * changes that arrive during a rebuild are replayed onto the new state before it is
+ * published. Before the first build every reader waits; afterwards one reader rebuilds
+ * while the rest keep using the current state. Each rebuild is announced with a
+ * {@link CatalogIndexRebuiltEvent}, so results derived from the old state can be dropped.</p>
+ *
+ * @param <S> the mutable index state, guarded by this class
+ */
+@Slf4j
+public abstract class CatalogIndex<S> implements ApplicationEventPublisherAware {
+
+    private final SweetCatalogCache sweetCatalogCache;
+    private final long rebuildAfterMillis;
+    private final LongSupplier clock;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private S state;
+    private boolean loaded;
+    private long builtAt;
+    private List<SweetChangedEvent> pending;
+    private ApplicationEventPublisher eventPublisher;
+
+    protected CatalogIndex(SweetCatalogCache sweetCatalogCache, Duration rebuildAfter, LongSupplier clock) {
+        this.sweetCatalogCache = sweetCatalogCache;
+        this.rebuildAfterMillis = rebuildAfter.toMillis();
+        this.clock = clock;
+        this.state = emptyState();
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Create an empty index state.
+     *
+     * @return the new state
+     */
+    protected abstract S emptyState();
+
+    /**
+     * Insert or replace a sweet in the state.
+     *
+     * @param state the state to modify
+     * @param sweet the sweet, a read-only copy
+     */
+    protected abstract void put(S state, Sweet sweet);
+
+    /**
+     * Remove a sweet from the state if present.
+     *
+     * @param state the state to modify
+     * @param id the sweet ID
+     */
+    protected abstract void remove(S state, Long id);
+
+    /**
+     * Called once a rebuilt state holds every cached sweet, before queued changes are
+     * replayed onto it. Lets subclasses defer derived work during bulk loading.
+     *
+     * @param state the freshly populated state
+     */
+    protected void onLoaded(S state) {
+    }
+
+    /**
+     * Run a query against a fresh-enough state under the read lock.
+     *
+     * @param reader the query
+     * @param <R> the result type
+     * @return the query result
+     */
+    protected <R> R read(Function<S, R> reader) {
+        ensureFresh();
+        lock.readLock().lock();
+        try {
+            return reader.apply(state);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Apply a committed sweet change to the index.
+     * Runs after the catalog cache and before listeners that cache search results.
+     *
+     * @param event the change event
+     */
+    @Order(5)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSweetChanged(SweetChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(state, event);
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(S target, SweetChangedEvent event) {
+        if (event.getType() == SweetChangedEvent.Type.DELETED) {
+            remove(target, event.getSweetId());
+        } else {
+            put(target, event.getSweet());
+        }
+    }
+
+    private void ensureFresh() {
+        boolean stale;
+        boolean initialized;
+        lock.readLock().lock();
+        try {
+            initialized = loaded;
+            stale = !loaded || clock.getAsLong() - builtAt >= rebuildAfterMillis;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!stale) {
+            return;
+        }
+
+        if (initialized) {
+            if (!rebuildLock.tryLock()) {
+                return;
+            }
+        } else {
+            rebuildLock.lock();
+        }
+        try {
+            rebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (loaded && clock.getAsLong() - builtAt < rebuildAfterMillis) {
+                return;
+            }
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        S rebuilt = emptyState();
+        List<Sweet> sweets;
+        try {
+            sweets = sweetCatalogCache.getAll();
+            for (Sweet sweet : sweets) {
+                put(rebuilt, sweet);
+            }
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        onLoaded(rebuilt);
+
+        lock.writeLock().lock();
+        try {
+            for (SweetChangedEvent event : pending) {
+                apply(rebuilt, event);
+            }
+            pending = null;
+            state = rebuilt;
+            loaded = true;
+            builtAt = clock.getAsLong();
+            log.debug("Rebuilt {} with {} sweets", getClass().getSimpleName(), sweets.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (eventPublisher != null) {
+            eventPublisher.publishEvent(new CatalogIndexRebuiltEvent(getClass().getSimpleName()));
+        }
+    }
+}
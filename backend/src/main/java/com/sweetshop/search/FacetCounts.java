@@ -0,0 +1,107 @@
+package com.sweetshop.search;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Category counts and a price histogram for one search filter.
+ *
+ * <p>Each facet ignores its own filter, so the category counts cover every category
+ * within the price range, and the histogram covers every price within the selected
+ * category. {@link #getTotal()} counts the sweets matching the whole filter.</p>
+ */
+public class FacetCounts {
+
+    private final String category;
+    private final long minCents;
+    private final long maxCents;
+    private final long bucketCents;
+
+    private final Map<String, Long> categories = new TreeMap<>();
+    private final TreeMap<Long, Long> buckets = new TreeMap<>();
+    private long total;
+
+    /**
+     * Create an empty accumulator.
+     *
+     * @param category the selected category (optional)
+     * @param minPrice the minimum price (optional)
+     * @param maxPrice the maximum price (optional)
+     * @param bucketWidth the histogram bucket width
+     * @throws IllegalArgumentException if the bucket width is below one cent
+     */
+    public FacetCounts(String category, BigDecimal minPrice, BigDecimal maxPrice, BigDecimal bucketWidth) {
+        this.bucketCents = bucketWidth == null ? 0 : toCents(bucketWidth, RoundingMode.HALF_UP);
+        if (bucketCents < 1) {
+            throw new IllegalArgumentException("Bucket width must be at least 0.01");
+        }
+        this.category = category;
+        this.minCents = minPrice == null ? Long.MIN_VALUE : toCents(minPrice, RoundingMode.CEILING);
+        this.maxCents = maxPrice == null ? Long.MAX_VALUE : toCents(maxPrice, RoundingMode.FLOOR);
+    }
+
+    /**
+     * Count sweets sharing a category and price.
+     *
+     * @param sweetCategory the category
+     * @param cents the price in cents
+     * @param count the number of sweets
+     */
+    public void add(String sweetCategory, long cents, long count) {
+        boolean inPrice = cents >= minCents && cents <= maxCents;
+        boolean inCategory = category == null || category.equals(sweetCategory);
+        if (inPrice) {
+            categories.merge(sweetCategory, count, Long::sum);
+        }
+        if (inCategory) {
+            buckets.merge(Math.floorDiv(cents, bucketCents), count, Long::sum);
+        }
+        if (inPrice && inCategory) {
+            total += count;
+        }
+    }
+
+    /**
+     * Get the count per category, ordered by category name.
+     *
+     * @return category counts
+     */
+    public Map<String, Long> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Get the non-empty histogram buckets keyed by their lower bound.
+     *
+     * @return bucket lower bound to count, ascending
+     */
+    public Map<BigDecimal, Long> getPriceBuckets() {
+        Map<BigDecimal, Long> result = new TreeMap<>();
+        buckets.forEach((bucket, count) -> result.put(BigDecimal.valueOf(bucket * bucketCents, 2), count));
+        return result;
+    }
+
+    public BigDecimal getBucketWidth() {
+        return BigDecimal.valueOf(bucketCents, 2);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Convert a price to whole cents, rounding half up.
+     *
+     * @param price the price
+     * @return the price in cents
+     */
+    public static long toCents(BigDecimal price) {
+        return toCents(price, RoundingMode.HALF_UP);
+    }
+
+    static long toCents(BigDecimal price, RoundingMode roundingMode) {
+        return price.movePointRight(2).setScale(0, roundingMode).longValueExact();
+    }
+}
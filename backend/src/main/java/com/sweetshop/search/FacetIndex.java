@@ -0,0 +1,107 @@
+package com.sweetshop.search;
+
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.entity.Sweet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Incrementally maintained sweet counts per (category, price) pair.
+ *
+ * <p>Facets for any category and price filter are derived by walking the distinct
+ * pairs, which is bounded by the number of distinct prices rather than the number
+ * of sweets, so rendering the sidebar never needs a catalog transfer.</p>
+ */
+@Component
+public class FacetIndex extends CatalogIndex<FacetIndex.Counts> {
+
+    @Autowired
+    public FacetIndex(SweetCatalogCache sweetCatalogCache,
+                      @Value("${sweetshop.search.rebuild-after:5m}") Duration rebuildAfter) {
+        this(sweetCatalogCache, rebuildAfter, System::currentTimeMillis);
+    }
+
+    FacetIndex(SweetCatalogCache sweetCatalogCache, Duration rebuildAfter, LongSupplier clock) {
+        super(sweetCatalogCache, rebuildAfter, clock);
+    }
+
+    /**
+     * Compute facets for a category and price filter.
+     *
+     * @param category the selected category (optional)
+     * @param minPrice the minimum price (optional)
+     * @param maxPrice the maximum price (optional)
+     * @param bucketWidth the histogram bucket width
+     * @return the facet counts
+     */
+    public FacetCounts facets(String category, BigDecimal minPrice, BigDecimal maxPrice, BigDecimal bucketWidth) {
+        FacetCounts facets = new FacetCounts(category, minPrice, maxPrice, bucketWidth);
+        return read(counts -> {
+            counts.byCategory.forEach((sweetCategory, prices) ->
+                    prices.forEach((cents, count) -> facets.add(sweetCategory, cents, count)));
+            return facets;
+        });
+    }
+
+    @Override
+    protected Counts emptyState() {
+        return new Counts();
+    }
+
+    @Override
+    protected void put(Counts counts, Sweet sweet) {
+        counts.remove(sweet.getId());
+        if (sweet.getCategory() == null || sweet.getPrice() == null) {
+            return;
+        }
+        Key key = new Key(sweet.getCategory(), FacetCounts.toCents(sweet.getPrice()));
+        counts.sweets.put(sweet.getId(), key);
+        counts.byCategory.computeIfAbsent(key.category, category -> new TreeMap<>())
+                .merge(key.cents, 1L, Long::sum);
+    }
+
+    @Override
+    protected void remove(Counts counts, Long id) {
+        counts.remove(id);
+    }
+
+    /**
+     * Per-sweet keys plus the aggregated counts.
+     */
+    static final class Counts {
+        private final Map<Long, Key> sweets = new HashMap<>();
+        private final Map<String, TreeMap<Long, Long>> byCategory = new HashMap<>();
+
+        private void remove(Long id) {
+            Key key = sweets.remove(id);
+            if (key == null) {
+                return;
+            }
+            TreeMap<Long, Long> prices = byCategory.get(key.category);
+            if (prices.merge(key.cents, -1L, Long::sum) == 0) {
+                prices.remove(key.cents);
+                if (prices.isEmpty()) {
+                    byCategory.remove(key.category);
+                }
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String category;
+        private final long cents;
+
+        private Key(String category, long cents) {
+            this.category = category;
+            this.cents = cents;
+        }
+    }
+}
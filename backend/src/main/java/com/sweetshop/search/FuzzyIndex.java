@@ -0,0 +1,268 @@
+package com.sweetshop.search;
+
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.entity.Sweet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Typo-tolerant name index backed by a BK-tree over Levenshtein distance.
+ *
+ * <p>Each sweet contributes its full normalized name plus every name token of three or
+ * more characters, so both "gulab jamon" and "rasgula" find their sweets. A query only
+ * visits the subtrees whose edge distance can still be within the allowed edit distance,
+ * which keeps lookups bounded on large catalogs. Results are ranked by edit distance,
+ * then by units sold, keeping only the requested number of best matches.</p>
+ *
+ * <p>Terms are never removed from the tree; a term whose last sweet is gone stays as a
+ * tombstone until the next periodic rebuild compacts it away.</p>
+ */
+@Component
+public class FuzzyIndex extends CatalogIndex<FuzzyIndex.Terms> {
+
+    private static final int MIN_TOKEN_LENGTH = 3;
+
+    @Autowired
+    public FuzzyIndex(SweetCatalogCache sweetCatalogCache,
+                      @Value("${sweetshop.search.rebuild-after:5m}") Duration rebuildAfter) {
+        this(sweetCatalogCache, rebuildAfter, System::currentTimeMillis);
+    }
+
+    FuzzyIndex(SweetCatalogCache sweetCatalogCache, Duration rebuildAfter, LongSupplier clock) {
+        super(sweetCatalogCache, rebuildAfter, clock);
+    }
+
+    /**
+     * Find sweets whose name, or a word of it, is within a few edits of the query.
+     * The allowed distance grows with the query length: none up to two characters,
+     * one up to five, two beyond that.
+     *
+     * @param query the possibly misspelled name
+     * @return matching sweets, closest and most popular first
+     */
+    public List<Sweet> search(String query) {
+        return search(query, sweet -> true, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Find the best {@code limit} matching sweets that pass a filter.
+     * Only the current top {@code limit} are kept while matches are ranked, so a short,
+     * common query costs O(matches * log limit) rather than a sort of every match.
+     *
+     * @param query the possibly misspelled name
+     * @param filter which matching sweets may be returned
+     * @param limit the maximum number of results
+     * @return matching sweets, closest and most popular first
+     */
+    public List<Sweet> search(String query, Predicate<Sweet> filter, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        int maxDistance = normalized.length() <= 2 ? 0 : normalized.length() <= 5 ? 1 : 2;
+
+        return read(terms -> {
+            Map<Long, Integer> best = new HashMap<>();
+            terms.visitWithin(normalized, maxDistance, (term, distance) -> {
+                for (Long id : terms.termIds.get(term)) {
+                    best.merge(id, distance, Math::min);
+                }
+            });
+
+            Comparator<Map.Entry<Long, Integer>> ranking =
+                    Comparator.<Map.Entry<Long, Integer>>comparingInt(Map.Entry::getValue)
+                            .thenComparing(entry -> terms.sweets.get(entry.getKey()).getPopularity(),
+                                    Comparator.reverseOrder())
+                            .thenComparing(Map.Entry::getKey);
+            // Worst of the kept matches on top, so it is the one evicted.
+            PriorityQueue<Map.Entry<Long, Integer>> top = new PriorityQueue<>(ranking.reversed());
+            for (Map.Entry<Long, Integer> entry : best.entrySet()) {
+                if (!filter.test(terms.sweets.get(entry.getKey()))) {
+                    continue;
+                }
+                if (top.size() < limit) {
+                    top.add(entry);
+                } else if (ranking.compare(entry, top.peek()) < 0) {
+                    top.poll();
+                    top.add(entry);
+                }
+            }
+
+            List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(top);
+            ranked.sort(ranking);
+            List<Sweet> results = new ArrayList<>(ranked.size());
+            for (Map.Entry<Long, Integer> entry : ranked) {
+                results.add(terms.sweets.get(entry.getKey()));
+            }
+            return results;
+        });
+    }
+
+    @Override
+    protected Terms emptyState() {
+        return new Terms();
+    }
+
+    @Override
+    protected void put(Terms terms, Sweet sweet) {
+        terms.put(sweet);
+    }
+
+    @Override
+    protected void remove(Terms terms, Long id) {
+        terms.remove(id);
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> termsOf(String name) {
+        String normalized = normalize(name);
+        Set<String> terms = new LinkedHashSet<>();
+        if (normalized.isEmpty()) {
+            return terms;
+        }
+        terms.add(normalized);
+        for (String token : normalized.split(" ")) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Levenshtein distance using two caller-supplied rows of length {@code query.length() + 1}.
+     */
+    static int distance(String query, String term, int[] previous, int[] current) {
+        int n = query.length();
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= term.length(); i++) {
+            current[0] = i;
+            char c = term.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                int substitution = previous[j - 1] + (query.charAt(j - 1) == c ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j] + 1, current[j - 1] + 1));
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[n];
+    }
+
+    /**
+     * Callback for a term found within the distance bound.
+     */
+    interface TermVisitor {
+        void visit(String term, int distance);
+    }
+
+    /**
+     * Indexed sweets, their terms, and the BK-tree over all terms.
+     */
+    static final class Terms {
+        private final Map<Long, Sweet> sweets = new HashMap<>();
+        private final Map<Long, Set<String>> sweetTerms = new HashMap<>();
+        /** Every term ever inserted into the tree; an empty set marks a tombstone. */
+        private final Map<String, Set<Long>> termIds = new HashMap<>();
+        private Node root;
+
+        private void put(Sweet sweet) {
+            remove(sweet.getId());
+            Set<String> terms = termsOf(sweet.getName());
+            sweets.put(sweet.getId(), sweet);
+            sweetTerms.put(sweet.getId(), terms);
+            for (String term : terms) {
+                Set<Long> ids = termIds.get(term);
+                if (ids == null) {
+                    ids = new HashSet<>();
+                    termIds.put(term, ids);
+                    insert(term);
+                }
+                ids.add(sweet.getId());
+            }
+        }
+
+        private void remove(Long id) {
+            sweets.remove(id);
+            Set<String> terms = sweetTerms.remove(id);
+            if (terms != null) {
+                for (String term : terms) {
+                    termIds.get(term).remove(id);
+                }
+            }
+        }
+
+        private void insert(String term) {
+            if (root == null) {
+                root = new Node(term);
+                return;
+            }
+            int[] previous = new int[term.length() + 1];
+            int[] current = new int[term.length() + 1];
+            Node node = root;
+            while (true) {
+                int d = distance(term, node.term, previous, current);
+                Node child = node.children.get(d);
+                if (child == null) {
+                    node.children.put(d, new Node(term));
+                    return;
+                }
+                node = child;
+            }
+        }
+
+        private void visitWithin(String query, int maxDistance, TermVisitor visitor) {
+            if (root == null) {
+                return;
+            }
+            int[] previous = new int[query.length() + 1];
+            int[] current = new int[query.length() + 1];
+            Deque<Node> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                int d = distance(query, node.term, previous, current);
+                if (d <= maxDistance && !termIds.get(node.term).isEmpty()) {
+                    visitor.visit(node.term, d);
+                }
+                // Triangle inequality: only children at edge distance d +/- maxDistance can match.
+                for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                    if (Math.abs(child.getKey() - d) <= maxDistance) {
+                        stack.push(child.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Node {
+        private final String term;
+        private final Map<Integer, Node> children = new HashMap<>(4);
+
+        private Node(String term) {
+            this.term = term;
+        }
+    }
+}
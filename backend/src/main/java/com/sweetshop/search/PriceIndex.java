@@ -0,0 +1,128 @@
+package com.sweetshop.search;
+
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.entity.Sweet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Sweets ordered by price in fixed-point cents, with the sweet ID as tie-breaker.
+ *
+ * <p>A price range is located in logarithmic time and then walked in either direction
+ * until the limit is reached, so "cheapest N" and "most expensive N within a range"
+ * cost O(log n + N) regardless of catalog size.</p>
+ */
+@Component
+public class PriceIndex extends CatalogIndex<PriceIndex.Sorted> {
+
+    @Autowired
+    public PriceIndex(SweetCatalogCache sweetCatalogCache,
+                      @Value("${sweetshop.search.rebuild-after:5m}") Duration rebuildAfter) {
+        this(sweetCatalogCache, rebuildAfter, System::currentTimeMillis);
+    }
+
+    PriceIndex(SweetCatalogCache sweetCatalogCache, Duration rebuildAfter, LongSupplier clock) {
+        super(sweetCatalogCache, rebuildAfter, clock);
+    }
+
+    /**
+     * List sweets within a price range in price order.
+     *
+     * @param minPrice the minimum price, inclusive (optional)
+     * @param maxPrice the maximum price, inclusive (optional)
+     * @param category the category the sweets must be in (optional)
+     * @param descending whether the most expensive sweets come first
+     * @param limit the maximum number of sweets to return
+     * @return the sweets, ordered by price and then ID
+     */
+    public List<Sweet> range(BigDecimal minPrice, BigDecimal maxPrice, String category,
+                             boolean descending, int limit) {
+        long minCents = minPrice == null ? Long.MIN_VALUE : FacetCounts.toCents(minPrice, RoundingMode.CEILING);
+        long maxCents = maxPrice == null ? Long.MAX_VALUE : FacetCounts.toCents(maxPrice, RoundingMode.FLOOR);
+        if (minCents > maxCents || limit < 1) {
+            return List.of();
+        }
+
+        return read(sorted -> {
+            NavigableMap<Key, Sweet> range = sorted.byPrice.subMap(
+                    new Key(minCents, Long.MIN_VALUE), true, new Key(maxCents, Long.MAX_VALUE), true);
+            if (descending) {
+                range = range.descendingMap();
+            }
+            List<Sweet> result = new ArrayList<>(Math.min(limit, 64));
+            for (Sweet sweet : range.values()) {
+                if (category == null || category.equals(sweet.getCategory())) {
+                    result.add(sweet);
+                    if (result.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    protected Sorted emptyState() {
+        return new Sorted();
+    }
+
+    @Override
+    protected void put(Sorted sorted, Sweet sweet) {
+        sorted.remove(sweet.getId());
+        if (sweet.getPrice() == null) {
+            return;
+        }
+        Key key = new Key(FacetCounts.toCents(sweet.getPrice()), sweet.getId());
+        sorted.keys.put(sweet.getId(), key);
+        sorted.byPrice.put(key, sweet);
+    }
+
+    @Override
+    protected void remove(Sorted sorted, Long id) {
+        sorted.remove(id);
+    }
+
+    /**
+     * The price-ordered map plus each sweet's current key, so price changes can find the old entry.
+     */
+    static final class Sorted {
+        private final TreeMap<Key, Sweet> byPrice = new TreeMap<>();
+        private final Map<Long, Key> keys = new HashMap<>();
+
+        private void remove(Long id) {
+            Key key = keys.remove(id);
+            if (key != null) {
+                byPrice.remove(key);
+            }
+        }
+    }
+
+    private static final class Key implements Comparable<Key> {
+        private final long cents;
+        private final long id;
+
+        private Key(long cents, long id) {
+            this.cents = cents;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byCents = Long.compare(cents, other.cents);
+            return byCents != 0 ? byCents : Long.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.sweetshop.search;
+
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.entity.Sweet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Prefix autocomplete over sweet names and categories, backed by a radix trie.
+ *
+ * <p>Every trie node caches the top suggestions of its subtree, ordered by units sold,
+ * so a lookup is a walk down the prefix followed by returning an already-built list:
+ * no per-lookup sorting and no allocation beyond an optional sublist view. Changes
+ * recompute the cached lists only along the affected key's path.</p>
+ */
+@Component
+public class SuggestIndex extends CatalogIndex<SuggestIndex.Trie> {
+
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingLong(Suggestion::getScore).reversed()
+            .thenComparing(Suggestion::getText)
+            .thenComparing(Suggestion::getType);
+
+    private final int maxResults;
+
+    @Autowired
+    public SuggestIndex(SweetCatalogCache sweetCatalogCache,
+                        @Value("${sweetshop.search.rebuild-after:5m}") Duration rebuildAfter,
+                        @Value("${sweetshop.suggest.max-results:10}") int maxResults) {
+        this(sweetCatalogCache, rebuildAfter, maxResults, System::currentTimeMillis);
+    }
+
+    SuggestIndex(SweetCatalogCache sweetCatalogCache, Duration rebuildAfter, int maxResults, LongSupplier clock) {
+        super(sweetCatalogCache, rebuildAfter, clock);
+        if (maxResults < 1) {
+            throw new IllegalArgumentException("Suggestion count must be at least 1");
+        }
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Get the most popular names and categories starting with the prefix, ignoring case.
+     *
+     * @param prefix the typed prefix
+     * @param limit the maximum number of suggestions, capped at the configured maximum
+     * @return the suggestions, most popular first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String typed = prefix == null ? "" : prefix.strip();
+        return read(trie -> {
+            List<Suggestion> top = trie.find(typed);
+            return limit >= top.size() ? top : top.subList(0, Math.max(limit, 0));
+        });
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    @Override
+    protected Trie emptyState() {
+        return new Trie(this);
+    }
+
+    @Override
+    protected void put(Trie trie, Sweet sweet) {
+        trie.put(sweet);
+    }
+
+    @Override
+    protected void remove(Trie trie, Long id) {
+        trie.remove(id);
+    }
+
+    @Override
+    protected void onLoaded(Trie trie) {
+        trie.finishBulkLoad();
+    }
+
+    /**
+     * A completion and the popularity it is ranked by.
+     */
+    public static final class Suggestion {
+
+        public enum Type {
+            NAME, CATEGORY
+        }
+
+        private final String text;
+        private final Type type;
+        private final long score;
+        private final int sweets;
+
+        private Suggestion(String text, Type type, long score, int sweets) {
+            this.text = text;
+            this.type = type;
+            this.score = score;
+            this.sweets = sweets;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /** Units sold across all sweets behind this suggestion. */
+        public long getScore() {
+            return score;
+        }
+
+        /** Number of sweets with this name or in this category. */
+        public int getSweets() {
+            return sweets;
+        }
+    }
+
+    /**
+     * Radix trie of lower-cased keys plus the per-sweet contributions to each suggestion.
+     */
+    static final class Trie {
+        private final SuggestIndex owner;
+        private final Node root = new Node("");
+        private final Map<Long, Sweet> sweets = new HashMap<>();
+        private final Map<String, Suggestion> suggestions = new HashMap<>();
+        /** While bulk loading, cached top lists are left stale and rebuilt once at the end. */
+        private boolean bulk = true;
+
+        private Trie(SuggestIndex owner) {
+            this.owner = owner;
+        }
+
+        private List<Suggestion> find(String prefix) {
+            Node node = root;
+            int i = 0;
+            while (i < prefix.length()) {
+                Node child = node.child(Character.toLowerCase(prefix.charAt(i)));
+                if (child == null) {
+                    return List.of();
+                }
+                for (int j = 0; j < child.label.length() && i < prefix.length(); j++, i++) {
+                    if (child.label.charAt(j) != Character.toLowerCase(prefix.charAt(i))) {
+                        return List.of();
+                    }
+                }
+                node = child;
+            }
+            return node.top;
+        }
+
+        private void put(Sweet sweet) {
+            Sweet previous = sweets.put(sweet.getId(), sweet);
+            if (previous != null) {
+                if (Objects.equals(previous.getName(), sweet.getName())
+                        && Objects.equals(previous.getCategory(), sweet.getCategory())
+                        && previous.getPopularity() == sweet.getPopularity()) {
+                    return;
+                }
+                contribute(previous, -1);
+            }
+            contribute(sweet, 1);
+        }
+
+        private void remove(Long id) {
+            Sweet previous = sweets.remove(id);
+            if (previous != null) {
+                contribute(previous, -1);
+            }
+        }
+
+        private void contribute(Sweet sweet, int sign) {
+            adjust(Suggestion.Type.NAME, sweet.getName(), sign * sweet.getPopularity(), sign);
+            adjust(Suggestion.Type.CATEGORY, sweet.getCategory(), sign * sweet.getPopularity(), sign);
+        }
+
+        private void adjust(Suggestion.Type type, String text, long scoreDelta, int countDelta) {
+            if (text == null || text.isBlank()) {
+                return;
+            }
+            String display = text.strip();
+            String key = display.toLowerCase(Locale.ROOT);
+            String id = type.name() + ':' + key;
+
+            Suggestion current = suggestions.get(id);
+            long score = (current == null ? 0 : current.score) + scoreDelta;
+            int count = (current == null ? 0 : current.sweets) + countDelta;
+            Suggestion replacement = count <= 0 ? null
+                    : new Suggestion(current == null ? display : current.text, type, score, count);
+            if (replacement == null) {
+                suggestions.remove(id);
+            } else {
+                suggestions.put(id, replacement);
+            }
+
+            List<Node> path = insert(key);
+            Node terminal = path.get(path.size() - 1);
+            terminal.replaceTerminal(current, replacement);
+            if (!bulk) {
+                for (int i = path.size() - 1; i >= 0; i--) {
+                    path.get(i).recomputeTop(owner.maxResults);
+                }
+            }
+        }
+
+        /**
+         * Walk to the node for the key, creating and splitting nodes as needed.
+         *
+         * @return the nodes from the root to the key's node
+         */
+        private List<Node> insert(String key) {
+            List<Node> path = new ArrayList<>();
+            path.add(root);
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                Node child = node.child(key.charAt(i));
+                if (child == null) {
+                    Node leaf = new Node(key.substring(i));
+                    node.addChild(leaf);
+                    path.add(leaf);
+                    return path;
+                }
+                int common = 0;
+                while (common < child.label.length() && i + common < key.length()
+                        && child.label.charAt(common) == key.charAt(i + common)) {
+                    common++;
+                }
+                if (common < child.label.length()) {
+                    // Split the edge so the key's end (or divergence point) gets its own node.
+                    Node middle = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    node.replaceChild(middle);
+                    middle.addChild(child);
+                    middle.recomputeTop(owner.maxResults);
+                    child = middle;
+                }
+                path.add(child);
+                node = child;
+                i += common;
+            }
+            return path;
+        }
+
+        private void finishBulkLoad() {
+            recomputeSubtree(root);
+            bulk = false;
+        }
+
+        private void recomputeSubtree(Node node) {
+            for (Node child : node.children) {
+                recomputeSubtree(child);
+            }
+            node.recomputeTop(owner.maxResults);
+        }
+    }
+
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+        private String label;
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private Suggestion[] terminal = NO_SUGGESTIONS;
+        private List<Suggestion> top = List.of();
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index < 0 ? null : children[index];
+        }
+
+        private void addChild(Node child) {
+            int index = -Arrays.binarySearch(keys, child.label.charAt(0)) - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newKeys[index] = child.label.charAt(0);
+            newChildren[index] = child;
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        private void replaceChild(Node child) {
+            children[Arrays.binarySearch(keys, child.label.charAt(0))] = child;
+        }
+
+        private void replaceTerminal(Suggestion previous, Suggestion replacement) {
+            List<Suggestion> updated = new ArrayList<>(Arrays.asList(terminal));
+            if (previous != null) {
+                updated.remove(previous);
+            }
+            if (replacement != null) {
+                updated.add(replacement);
+            }
+            terminal = updated.toArray(NO_SUGGESTIONS);
+        }
+
+        private void recomputeTop(int capacity) {
+            List<Suggestion> candidates = new ArrayList<>(Arrays.asList(terminal));
+            for (Node child : children) {
+                candidates.addAll(child.top);
+            }
+            candidates.sort(RANKING);
+            top = List.copyOf(candidates.subList(0, Math.min(capacity, candidates.size())));
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.sweetshop.search;
+
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.entity.Sweet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory trigram inverted index over sweet names and descriptions.
+ *
+ * <p>Answers case-insensitive substring queries (the semantics of {@code ILIKE '%term%'})
+ * by intersecting the posting lists of the term's trigrams and verifying the few
+ * surviving candidates. Terms shorter than three characters fall back to a scan of
+ * the indexed documents, which is still far cheaper than a table scan.</p>
+ */
+@Component
+public class TrigramIndex extends CatalogIndex<TrigramIndex.Postings> {
+
+    @Autowired
+    public TrigramIndex(SweetCatalogCache sweetCatalogCache,
+                        @Value("${sweetshop.search.rebuild-after:5m}") Duration rebuildAfter) {
+        this(sweetCatalogCache, rebuildAfter, System::currentTimeMillis);
+    }
+
+    TrigramIndex(SweetCatalogCache sweetCatalogCache, Duration rebuildAfter, LongSupplier clock) {
+        super(sweetCatalogCache, rebuildAfter, clock);
+    }
+
+    /**
+     * Find sweets whose name contains the term, ignoring case.
+     *
+     * @param term the substring to look for
+     * @return matching sweets ordered by ID
+     */
+    public List<Sweet> searchName(String term) {
+        return search(term, false);
+    }
+
+    /**
+     * Find sweets whose name or description contains the term, ignoring case.
+     *
+     * @param term the substring to look for
+     * @return matching sweets ordered by ID
+     */
+    public List<Sweet> searchText(String term) {
+        return search(term, true);
+    }
+
+    /**
+     * Get the number of indexed sweets.
+     *
+     * @return the document count
+     */
+    public int size() {
+        return read(postings -> postings.documents.size());
+    }
+
+    @Override
+    protected Postings emptyState() {
+        return new Postings();
+    }
+
+    @Override
+    protected void put(Postings postings, Sweet sweet) {
+        postings.add(sweet);
+    }
+
+    @Override
+    protected void remove(Postings postings, Long id) {
+        postings.remove(id);
+    }
+
+    private List<Sweet> search(String term, boolean includeDescription) {
+        String needle = term.toLowerCase(Locale.ROOT);
+        return read(postings -> {
+            List<Sweet> matches = new ArrayList<>();
+            if (needle.length() < 3) {
+                for (Document document : postings.documents.values()) {
+                    if (document.matches(needle, includeDescription)) {
+                        matches.add(document.sweet);
+                    }
+                }
+                return matches;
+            }
+
+            for (long id : candidates(postings, needle, includeDescription)) {
+                Document document = postings.documents.get(id);
+                if (document != null && document.matches(needle, includeDescription)) {
+                    matches.add(document.sweet);
+                }
+            }
+            return matches;
+        });
+    }
+
+    /**
+     * Intersect the posting lists of every trigram in the needle.
+     * Candidates are returned in ascending ID order and may include false positives.
+     */
+    private long[] candidates(Postings postings, String needle, boolean includeDescription) {
+        long[] nameIds = intersect(postings.name, needle);
+        if (!includeDescription) {
+            return nameIds;
+        }
+        long[] descriptionIds = intersect(postings.description, needle);
+        long[] union = new long[nameIds.length + descriptionIds.length];
+        System.arraycopy(nameIds, 0, union, 0, nameIds.length);
+        System.arraycopy(descriptionIds, 0, union, nameIds.length, descriptionIds.length);
+        return Arrays.stream(union).sorted().distinct().toArray();
+    }
+
+    private long[] intersect(Map<Long, PostingList> field, String needle) {
+        Set<Long> grams = trigrams(needle);
+        List<PostingList> lists = new ArrayList<>(grams.size());
+        for (Long gram : grams) {
+            PostingList list = field.get(gram);
+            if (list == null) {
+                return new long[0];
+            }
+            lists.add(list);
+        }
+        // Drive the intersection from the rarest trigram.
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        PostingList smallest = lists.get(0);
+        long[] result = new long[smallest.size()];
+        int count = 0;
+        outer:
+        for (int i = 0; i < smallest.size(); i++) {
+            long id = smallest.get(i);
+            for (int j = 1; j < lists.size(); j++) {
+                if (!lists.get(j).contains(id)) {
+                    continue outer;
+                }
+            }
+            result[count++] = id;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    static Set<Long> trigrams(String text) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    /**
+     * Documents plus one trigram-to-IDs map per indexed field.
+     */
+    static final class Postings {
+        private final Map<Long, Document> documents = new TreeMap<>();
+        private final Map<Long, PostingList> name = new HashMap<>();
+        private final Map<Long, PostingList> description = new HashMap<>();
+
+        private void add(Sweet sweet) {
+            remove(sweet.getId());
+            Document document = new Document(sweet);
+            documents.put(sweet.getId(), document);
+            index(name, document.name, sweet.getId());
+            index(description, document.description, sweet.getId());
+        }
+
+        private void remove(Long id) {
+            Document document = documents.remove(id);
+            if (document != null) {
+                unindex(name, document.name, id);
+                unindex(description, document.description, id);
+            }
+        }
+
+        private static void index(Map<Long, PostingList> field, String text, long id) {
+            for (Long gram : trigrams(text)) {
+                field.computeIfAbsent(gram, key -> new PostingList()).add(id);
+            }
+        }
+
+        private static void unindex(Map<Long, PostingList> field, String text, long id) {
+            for (Long gram : trigrams(text)) {
+                PostingList list = field.get(gram);
+                if (list != null) {
+                    list.remove(id);
+                    if (list.isEmpty()) {
+                        field.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * An indexed sweet with its lower-cased searchable text.
+     */
+    private static final class Document {
+        private final Sweet sweet;
+        private final String name;
+        private final String description;
+
+        private Document(Sweet sweet) {
+            this.sweet = sweet;
+            this.name = lower(sweet.getName());
+            this.description = lower(sweet.getDescription());
+        }
+
+        private boolean matches(String needle, boolean includeDescription) {
+            return name.contains(needle) || (includeDescription && description.contains(needle));
+        }
+
+        private static String lower(String value) {
+            return value == null ? "" : value.toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.sweetshop.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.inventory.LiveStock;
+import com.sweetshop.repository.SweetRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service for exporting the full catalog as newline-delimited JSON.
+ * Rows are written as they come off the database cursor and detached right after,
+ * so heap usage stays flat regardless of catalog size.
+ */
+@Service
+@RequiredArgsConstructor
+public class CatalogExportService {
+
+    /** Rows written between explicit flushes to the client. */
+    private static final int FLUSH_INTERVAL = 500;
+
+    private final SweetRepository sweetRepository;
+    private final LiveStock liveStock;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Write every sweet as one JSON document per line, with its live quantity.
+     *
+     * @param out the response stream
+     * @param gzip whether to gzip-compress the output
+     * @param mapper maps each sweet to the serialized representation
+     * @return the number of rows written
+     * @throws IOException if writing to the client fails
+     */
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream out, boolean gzip, Function<Sweet, ?> mapper) throws IOException {
+        // Sync-flush so each flush actually pushes compressed bytes to the client.
+        OutputStream target = gzip ? new GZIPOutputStream(out, 8192, true) : out;
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(target);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        long rows = 0;
+        try (Stream<Sweet> sweets = sweetRepository.streamAllOrderedById()) {
+            Iterator<Sweet> iterator = sweets.iterator();
+            while (iterator.hasNext()) {
+                Sweet sweet = iterator.next();
+                generator.writeObject(mapper.apply(liveStock.apply(sweet)));
+                generator.writeRaw('\n');
+                entityManager.detach(sweet);
+
+                // Flush the first row immediately so the client sees bytes before the query ends.
+                if (++rows % FLUSH_INTERVAL == 1) {
+                    generator.flush();
+                }
+            }
+        }
+
+        generator.flush();
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,235 @@
+package com.sweetshop.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.dto.ImportEvent;
+import com.sweetshop.dto.SweetRequest;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.importer.CatalogRowReader;
+import com.sweetshop.importer.ImportFormat;
+import com.sweetshop.importer.ImportRow;
+import com.sweetshop.inventory.InventoryLedger;
+import com.sweetshop.inventory.ShardedStock;
+import com.sweetshop.repository.SweetRepository;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service for importing a supplier catalog.
+ *
+ * <p>The upload is parsed row by row and each row is checked against the {@link SweetRequest}
+ * constraints. Valid rows are upserted by exact name in batches, one transaction per batch,
+ * so only the current batch is held in memory. Sweet IDs come from a pooled sequence,
+ * which lets Hibernate send each batch's inserts as JDBC batches.</p>
+ *
+ * <p>Progress is written as newline-delimited JSON while the import runs: an event for each
+ * rejected row, one per committed batch, and a final summary.</p>
+ */
+@Service
+@Slf4j
+public class CatalogImportService {
+
+    private final SweetRepository sweetRepository;
+    private final InventoryLedger inventoryLedger;
+    private final ShardedStock shardedStock;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public CatalogImportService(SweetRepository sweetRepository,
+                                InventoryLedger inventoryLedger,
+                                ShardedStock shardedStock,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${sweetshop.import.batch-size:500}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Import batch size must be at least 1");
+        }
+        this.sweetRepository = sweetRepository;
+        this.inventoryLedger = inventoryLedger;
+        this.shardedStock = shardedStock;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Import every row of an upload, streaming progress events to the client.
+     *
+     * @param in the upload
+     * @param format the upload format
+     * @param out the response stream for progress events
+     * @return the final event
+     * @throws IOException if reading the upload or writing progress fails
+     */
+    public ImportEvent importCatalog(InputStream in, ImportFormat format, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        Progress progress = new Progress();
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        ImportEvent result;
+        try (CatalogRowReader reader = format.open(in, objectMapper)) {
+            ImportRow row;
+            while ((row = reader.next()) != null) {
+                progress.rows++;
+                List<String> errors = row.isParsed() ? validate(row.getRequest()) : row.getErrors();
+                if (!errors.isEmpty()) {
+                    progress.failed++;
+                    write(generator, rowError(row, errors));
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    commit(batch, progress, generator);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                commit(batch, progress, generator);
+            }
+            result = progress.toEvent(ImportEvent.Type.COMPLETED, null);
+        } catch (IllegalArgumentException ex) {
+            // Rows still buffered were never written; they count as failed.
+            progress.failed += batch.size();
+            result = progress.toEvent(ImportEvent.Type.FAILED, List.of(ex.getMessage()));
+        }
+        write(generator, result);
+        generator.close();
+        log.info("Catalog import {}: {} rows, {} inserted, {} updated, {} failed", result.getType(),
+                result.getRows(), result.getInserted(), result.getUpdated(), result.getFailed());
+        return result;
+    }
+
+    private void commit(List<ImportRow> batch, Progress progress, JsonGenerator generator) throws IOException {
+        BatchResult result;
+        try {
+            result = transactionTemplate.execute(status -> upsert(batch));
+        } catch (RuntimeException ex) {
+            log.warn("Catalog import batch starting at line {} rolled back", batch.get(0).getLine(), ex);
+            progress.failed += batch.size();
+            write(generator, ImportEvent.builder()
+                    .type(ImportEvent.Type.ERROR)
+                    .line(batch.get(0).getLine())
+                    .errors(List.of("Batch of " + batch.size() + " rows rolled back: " + ex.getMessage()))
+                    .build());
+            return;
+        }
+        progress.inserted += result.inserted;
+        progress.updated += result.updated;
+        progress.failed += result.rejected.size();
+        for (ImportEvent rejected : result.rejected) {
+            write(generator, rejected);
+        }
+        write(generator, progress.toEvent(ImportEvent.Type.PROGRESS, null));
+    }
+
+    /**
+     * Insert new names and update existing ones; the lowest ID wins when a name repeats.
+     */
+    private BatchResult upsert(List<ImportRow> batch) {
+        Set<String> names = new LinkedHashSet<>();
+        batch.forEach(row -> names.add(row.getRequest().getName()));
+        Map<String, Sweet> byName = new HashMap<>();
+        for (Sweet sweet : sweetRepository.findByNameInOrderByIdAsc(names)) {
+            byName.putIfAbsent(sweet.getName(), sweet);
+        }
+
+        BatchResult result = new BatchResult();
+        List<Sweet> inserts = new ArrayList<>();
+        for (ImportRow row : batch) {
+            SweetRequest request = row.getRequest();
+            Sweet sweet = byName.get(request.getName());
+            if (sweet == null) {
+                sweet = new Sweet();
+                inserts.add(sweet);
+                byName.put(request.getName(), sweet);
+                result.inserted++;
+            } else if (sweet.getId() != null
+                    && (inventoryLedger.isManaged(sweet.getId()) || shardedStock.isManaged(sweet.getId()))) {
+                // Setting the row's quantity outright would be overwritten by in-memory or sharded stock.
+                result.rejected.add(rowError(row, List.of("quantity: Sweet " + sweet.getId()
+                        + " is not in DATABASE inventory mode")));
+                continue;
+            } else {
+                result.updated++;
+            }
+            sweet.setName(request.getName());
+            sweet.setCategory(request.getCategory());
+            sweet.setPrice(request.getPrice());
+            sweet.setQuantity(request.getQuantity());
+            sweet.setDescription(request.getDescription());
+        }
+        // Updates are dirty-checked; both are flushed as JDBC batches at commit.
+        sweetRepository.saveAll(inserts);
+        return result;
+    }
+
+    private List<String> validate(SweetRequest request) {
+        return validator.validate(request).stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .toList();
+    }
+
+    private static ImportEvent rowError(ImportRow row, List<String> errors) {
+        return ImportEvent.builder()
+                .type(ImportEvent.Type.ERROR)
+                .line(row.getLine())
+                .errors(errors)
+                .build();
+    }
+
+    private static void write(JsonGenerator generator, ImportEvent event) throws IOException {
+        generator.writeObject(event);
+        generator.writeRaw('\n');
+        generator.flush();
+    }
+
+    /**
+     * Running counts for the whole upload.
+     */
+    private static final class Progress {
+        private long rows;
+        private long inserted;
+        private long updated;
+        private long failed;
+
+        private ImportEvent toEvent(ImportEvent.Type type, List<String> errors) {
+            return ImportEvent.builder()
+                    .type(type)
+                    .errors(errors)
+                    .rows(rows)
+                    .inserted(inserted)
+                    .updated(updated)
+                    .failed(failed)
+                    .build();
+        }
+    }
+
+    /**
+     * Outcome of one committed batch.
+     */
+    private static final class BatchResult {
+        private int inserted;
+        private int updated;
+        private final List<ImportEvent> rejected = new ArrayList<>();
+    }
+}
@@ -0,0 +1,216 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.CheckoutItem;
+import com.sweetshop.dto.CheckoutLineResponse;
+import com.sweetshop.dto.CheckoutResponse;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.inventory.InventoryLedger;
+import com.sweetshop.inventory.InventoryMode;
+import com.sweetshop.inventory.LiveStock;
+import com.sweetshop.inventory.ShardedStock;
+import com.sweetshop.repository.SweetRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service for buying several sweets in one all-or-nothing transaction.
+ * Every plain row in the cart is locked with one query in ascending ID order, all lines are
+ * checked in memory, and the decrements are flushed together as one JDBC batch of
+ * version-checked UPDATEs, so an order costs two round trips however many lines it has.
+ *
+ * <p>Ledger and sharded lines are taken first through their own purchase paths, so a cart
+ * holding a hot sweet neither locks its row nor serializes with other carts. If the order
+ * does not go through, those units are given back.</p>
+ */
+@Slf4j
+@Service
+public class CheckoutService {
+
+    private final SweetRepository sweetRepository;
+    private final InventoryLedger inventoryLedger;
+    private final ShardedStock shardedStock;
+    private final LiveStock liveStock;
+    private final TransactionTemplate transactionTemplate;
+
+    public CheckoutService(SweetRepository sweetRepository,
+                           InventoryLedger inventoryLedger,
+                           ShardedStock shardedStock,
+                           LiveStock liveStock,
+                           PlatformTransactionManager transactionManager) {
+        this.sweetRepository = sweetRepository;
+        this.inventoryLedger = inventoryLedger;
+        this.shardedStock = shardedStock;
+        this.liveStock = liveStock;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Buy every item in the cart, or none of them.
+     *
+     * @param items the cart lines; a sweet may appear on several lines
+     * @return the per-line outcome, in request order
+     */
+    public CheckoutResponse checkout(List<CheckoutItem> items) {
+        CheckoutResponse response = attempt(items);
+        if (!response.isCompleted() && discoverShards(response)) {
+            // A short row belonged to a sweet another instance had moved into shards.
+            return attempt(items);
+        }
+        return response;
+    }
+
+    private boolean discoverShards(CheckoutResponse response) {
+        boolean discovered = false;
+        for (CheckoutLineResponse line : response.getLines()) {
+            if (line.getStatus() == CheckoutLineResponse.Status.INSUFFICIENT_QUANTITY) {
+                discovered |= shardedStock.discover(line.getSweetId());
+            }
+        }
+        return discovered;
+    }
+
+    private CheckoutResponse attempt(List<CheckoutItem> items) {
+        Map<Long, Integer> wanted = new TreeMap<>();
+        for (CheckoutItem item : items) {
+            wanted.merge(item.getSweetId(), item.getQuantity(), Integer::sum);
+        }
+
+        Map<Long, InventoryMode> modes = new HashMap<>();
+        Order order = null;
+        try {
+            boolean taken = takeManaged(wanted, modes);
+            order = transactionTemplate.execute(status -> checkout(wanted, modes, taken, status));
+        } finally {
+            if (order == null || !order.completed) {
+                modes.forEach((id, mode) -> giveBack(id, mode, wanted.get(id)));
+            }
+        }
+
+        List<CheckoutLineResponse> lines = new ArrayList<>(items.size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (CheckoutItem item : items) {
+            Sweet sweet = order.sweets.get(item.getSweetId());
+            CheckoutLineResponse line = toLine(item, sweet == null ? null : liveStock.apply(sweet),
+                    wanted, order.completed);
+            if (order.completed) {
+                total = total.add(line.getLineTotal());
+            }
+            lines.add(line);
+        }
+        return CheckoutResponse.builder()
+                .completed(order.completed)
+                .lines(lines)
+                .total(total)
+                .build();
+    }
+
+    /**
+     * Take the ledger and sharded lines, stopping at the first that is short.
+     *
+     * @param modes receives the lines taken outside the sweets table
+     * @return true if every such line was taken
+     */
+    private boolean takeManaged(Map<Long, Integer> wanted, Map<Long, InventoryMode> modes) {
+        for (Map.Entry<Long, Integer> entry : wanted.entrySet()) {
+            Long id = entry.getKey();
+            int quantity = entry.getValue();
+            try {
+                if (inventoryLedger.purchase(id, quantity).isPresent()) {
+                    modes.put(id, InventoryMode.LEDGER);
+                } else if (shardedStock.purchase(id, quantity)) {
+                    modes.put(id, InventoryMode.SHARDED);
+                }
+            } catch (IllegalArgumentException ex) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Order checkout(Map<Long, Integer> wanted, Map<Long, InventoryMode> modes, boolean taken,
+                           TransactionStatus status) {
+        Map<Long, Sweet> sweets = new HashMap<>();
+        List<Long> rowIds = wanted.keySet().stream().filter(id -> !modes.containsKey(id)).toList();
+        if (taken && !rowIds.isEmpty()) {
+            sweetRepository.findAllByIdForUpdate(rowIds).forEach(sweet -> sweets.put(sweet.getId(), sweet));
+        }
+        // Names and prices only; the stock of these was decided outside the table.
+        List<Long> readIds = wanted.keySet().stream().filter(id -> !sweets.containsKey(id)).toList();
+        sweetRepository.findAllById(readIds).forEach(sweet -> sweets.put(sweet.getId(), sweet));
+
+        boolean completed = taken && wanted.entrySet().stream().allMatch(entry -> {
+            Sweet sweet = sweets.get(entry.getKey());
+            return sweet != null && (modes.containsKey(entry.getKey()) || sweet.getQuantity() >= entry.getValue());
+        });
+        if (completed) {
+            // Dirty-checked at commit; Hibernate batches the UPDATEs in ID order.
+            rowIds.forEach(id -> sweets.get(id).purchase(wanted.get(id)));
+        } else {
+            status.setRollbackOnly();
+        }
+        return new Order(sweets, completed);
+    }
+
+    private void giveBack(Long id, InventoryMode mode, int quantity) {
+        try {
+            if (mode == InventoryMode.LEDGER) {
+                inventoryLedger.refund(id, quantity);
+            } else {
+                shardedStock.giveBack(id, quantity);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Failed to give back {} units of sweet {} after a checkout did not complete", quantity, id, ex);
+        }
+    }
+
+    private static CheckoutLineResponse toLine(CheckoutItem item, Sweet sweet, Map<Long, Integer> wanted,
+                                               boolean completed) {
+        if (sweet == null) {
+            return CheckoutLineResponse.builder()
+                    .sweetId(item.getSweetId())
+                    .status(CheckoutLineResponse.Status.NOT_FOUND)
+                    .quantity(item.getQuantity())
+                    .build();
+        }
+        CheckoutLineResponse.Status status;
+        if (completed) {
+            status = CheckoutLineResponse.Status.PURCHASED;
+        } else if (sweet.getQuantity() < wanted.get(item.getSweetId())) {
+            status = CheckoutLineResponse.Status.INSUFFICIENT_QUANTITY;
+        } else {
+            status = CheckoutLineResponse.Status.NOT_PURCHASED;
+        }
+        return CheckoutLineResponse.builder()
+                .sweetId(sweet.getId())
+                .status(status)
+                .name(sweet.getName())
+                .quantity(item.getQuantity())
+                .unitPrice(sweet.getPrice())
+                .lineTotal(sweet.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                .remainingQuantity(sweet.getQuantity())
+                .build();
+    }
+
+    /**
+     * The rows read for an order, and whether it went through.
+     */
+    private static final class Order {
+        private final Map<Long, Sweet> sweets;
+        private final boolean completed;
+
+        private Order(Map<Long, Sweet> sweets, boolean completed) {
+            this.sweets = sweets;
+            this.completed = completed;
+        }
+    }
+}
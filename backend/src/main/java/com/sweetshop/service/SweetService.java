@@ -1,14 +1,53 @@
 package com.sweetshop.service;
 
+import com.sweetshop.cache.SearchKey;
+import com.sweetshop.cache.SearchResultCache;
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.concurrent.OptimisticRetry;
+import com.sweetshop.dto.BulkRestockResponse;
+import com.sweetshop.dto.CatalogVersion;
+import com.sweetshop.dto.RestockItem;
+import com.sweetshop.dto.RestockLineResponse;
 import com.sweetshop.dto.SweetRequest;
 import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
 import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.inventory.InventoryLedger;
+import com.sweetshop.inventory.InventoryMode;
+import com.sweetshop.inventory.LiveStock;
+import com.sweetshop.inventory.PurchaseBatcher;
+import com.sweetshop.inventory.ShardedStock;
+import com.sweetshop.pagination.CatalogPage;
+import com.sweetshop.pagination.KeysetCursor;
+import com.sweetshop.pagination.SweetSortField;
+import com.sweetshop.projection.SweetField;
+import com.sweetshop.repository.SweetBatchRepository;
 import com.sweetshop.repository.SweetRepository;
+import com.sweetshop.search.FacetCounts;
+import com.sweetshop.search.FacetIndex;
+import com.sweetshop.search.FuzzyIndex;
+import com.sweetshop.search.PriceIndex;
+import com.sweetshop.search.SuggestIndex;
+import com.sweetshop.search.TrigramIndex;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
 
 /**
  * Service for sweet-related operations.
@@ -19,6 +58,22 @@ import java.util.List;
 public class SweetService {
 
     private final SweetRepository sweetRepository;
+    private final SweetCatalogCache sweetCatalogCache;
+    private final TrigramIndex trigramIndex;
+    private final FuzzyIndex fuzzyIndex;
+    private final SuggestIndex suggestIndex;
+    private final FacetIndex facetIndex;
+    private final PriceIndex priceIndex;
+    private final SearchResultCache searchResultCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OptimisticRetry optimisticRetry;
+    private final InventoryLedger inventoryLedger;
+    private final ShardedStock shardedStock;
+    private final PurchaseBatcher purchaseBatcher;
+    private final LiveStock liveStock;
+
+    @Value("${sweetshop.pagination.max-page-size:100}")
+    private int maxPageSize = 100;
 
     /**
      * Add a new sweet to the inventory.
@@ -40,43 +95,170 @@ public class SweetService {
 
     /**
      * Get all sweets from the inventory.
+     * Served from the catalog cache with live quantities; the returned sweets are read-only.
      *
      * @return list of all sweets
      */
     public List<Sweet> getAllSweets() {
-        return sweetRepository.findAll();
+        return liveStock.apply(sweetCatalogCache.getAll());
+    }
+
+    /**
+     * Get the current catalog version for conditional requests.
+     * Served from the catalog cache, so validators cost no query.
+     *
+     * @return the catalog version, including purchases not yet in the sweets table
+     */
+    public CatalogVersion getCatalogVersion() {
+        return sweetCatalogCache.getVersion().withLiveSales(liveStock.getSaleCount(), liveStock.lastSaleAt());
+    }
+
+    /**
+     * Get when a sweet last changed, including purchases not yet in its row.
+     *
+     * @param sweet the sweet
+     * @return epoch millis, or -1 if unknown
+     */
+    public long getLastModified(Sweet sweet) {
+        long updatedAt = sweet.getUpdatedAt() == null ? -1 : sweet.getUpdatedAt();
+        long lastSaleAt = liveStock.lastSaleAt(sweet.getId());
+        return lastSaleAt == 0 ? updatedAt : Math.max(updatedAt, lastSaleAt);
+    }
+
+    /**
+     * Get one keyset page of the catalog.
+     * Each page seeks past the last row of the previous one, so deep pages cost
+     * the same as the first page.
+     *
+     * @param sort the sort field for the first page (id, price or updatedAt)
+     * @param direction the sort direction for the first page (asc or desc)
+     * @param cursor the continuation token from the previous page (optional)
+     * @param size the requested page size, capped at the configured maximum
+     * @return the page
+     * @throws IllegalArgumentException if the sort, direction, cursor or size is invalid
+     */
+    public CatalogPage getSweetsPage(String sort, String direction, String cursor, int size) {
+        return getSweetsPage(sort, direction, cursor, size, SweetField.all());
+    }
+
+    /**
+     * Get one keyset page of the catalog, reading only the selected columns.
+     * The sort column is read as well, since the next cursor is built from it.
+     *
+     * @param sort the sort field for the first page (id, price or updatedAt)
+     * @param direction the sort direction for the first page (asc or desc)
+     * @param cursor the continuation token from the previous page (optional)
+     * @param size the requested page size, capped at the configured maximum
+     * @param fields the fields the caller will read
+     * @return the page
+     * @throws IllegalArgumentException if the sort, direction, cursor or size is invalid
+     */
+    public CatalogPage getSweetsPage(String sort, String direction, String cursor, int size,
+                                     Set<SweetField> fields) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        int pageSize = Math.min(size, maxPageSize);
+        // Fetch one extra row to learn whether another page follows.
+        Pageable window = PageRequest.of(0, pageSize + 1);
+
+        SweetSortField sortField;
+        Sort.Direction sortDirection;
+        KeysetCursor position = null;
+        if (cursor == null || cursor.isBlank()) {
+            sortField = SweetSortField.fromParameter(sort);
+            sortDirection = Sort.Direction.fromString(direction);
+        } else {
+            position = KeysetCursor.decode(cursor);
+            sortField = position.getSortField();
+            sortDirection = position.getDirection();
+        }
+
+        List<Sweet> rows;
+        if (fields.size() < SweetField.values().length) {
+            rows = sweetRepository.findPageColumns(fields, sortField, sortDirection, position, pageSize + 1);
+        } else if (position == null) {
+            rows = sweetRepository.findAllBy(PageRequest.of(0, pageSize + 1, sortField.toSort(sortDirection)));
+        } else {
+            rows = findPageAfter(position, window);
+        }
+
+        if (rows.size() <= pageSize) {
+            return new CatalogPage(liveStock.apply(rows), null);
+        }
+        List<Sweet> items = rows.subList(0, pageSize);
+        Sweet last = items.get(pageSize - 1);
+        String next = new KeysetCursor(sortField, sortDirection, sortValue(sortField, last), last.getId()).encode();
+        return new CatalogPage(liveStock.apply(items), next);
     }
 
     /**
      * Get a sweet by its ID.
+     * Served from the catalog cache; the returned sweet is read-only.
      *
      * @param id the sweet ID
      * @return the sweet
      * @throws ResourceNotFoundException if sweet is not found
      */
     public Sweet getSweetById(Long id) {
-        return sweetRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Sweet not found with id: " + id));
+        return liveStock.apply(sweetCatalogCache.get(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Sweet not found with id: " + id)));
+    }
+
+    /**
+     * Get several sweets by ID in one call.
+     * Served from the catalog cache, with all misses loaded by a single query.
+     *
+     * @param ids the sweet IDs; duplicates are ignored
+     * @return the sweets that exist, in request order
+     * @throws IllegalArgumentException if no IDs or more than the page size maximum are given
+     */
+    public List<Sweet> getSweetsByIds(List<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        if (distinct.isEmpty()) {
+            throw new IllegalArgumentException("At least one id is required");
+        }
+        if (distinct.size() > maxPageSize) {
+            throw new IllegalArgumentException("At most " + maxPageSize + " ids can be requested at once");
+        }
+
+        Map<Long, Sweet> found = sweetCatalogCache.getMany(distinct);
+        List<Sweet> sweets = new ArrayList<>(found.size());
+        for (Long id : distinct) {
+            Sweet sweet = found.get(id);
+            if (sweet != null) {
+                sweets.add(liveStock.apply(sweet));
+            }
+        }
+        return sweets;
     }
 
     /**
      * Update a sweet's details.
+     * A concurrent write to the same sweet makes the save fail its version check;
+     * the update is then re-applied to a fresh copy of the row.
      *
      * @param id the sweet ID
      * @param request the updated sweet request
      * @return the updated sweet
      * @throws ResourceNotFoundException if sweet is not found
+     * @throws com.sweetshop.exception.ConcurrentUpdateException if every retry conflicted
      */
     public Sweet updateSweet(Long id, SweetRequest request) {
-        Sweet sweet = getSweetById(id);
+        Supplier<Sweet> update = () -> optimisticRetry.execute(id, () -> {
+            Sweet sweet = loadSweet(id);
 
-        sweet.setName(request.getName());
-        sweet.setCategory(request.getCategory());
-        sweet.setPrice(request.getPrice());
-        sweet.setQuantity(request.getQuantity());
-        sweet.setDescription(request.getDescription());
+            sweet.setName(request.getName());
+            sweet.setCategory(request.getCategory());
+            sweet.setPrice(request.getPrice());
+            sweet.setQuantity(request.getQuantity());
+            sweet.setDescription(request.getDescription());
 
-        return sweetRepository.save(sweet);
+            return sweetRepository.save(sweet);
+        });
+        // The row's quantity is set outright, so in-memory or sharded stock is folded in first.
+        return inventoryLedger.whileSuspended(id, () -> shardedStock.whileSuspended(id, update));
     }
 
     /**
@@ -94,6 +276,10 @@ public class SweetService {
 
     /**
      * Purchase a sweet, reducing its quantity.
+     * Ledger sweets are decided in memory without a database round trip, and sharded
+     * sweets update one of their shard rows. With batching enabled, concurrent purchases of
+     * the same sweet share one transaction. Otherwise the stock check and decrement are
+     * one conditional UPDATE, so concurrent purchases cannot oversell or overwrite each other.
      *
      * @param id the sweet ID
      * @param quantity the quantity to purchase
@@ -102,13 +288,41 @@ public class SweetService {
      * @throws IllegalArgumentException if quantity is insufficient
      */
     public Sweet purchaseSweet(Long id, Integer quantity) {
-        Sweet sweet = getSweetById(id);
-        sweet.purchase(quantity);
-        return sweetRepository.save(sweet);
+        OptionalInt remaining = inventoryLedger.purchase(id, quantity);
+        if (remaining.isPresent()) {
+            return sweetCatalogCache.get(id)
+                    .map(sweet -> sweet.toBuilder().quantity(remaining.getAsInt()).build())
+                    .orElseThrow(() -> new ResourceNotFoundException("Sweet not found with id: " + id));
+        }
+        if (shardedStock.purchase(id, quantity)) {
+            return getSweetById(id);
+        }
+        try {
+            return purchaseFromRow(id, quantity);
+        } catch (IllegalArgumentException ex) {
+            // Another instance may have moved the stock into shards since this one last looked.
+            if (shardedStock.discover(id) && shardedStock.purchase(id, quantity)) {
+                return getSweetById(id);
+            }
+            throw ex;
+        }
+    }
+
+    private Sweet purchaseFromRow(Long id, Integer quantity) {
+        if (purchaseBatcher.isEnabled()) {
+            return purchaseBatcher.purchase(id, quantity);
+        }
+        if (sweetRepository.purchaseIfAvailable(id, quantity, System.currentTimeMillis()) == 0) {
+            if (!sweetRepository.existsById(id)) {
+                throw new ResourceNotFoundException("Sweet not found with id: " + id);
+            }
+            throw new IllegalArgumentException("Insufficient quantity available");
+        }
+        return publishUpdated(loadSweet(id));
     }
 
     /**
-     * Restock a sweet, increasing its quantity.
+     * Restock a sweet, increasing its quantity with a single UPDATE.
      *
      * @param id the sweet ID
      * @param quantity the quantity to add
@@ -116,9 +330,88 @@ public class SweetService {
      * @throws ResourceNotFoundException if sweet is not found
      */
     public Sweet restockSweet(Long id, Integer quantity) {
-        Sweet sweet = getSweetById(id);
-        sweet.restock(quantity);
-        return sweetRepository.save(sweet);
+        if (sweetRepository.restock(id, quantity, System.currentTimeMillis()) == 0) {
+            throw new ResourceNotFoundException("Sweet not found with id: " + id);
+        }
+        inventoryLedger.credit(id, quantity);
+        return liveStock.apply(publishUpdated(loadSweet(id)));
+    }
+
+    /**
+     * Restock many sweets in one transaction.
+     * The increments go out as JDBC batches, so round trips grow with the number of
+     * batches rather than lines; unknown sweets are reported per line and skipped.
+     *
+     * @param items the restock lines; a sweet may appear on several lines
+     * @return the per-line outcome, in request order
+     */
+    public BulkRestockResponse restockSweets(List<RestockItem> items) {
+        List<Long> ids = items.stream().map(RestockItem::getSweetId).toList();
+        List<Integer> quantities = items.stream().map(RestockItem::getQuantity).toList();
+        int[] updated = sweetRepository.restockAll(ids, quantities, System.currentTimeMillis());
+
+        Set<Long> distinct = new TreeSet<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] != 0) {
+                distinct.add(ids.get(i));
+                inventoryLedger.credit(ids.get(i), quantities.get(i));
+            }
+        }
+        Map<Long, Integer> newQuantities = new HashMap<>();
+        List<Long> restocked = new ArrayList<>(distinct);
+        int batchSize = SweetBatchRepository.BATCH_SIZE;
+        for (int from = 0; from < restocked.size(); from += batchSize) {
+            List<Long> chunk = restocked.subList(from, Math.min(from + batchSize, restocked.size()));
+            for (Sweet sweet : sweetRepository.findAllById(chunk)) {
+                // Bulk updates bypass the entity listener, so publish each written row here.
+                newQuantities.put(sweet.getId(), liveStock.apply(publishUpdated(sweet)).getQuantity());
+            }
+        }
+
+        List<RestockLineResponse> lines = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            boolean found = updated[i] != 0;
+            lines.add(RestockLineResponse.builder()
+                    .sweetId(ids.get(i))
+                    .status(found ? RestockLineResponse.Status.RESTOCKED : RestockLineResponse.Status.NOT_FOUND)
+                    .quantity(quantities.get(i))
+                    .newQuantity(found ? newQuantities.get(ids.get(i)) : null)
+                    .build());
+        }
+        int restockedLines = (int) lines.stream()
+                .filter(line -> line.getStatus() == RestockLineResponse.Status.RESTOCKED)
+                .count();
+        return BulkRestockResponse.builder()
+                .restocked(restockedLines)
+                .notFound(lines.size() - restockedLines)
+                .lines(lines)
+                .build();
+    }
+
+    /**
+     * Switch where a sweet's purchases are decided.
+     *
+     * @param id the sweet ID
+     * @param mode the inventory mode
+     * @return the sweet with its live quantity
+     * @throws ResourceNotFoundException if sweet is not found
+     */
+    public Sweet setInventoryMode(Long id, InventoryMode mode) {
+        switch (mode) {
+            case LEDGER -> {
+                shardedStock.disable(id);
+                inventoryLedger.enable(id);
+            }
+            case SHARDED -> {
+                inventoryLedger.disable(id);
+                shardedStock.enable(id);
+            }
+            default -> {
+                inventoryLedger.disable(id);
+                shardedStock.disable(id);
+            }
+        }
+        return getSweetById(id);
     }
 
     /**
@@ -131,6 +424,223 @@ public class SweetService {
      * @return list of matching sweets
      */
     public List<Sweet> searchSweets(String name, String category, BigDecimal minPrice, BigDecimal maxPrice) {
-        return sweetRepository.search(name, category, minPrice, maxPrice);
+        return searchSweets(name, null, category, minPrice, maxPrice);
+    }
+
+    /**
+     * Search for sweets by name, free text, category, or price range.
+     * Name and text terms are answered from the in-memory trigram index, with the
+     * remaining predicates applied to its candidates; price-only filters are answered
+     * from the sorted price index. Sweets from either index are read-only.
+     *
+     * @param name the substring the name must contain (optional)
+     * @param text the substring the name or description must contain (optional)
+     * @param category the category (optional)
+     * @param minPrice the minimum price (optional)
+     * @param maxPrice the maximum price (optional)
+     * @return list of matching sweets, ordered by price for price-only filters and by ID otherwise
+     */
+    public List<Sweet> searchSweets(String name, String text, String category,
+                                    BigDecimal minPrice, BigDecimal maxPrice) {
+        return searchSweets(name, text, category, minPrice, maxPrice, SweetField.all());
+    }
+
+    /**
+     * Search for sweets, reading only the selected fields when the search goes to the database.
+     * Index-backed searches return full sweets; callers map just the selected fields from them.
+     * Results are cached by their normalized criteria: terms are trimmed and matched
+     * case-insensitively, and blank terms are ignored.
+     *
+     * @param name the substring the name must contain (optional)
+     * @param text the substring the name or description must contain (optional)
+     * @param category the category (optional)
+     * @param minPrice the minimum price (optional)
+     * @param maxPrice the maximum price (optional)
+     * @param fields the fields the caller will read
+     * @return list of matching sweets, ordered by price for price-only filters and by ID otherwise
+     */
+    public List<Sweet> searchSweets(String name, String text, String category,
+                                    BigDecimal minPrice, BigDecimal maxPrice, Set<SweetField> fields) {
+        SearchKey key = SearchKey.of(name, text, category, minPrice, maxPrice);
+        return liveStock.apply(searchResultCache.get(key, fields, () -> search(key, fields)));
+    }
+
+    /**
+     * List sweets in price order, optionally within a price range and category.
+     * Served from the sorted price index; the returned sweets are read-only.
+     *
+     * @param minPrice the minimum price (optional)
+     * @param maxPrice the maximum price (optional)
+     * @param category the category (optional)
+     * @param direction asc for cheapest first, desc for most expensive first
+     * @param limit the maximum number of sweets, capped at the page size maximum
+     * @return the sweets ordered by price, then ID
+     * @throws IllegalArgumentException if the direction or limit is invalid
+     */
+    public List<Sweet> getSweetsByPrice(BigDecimal minPrice, BigDecimal maxPrice, String category,
+                                        String direction, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        boolean descending = Sort.Direction.fromString(direction).isDescending();
+        return liveStock.apply(priceIndex.range(minPrice, maxPrice, category, descending,
+                Math.min(limit, maxPageSize)));
+    }
+
+    /**
+     * Typo-tolerant search by name, ranked by edit distance and then popularity.
+     * Served from the in-memory fuzzy index; the returned sweets are read-only.
+     *
+     * @param name the possibly misspelled name
+     * @param category the category (optional)
+     * @param minPrice the minimum price (optional)
+     * @param maxPrice the maximum price (optional)
+     * @param limit the maximum number of results
+     * @return the best matches, closest first
+     * @throws IllegalArgumentException if the name is missing or the limit is not positive
+     */
+    public List<Sweet> fuzzySearchSweets(String name, String category, BigDecimal minPrice,
+                                         BigDecimal maxPrice, int limit) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Fuzzy search requires a name");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        return liveStock.apply(fuzzyIndex.search(name,
+                sweet -> (category == null || category.equals(sweet.getCategory()))
+                        && (minPrice == null || sweet.getPrice().compareTo(minPrice) >= 0)
+                        && (maxPrice == null || sweet.getPrice().compareTo(maxPrice) <= 0),
+                Math.min(limit, maxPageSize)));
+    }
+
+    /**
+     * Suggest sweet names and categories starting with the prefix, most popular first.
+     *
+     * @param prefix the typed prefix
+     * @param limit the maximum number of suggestions
+     * @return the suggestions
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public List<SuggestIndex.Suggestion> suggest(String prefix, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        return suggestIndex.suggest(prefix, limit);
+    }
+
+    /**
+     * Get per-category counts and a price histogram for a search filter.
+     * Each facet ignores its own filter; see {@link FacetCounts}.
+     *
+     * @param name the substring the name must contain (optional)
+     * @param text the substring the name or description must contain (optional)
+     * @param category the selected category (optional)
+     * @param minPrice the minimum price (optional)
+     * @param maxPrice the maximum price (optional)
+     * @param bucketWidth the histogram bucket width
+     * @return the facet counts
+     * @throws IllegalArgumentException if the bucket width is below one cent
+     */
+    public FacetCounts getFacets(String name, String text, String category,
+                                 BigDecimal minPrice, BigDecimal maxPrice, BigDecimal bucketWidth) {
+        if (isEmpty(name) && isEmpty(text)) {
+            return facetIndex.facets(category, minPrice, maxPrice, bucketWidth);
+        }
+
+        FacetCounts facets = new FacetCounts(category, minPrice, maxPrice, bucketWidth);
+        for (Sweet sweet : textMatches(name, text)) {
+            facets.add(sweet.getCategory(), FacetCounts.toCents(sweet.getPrice()), 1);
+        }
+        return facets;
+    }
+
+    /**
+     * Find sweets matching the name and text terms through the trigram index.
+     */
+    private List<Sweet> textMatches(String name, String text) {
+        if (isEmpty(name)) {
+            return trigramIndex.searchText(text);
+        }
+        List<Sweet> byName = trigramIndex.searchName(name);
+        if (isEmpty(text)) {
+            return byName;
+        }
+        String needle = text.toLowerCase(Locale.ROOT);
+        return byName.stream().filter(sweet -> containsText(sweet, needle)).toList();
+    }
+
+    private List<Sweet> search(SearchKey key, Set<SweetField> fields) {
+        String category = key.getCategory();
+        BigDecimal minPrice = key.getMinPrice();
+        BigDecimal maxPrice = key.getMaxPrice();
+        if (key.getName() == null && key.getText() == null) {
+            if (minPrice != null || maxPrice != null) {
+                return priceIndex.range(minPrice, maxPrice, category, false, Integer.MAX_VALUE);
+            }
+            if (fields.size() < SweetField.values().length) {
+                return sweetRepository.findColumns(fields, category);
+            }
+            return sweetRepository.search(null, category, null, null);
+        }
+
+        return textMatches(key.getName(), key.getText()).stream()
+                .filter(key::matches)
+                .toList();
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private boolean containsText(Sweet sweet, String needle) {
+        return sweet.getName().toLowerCase(Locale.ROOT).contains(needle)
+                || (sweet.getDescription() != null && sweet.getDescription().toLowerCase(Locale.ROOT).contains(needle));
+    }
+
+    private List<Sweet> findPageAfter(KeysetCursor position, Pageable window) {
+        boolean ascending = position.getDirection().isAscending();
+        Long id = position.getLastId();
+        return switch (position.getSortField()) {
+            case ID -> ascending
+                    ? sweetRepository.findPageAfterIdAsc(id, window)
+                    : sweetRepository.findPageAfterIdDesc(id, window);
+            case PRICE -> ascending
+                    ? sweetRepository.findPageAfterPriceAsc(position.getLastPrice(), id, window)
+                    : sweetRepository.findPageAfterPriceDesc(position.getLastPrice(), id, window);
+            case UPDATED_AT -> ascending
+                    ? sweetRepository.findPageAfterUpdatedAtAsc(position.getLastUpdatedAt(), id, window)
+                    : sweetRepository.findPageAfterUpdatedAtDesc(position.getLastUpdatedAt(), id, window);
+        };
+    }
+
+    private String sortValue(SweetSortField sortField, Sweet sweet) {
+        return switch (sortField) {
+            case ID -> String.valueOf(sweet.getId());
+            case PRICE -> sweet.getPrice().toPlainString();
+            case UPDATED_AT -> String.valueOf(sweet.getUpdatedAt());
+        };
+    }
+
+    /**
+     * Bulk UPDATEs bypass the JPA callbacks that normally publish change events,
+     * so publish the reloaded state here, after the UPDATE has committed.
+     */
+    private Sweet publishUpdated(Sweet sweet) {
+        eventPublisher.publishEvent(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet.toBuilder().build()));
+        return sweet;
+    }
+
+    /**
+     * Load a managed sweet from the repository, bypassing the cache.
+     * Write paths must never mutate the shared cached copies.
+     *
+     * @param id the sweet ID
+     * @return the sweet
+     * @throws ResourceNotFoundException if sweet is not found
+     */
+    private Sweet loadSweet(Long id) {
+        return sweetRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Sweet not found with id: " + id));
     }
 }
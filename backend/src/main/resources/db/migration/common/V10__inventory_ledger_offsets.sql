@@ -0,0 +1,8 @@
+-- Net units the in-memory ledger has written behind to each sweet, advanced in the same
+-- transaction as the sweets UPDATE. Journal replay compares it with the journal's own
+-- marks, so sales the table already holds are not applied twice after a crash.
+
+CREATE TABLE IF NOT EXISTS inventory_ledger_offsets (
+    sweet_id BIGINT NOT NULL PRIMARY KEY REFERENCES sweets (id) ON DELETE CASCADE,
+    units    BIGINT NOT NULL DEFAULT 0
+);
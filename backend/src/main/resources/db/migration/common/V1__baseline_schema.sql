@@ -0,0 +1,22 @@
+-- Schema as previously generated by Hibernate. Databases created before migrations
+-- were introduced are baselined at this version and start from V2.
+
+CREATE TABLE IF NOT EXISTS users (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username   VARCHAR(255) NOT NULL UNIQUE,
+    email      VARCHAR(255) NOT NULL UNIQUE,
+    password   VARCHAR(255) NOT NULL,
+    role       VARCHAR(255) NOT NULL CHECK (role IN ('USER', 'ADMIN')),
+    created_at BIGINT       NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS sweets (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name        VARCHAR(255)   NOT NULL,
+    category    VARCHAR(255)   NOT NULL,
+    price       NUMERIC(38, 2) NOT NULL,
+    quantity    INTEGER        NOT NULL,
+    description VARCHAR(255)   NOT NULL,
+    created_at  BIGINT         NOT NULL,
+    updated_at  BIGINT
+);
@@ -0,0 +1,5 @@
+-- Lifetime units sold, used to rank search results by popularity.
+
+ALTER TABLE sweets ADD COLUMN IF NOT EXISTS sold_count BIGINT DEFAULT 0;
+
+UPDATE sweets SET sold_count = 0 WHERE sold_count IS NULL;
@@ -0,0 +1,10 @@
+-- Indexes for the catalog queries in SweetRepository.
+
+-- search(): category equality, optionally narrowed by a price range.
+CREATE INDEX IF NOT EXISTS idx_sweets_category_price ON sweets (category, price);
+
+-- search() and findByPriceRange(): price range; findPageAfterPrice*(): (price, id) keyset pages.
+CREATE INDEX IF NOT EXISTS idx_sweets_price_id ON sweets (price, id);
+
+-- findPageAfterUpdatedAt*(): (updated_at, id) keyset pages; findCatalogVersion(): MAX(updated_at).
+CREATE INDEX IF NOT EXISTS idx_sweets_updated_at_id ON sweets (updated_at, id);
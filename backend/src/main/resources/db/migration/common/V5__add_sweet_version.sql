@@ -0,0 +1,3 @@
+-- Optimistic lock version for sweets; existing rows start at zero.
+
+ALTER TABLE sweets ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,10 @@
+-- Stock of hot sweets split across sub-rows, so concurrent purchases lock different rows.
+-- A sharded sweet's total stock is its own quantity plus the sum of its shards.
+
+CREATE TABLE IF NOT EXISTS sweet_stock_shards (
+    sweet_id   BIGINT  NOT NULL REFERENCES sweets (id) ON DELETE CASCADE,
+    shard      INTEGER NOT NULL,
+    quantity   INTEGER NOT NULL,
+    sold_count BIGINT  NOT NULL DEFAULT 0,
+    PRIMARY KEY (sweet_id, shard)
+);
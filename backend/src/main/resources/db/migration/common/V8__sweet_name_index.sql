@@ -0,0 +1,4 @@
+-- Catalog import matches incoming rows to existing sweets by exact name.
+
+-- findByNameIn(): name equality; the lowest ID wins when names repeat.
+CREATE INDEX IF NOT EXISTS idx_sweets_name_id ON sweets (name, id);
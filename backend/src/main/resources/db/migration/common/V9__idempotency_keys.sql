@@ -0,0 +1,14 @@
+-- Responses to requests sent with an Idempotency-Key, replayed when a client retries.
+-- A row without a status is claimed by a request still running; its lease is expires_at.
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(512) PRIMARY KEY,
+    request_hash    VARCHAR(64)  NOT NULL,
+    status          INTEGER,
+    content_type    VARCHAR(255),
+    response_body   TEXT,
+    expires_at      BIGINT       NOT NULL
+);
+
+-- deleteExpired(): periodic purge of expired keys and abandoned claims.
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
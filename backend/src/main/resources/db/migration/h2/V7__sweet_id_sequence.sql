@@ -0,0 +1,7 @@
+-- Embedded-database counterpart of postgresql/V7__sweet_id_sequence.sql.
+-- Embedded databases are created empty, so the sequence can start at its first block.
+
+CREATE SEQUENCE IF NOT EXISTS sweet_id_seq START WITH 50 INCREMENT BY 50;
+
+ALTER TABLE sweets ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE sweets ALTER COLUMN id SET DEFAULT NEXT VALUE FOR sweet_id_seq;
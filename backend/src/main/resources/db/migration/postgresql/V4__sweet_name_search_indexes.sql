@@ -0,0 +1,9 @@
+-- PostgreSQL-only indexes for name search.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- search(): name ILIKE '%term%' is answered from trigrams instead of a sequential scan.
+CREATE INDEX IF NOT EXISTS idx_sweets_name_trgm ON sweets USING gin (name gin_trgm_ops);
+
+-- Case-insensitive equality and prefix lookups on name.
+CREATE INDEX IF NOT EXISTS idx_sweets_name_lower ON sweets (lower(name) text_pattern_ops);
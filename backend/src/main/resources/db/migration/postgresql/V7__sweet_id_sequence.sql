@@ -0,0 +1,12 @@
+-- Sweets take IDs from a sequence instead of an identity column, so Hibernate can batch
+-- inserts: it reserves blocks of 50 IDs per call instead of reading back each row's key.
+
+CREATE SEQUENCE IF NOT EXISTS sweet_id_seq INCREMENT BY 50;
+
+-- Hibernate's pooled optimizer uses the 50 IDs up to and including each value it draws,
+-- so the first value handed out must leave a full block above the existing rows.
+SELECT setval('sweet_id_seq', COALESCE((SELECT MAX(id) FROM sweets), 0) + 50, false);
+
+ALTER TABLE sweets ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE sweets ALTER COLUMN id SET DEFAULT nextval('sweet_id_seq');
+ALTER SEQUENCE sweet_id_seq OWNED BY sweets.id;
@@ -0,0 +1,115 @@
+package com.sweetshop.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Helpers shared by the opt-in benchmarks.
+ * Benchmarks only run with {@code -Dbenchmark=true}; sizes come from {@code -Dbenchmark.sizes}.
+ */
+final class BenchmarkSupport {
+
+    private static final String[] WORDS = {
+            "gulab", "jamun", "kaju", "katli", "rasgulla", "barfi", "ladoo", "peda",
+            "jalebi", "halwa", "soan", "papdi", "kheer", "sandesh", "chocolate", "toffee"
+    };
+    private static final String[] CATEGORIES = {"Indian", "Chocolate", "Candy", "Bakery", "Dry Fruit"};
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Get the catalog sizes to benchmark.
+     *
+     * @return row counts, 10k/100k/1M by default
+     */
+    static int[] sizes() {
+        String value = System.getProperty("benchmark.sizes", "10000,100000,1000000");
+        return Arrays.stream(value.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * Replace the sweets table with {@code rows} deterministic synthetic sweets.
+     *
+     * @param jdbcTemplate the JDBC template
+     * @param rows the number of rows to insert
+     */
+    static void seedSweets(JdbcTemplate jdbcTemplate, int rows) {
+        jdbcTemplate.update("DELETE FROM sweets");
+        long now = System.currentTimeMillis();
+        List<Object[]> batch = new ArrayList<>(1000);
+        for (int i = 0; i < rows; i++) {
+            String name = WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+            batch.add(new Object[]{
+                    name,
+                    CATEGORIES[i % CATEGORIES.length],
+                    new java.math.BigDecimal((i % 5000) + 1).movePointLeft(2),
+                    i % 200,
+                    "Synthetic sweet number " + i,
+                    now,
+                    now + i
+            });
+            if (batch.size() == 1000 || i == rows - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO sweets (id, name, category, price, quantity, description, " +
+                        "created_at, updated_at, sold_count, version) " +
+                        "VALUES (NEXT VALUE FOR sweet_id_seq, ?, ?, ?, ?, ?, ?, ?, 0, 0)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Time an operation and print mean/p50/p99 latencies.
+     *
+     * @param label the row label
+     * @param warmup warm-up iterations (not recorded)
+     * @param iterations measured iterations
+     * @param operation the operation under test
+     * @return the median latency in microseconds
+     */
+    static double measure(String label, int warmup, int iterations, Runnable operation) {
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double mean = Arrays.stream(samples).average().orElse(0) / 1_000.0;
+        double p50 = samples[iterations / 2] / 1_000.0;
+        double p99 = samples[Math.min(iterations - 1, (int) Math.ceil(iterations * 0.99) - 1)] / 1_000.0;
+        System.out.printf(Locale.ROOT, "%-48s mean %10.1f us   p50 %10.1f us   p99 %10.1f us%n",
+                label, mean, p50, p99);
+        return p50;
+    }
+
+    /**
+     * Run an operation on the current thread and print the bytes it allocated per call.
+     * Relies on the HotSpot per-thread allocation counter.
+     *
+     * @param label the row label
+     * @param iterations measured iterations
+     * @param operation the operation under test
+     * @return the mean allocation in bytes
+     */
+    static long measureAllocation(String label, int iterations, Runnable operation) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        operation.run();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        long perCall = (threads.getThreadAllocatedBytes(threadId) - before) / iterations;
+        System.out.printf(Locale.ROOT, "%-48s %,14d bytes/op%n", label, perCall);
+        return perCall;
+    }
+}
@@ -0,0 +1,75 @@
+package com.sweetshop.benchmark;
+
+import com.sweetshop.idempotency.IdempotencyStore;
+import com.sweetshop.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures Idempotency-Key lookups as the number of stored keys grows.
+ * A retry the instance has seen is answered from memory; one it has not costs a failed
+ * primary-key INSERT and a primary-key read. Neither should slow down with table size.
+ * Run with {@code mvn test -Dtest=IdempotencyStoreBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class IdempotencyStoreBenchmarkTest {
+
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 2_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    @Test
+    void benchmarkReplayLookups() {
+        for (int rows : BenchmarkSupport.sizes()) {
+            seedKeys(rows);
+            IdempotencyStore store = new IdempotencyStore(repository, Duration.ofHours(24), Duration.ofSeconds(60),
+                    rows, Duration.ofHours(1));
+
+            System.out.printf("%n== replayed Idempotency-Key lookups, %d stored keys ==%n", rows);
+            AtomicInteger next = new AtomicInteger();
+            BenchmarkSupport.measure("database (key not in memory)", WARMUP, ITERATIONS,
+                    () -> replay(store, next.getAndIncrement()));
+            AtomicInteger again = new AtomicInteger();
+            BenchmarkSupport.measure("memory (key seen by this instance)", WARMUP, ITERATIONS,
+                    () -> replay(store, again.getAndIncrement() % (WARMUP + ITERATIONS)));
+        }
+        jdbcTemplate.update("DELETE FROM idempotency_keys");
+    }
+
+    private static void replay(IdempotencyStore store, int i) {
+        assertEquals(IdempotencyStore.Outcome.Kind.REPLAY, store.begin("bench\n" + i, "hash").getKind());
+    }
+
+    private void seedKeys(int rows) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys");
+        long expiresAt = System.currentTimeMillis() + Duration.ofHours(24).toMillis();
+        List<Object[]> batch = new ArrayList<>(1000);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{"bench\n" + i, expiresAt});
+            if (batch.size() == 1000 || i == rows - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO idempotency_keys (idempotency_key, request_hash, status, " +
+                        "content_type, response_body, expires_at) " +
+                        "VALUES (?, 'hash', 200, 'application/json', '{\"id\":1}', ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
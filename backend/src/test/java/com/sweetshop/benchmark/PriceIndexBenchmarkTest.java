@@ -0,0 +1,80 @@
+package com.sweetshop.benchmark;
+
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.repository.SweetRepository;
+import com.sweetshop.search.PriceIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the sorted price index against the repository for price-range filters
+ * and "cheapest N" / "most expensive N" listings.
+ * Run with {@code mvn test -Dtest=PriceIndexBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PriceIndexBenchmarkTest {
+
+    private static final BigDecimal MIN = new BigDecimal("2.00");
+    private static final BigDecimal MAX = new BigDecimal("2.50");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SweetRepository sweetRepository;
+
+    @Autowired
+    private SweetCatalogCache sweetCatalogCache;
+
+    @Test
+    void benchmarkPriceRange() {
+        for (int rows : BenchmarkSupport.sizes()) {
+            BenchmarkSupport.seedSweets(jdbcTemplate, rows);
+            sweetCatalogCache.invalidateAll();
+            PriceIndex priceIndex = new PriceIndex(sweetCatalogCache, Duration.ofHours(1));
+
+            int expected = sweetRepository.search(null, null, MIN, MAX).size();
+            assertEquals(expected, priceIndex.range(MIN, MAX, null, false, Integer.MAX_VALUE).size());
+
+            System.out.printf("%n== price range %s..%s, %d rows, %d matches ==%n", MIN, MAX, rows, expected);
+            BenchmarkSupport.measure("repository range", 3, 20,
+                    () -> sweetRepository.search(null, null, MIN, MAX));
+            BenchmarkSupport.measure("price index range", 20, 200,
+                    () -> priceIndex.range(MIN, MAX, null, false, Integer.MAX_VALUE));
+        }
+        jdbcTemplate.update("DELETE FROM sweets");
+        sweetCatalogCache.invalidateAll();
+    }
+
+    @Test
+    void benchmarkTopByPrice() {
+        PageRequest top20 = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "price", "id"));
+        for (int rows : BenchmarkSupport.sizes()) {
+            BenchmarkSupport.seedSweets(jdbcTemplate, rows);
+            sweetCatalogCache.invalidateAll();
+            PriceIndex priceIndex = new PriceIndex(sweetCatalogCache, Duration.ofHours(1));
+            priceIndex.range(null, null, null, true, 20);
+
+            System.out.printf("%n== 20 most expensive, %d rows ==%n", rows);
+            BenchmarkSupport.measure("repository ORDER BY price DESC", 3, 20,
+                    () -> sweetRepository.findAllBy(top20));
+            BenchmarkSupport.measure("price index descending", 50, 1_000,
+                    () -> priceIndex.range(null, null, null, true, 20));
+        }
+        jdbcTemplate.update("DELETE FROM sweets");
+        sweetCatalogCache.invalidateAll();
+    }
+}
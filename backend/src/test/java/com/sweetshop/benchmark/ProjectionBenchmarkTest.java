@@ -0,0 +1,47 @@
+package com.sweetshop.benchmark;
+
+import com.sweetshop.dto.SweetResponse;
+import com.sweetshop.repository.SweetRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares full entity hydration against the constructor projection used for
+ * catalog listings, in latency and bytes allocated per listing.
+ * Run with {@code mvn test -Dtest=ProjectionBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProjectionBenchmarkTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SweetRepository sweetRepository;
+
+    @Test
+    void benchmarkListing() {
+        int rows = Integer.getInteger("benchmark.rows", 100_000);
+        BenchmarkSupport.seedSweets(jdbcTemplate, rows);
+        assertEquals(sweetRepository.findAll().size(), sweetRepository.findAllRows().size());
+
+        Runnable hydrated = () -> sweetRepository.findAll().stream().map(SweetResponse::from).toList();
+        Runnable projected = () -> sweetRepository.findAllRows().stream().map(SweetResponse::from).toList();
+
+        System.out.printf("%n== full listing, %d rows ==%n", rows);
+        BenchmarkSupport.measure("managed entities + mapping", 2, 10, hydrated);
+        BenchmarkSupport.measure("constructor projection + mapping", 2, 10, projected);
+        BenchmarkSupport.measureAllocation("managed entities + mapping", 5, hydrated);
+        BenchmarkSupport.measureAllocation("constructor projection + mapping", 5, projected);
+
+        jdbcTemplate.update("DELETE FROM sweets");
+    }
+}
@@ -0,0 +1,102 @@
+package com.sweetshop.benchmark;
+
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.inventory.PurchaseBatcher;
+import com.sweetshop.repository.SweetRepository;
+import com.sweetshop.service.SweetService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares purchase throughput on one hot sweet with one transaction per purchase
+ * versus group commit through the purchase batcher, as threads are added.
+ * H2 commits without an fsync, so the gap is wider against PostgreSQL.
+ * Run with {@code mvn test -Dtest=PurchaseBatchingBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PurchaseBatchingBenchmarkTest {
+
+    private static final int PURCHASES_PER_THREAD = 2_000;
+
+    @Autowired
+    private SweetService sweetService;
+
+    @Autowired
+    private SweetRepository sweetRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void benchmarkHotSweetPurchases() throws Exception {
+        PurchaseBatcher batcher = new PurchaseBatcher(sweetRepository, eventPublisher, transactionManager,
+                true, Duration.ofMillis(1), 256);
+        System.out.printf("%n== purchases of 1 unit on one sweet ==%n");
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            run("unbatched", threads, sweetService::purchaseSweet);
+            long batches = batcher.getBatchCount();
+            run("batched 1ms", threads, batcher::purchase);
+            System.out.printf(Locale.ROOT, "%-16s %2d threads %14.1f purchases/txn%n", "", threads,
+                    (double) PURCHASES_PER_THREAD * threads / (batcher.getBatchCount() - batches));
+        }
+    }
+
+    private void run(String label, int threads, BiConsumer<Long, Integer> purchase) throws Exception {
+        int stock = PURCHASES_PER_THREAD * threads;
+        sweetRepository.deleteAll();
+        Long sweetId = sweetRepository.save(Sweet.builder()
+                .name("Hot Sweet")
+                .category("Candy")
+                .price(new BigDecimal("1.00"))
+                .quantity(stock)
+                .build()).getId();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < PURCHASES_PER_THREAD; i++) {
+                        purchase.accept(sweetId, 1);
+                    }
+                    return null;
+                }));
+            }
+            long began = System.nanoTime();
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            double seconds = (System.nanoTime() - began) / 1_000_000_000.0;
+            System.out.printf(Locale.ROOT, "%-16s %2d threads %14.0f purchases/s%n",
+                    label, threads, stock / seconds);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+    }
+}
@@ -0,0 +1,74 @@
+package com.sweetshop.benchmark;
+
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.repository.SweetRepository;
+import com.sweetshop.search.FuzzyIndex;
+import com.sweetshop.search.TrigramIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the trigram index against the ILIKE '%term%' repository query,
+ * and measures fuzzy lookup latency as the catalog grows.
+ * Run with {@code mvn test -Dtest=SearchBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SearchBenchmarkTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SweetRepository sweetRepository;
+
+    @Autowired
+    private SweetCatalogCache sweetCatalogCache;
+
+    @Test
+    void benchmarkNameSearch() {
+        String term = "jamun kat";
+        for (int rows : BenchmarkSupport.sizes()) {
+            BenchmarkSupport.seedSweets(jdbcTemplate, rows);
+            sweetCatalogCache.invalidateAll();
+            TrigramIndex trigramIndex = new TrigramIndex(sweetCatalogCache, Duration.ofHours(1));
+
+            int expected = sweetRepository.search(term, null, null, null).size();
+            assertEquals(expected, trigramIndex.searchName(term).size());
+
+            System.out.printf("%n== name search '%s', %d rows, %d matches ==%n", term, rows, expected);
+            BenchmarkSupport.measure("repository ILIKE", 3, 20,
+                    () -> sweetRepository.search(term, null, null, null));
+            BenchmarkSupport.measure("trigram index", 50, 1_000,
+                    () -> trigramIndex.searchName(term));
+        }
+        jdbcTemplate.update("DELETE FROM sweets");
+        sweetCatalogCache.invalidateAll();
+    }
+
+    @Test
+    void benchmarkFuzzySearch() {
+        String query = "gulab jamon";
+        for (int rows : BenchmarkSupport.sizes()) {
+            BenchmarkSupport.seedSweets(jdbcTemplate, rows);
+            sweetCatalogCache.invalidateAll();
+            FuzzyIndex fuzzyIndex = new FuzzyIndex(sweetCatalogCache, Duration.ofHours(1));
+            fuzzyIndex.search(query);
+
+            System.out.printf("%n== fuzzy search '%s', %d rows ==%n", query, rows);
+            BenchmarkSupport.measure("BK-tree, distance <= 2", 50, 1_000, () -> fuzzyIndex.search(query));
+            BenchmarkSupport.measure("BK-tree, misspelled token", 50, 1_000, () -> fuzzyIndex.search("rasgula"));
+        }
+        jdbcTemplate.update("DELETE FROM sweets");
+        sweetCatalogCache.invalidateAll();
+    }
+}
@@ -0,0 +1,67 @@
+package com.sweetshop.benchmark;
+
+import com.sweetshop.inventory.ShardedCounter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures purchase throughput on one hot sweet's in-memory stock as threads are added,
+ * with a single counter versus one shard per core.
+ * Run with {@code mvn test -Dtest=ShardedCounterBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ShardedCounterBenchmarkTest {
+
+    private static final int TAKES_PER_THREAD = 2_000_000;
+
+    @Test
+    void benchmarkContendedTakes() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%n== takes of 1 unit on one sweet, %d cores ==%n", cores);
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            run("1 shard", 1, threads);
+            run(cores + " shards", cores, threads);
+        }
+    }
+
+    private static void run(String label, int shards, int threads) throws Exception {
+        long stock = (long) TAKES_PER_THREAD * threads;
+        ShardedCounter counter = new ShardedCounter(ShardedCounter.split(stock, shards));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    // Stock matches the total takes, so a take only probes past its home shard near the end.
+                    for (int i = 0; i < TAKES_PER_THREAD; i++) {
+                        counter.take(1);
+                    }
+                    return null;
+                }));
+            }
+            long began = System.nanoTime();
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            double seconds = (System.nanoTime() - began) / 1_000_000_000.0;
+            System.out.printf(Locale.ROOT, "%-16s %2d threads %14.0f takes/s%n",
+                    label, threads, stock / seconds);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, counter.sum());
+    }
+}
@@ -0,0 +1,158 @@
+package com.sweetshop.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.inventory.LiveStock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CatalogSnapshot.
+ */
+@ExtendWith(MockitoExtension.class)
+class CatalogSnapshotTest {
+
+    @Mock
+    private SweetCatalogCache sweetCatalogCache;
+
+    @Mock
+    private LiveStock liveStock;
+
+    private final List<Runnable> queued = new ArrayList<>();
+    private CatalogSnapshot catalogSnapshot;
+
+    @BeforeEach
+    void setUp() {
+        catalogSnapshot = new CatalogSnapshot(sweetCatalogCache, new ObjectMapper(), liveStock, queued::add);
+        lenient().when(liveStock.apply(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void testCurrent_ReusesBytesUntilChanged() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(sweet(1L, 10)));
+
+        CatalogSnapshot.Snapshot first = catalogSnapshot.current();
+        CatalogSnapshot.Snapshot second = catalogSnapshot.current();
+
+        assertSame(first, second);
+        assertEquals(1, catalogSnapshot.getRebuildCount());
+        assertTrue(new String(first.getJson(), StandardCharsets.UTF_8).contains("\"quantity\":10"));
+    }
+
+    @Test
+    void testOnSweetChanged_CoalescesBackgroundRebuilds() {
+        when(sweetCatalogCache.getAll())
+                .thenReturn(List.of(sweet(1L, 10)))
+                .thenReturn(List.of(sweet(1L, 4)));
+        catalogSnapshot.current();
+
+        catalogSnapshot.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet(1L, 7)));
+        catalogSnapshot.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet(1L, 4)));
+        assertEquals(1, queued.size());
+        queued.get(0).run();
+
+        assertTrue(new String(catalogSnapshot.current().getJson(), StandardCharsets.UTF_8).contains("\"quantity\":4"));
+        assertEquals(2, catalogSnapshot.getRebuildCount());
+    }
+
+    @Test
+    void testCurrent_ServesLastSnapshotUntilRebuildLands() {
+        when(sweetCatalogCache.getAll())
+                .thenReturn(List.of(sweet(1L, 10)))
+                .thenReturn(List.of(sweet(1L, 9)));
+        CatalogSnapshot.Snapshot before = catalogSnapshot.current();
+
+        catalogSnapshot.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet(1L, 9)));
+
+        assertSame(before, catalogSnapshot.current());
+        queued.get(0).run();
+        assertTrue(new String(catalogSnapshot.current().getJson(), StandardCharsets.UTF_8).contains("\"quantity\":9"));
+    }
+
+    @Test
+    void testCurrent_PurchaseOutsideSweetsTableQueuesOneRebuild() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(sweet(1L, 10)));
+        CatalogSnapshot.Snapshot before = catalogSnapshot.current();
+
+        when(liveStock.getSaleCount()).thenReturn(1L);
+        when(liveStock.apply(anyList())).thenReturn(List.of(sweet(1L, 8)));
+
+        // Readers keep getting the last bytes and share one queued rebuild.
+        assertSame(before, catalogSnapshot.current());
+        assertSame(before, catalogSnapshot.current());
+        assertEquals(1, queued.size());
+        assertEquals(1, catalogSnapshot.getRebuildCount());
+
+        queued.get(0).run();
+
+        assertTrue(new String(catalogSnapshot.current().getJson(), StandardCharsets.UTF_8).contains("\"quantity\":8"));
+        assertEquals(2, catalogSnapshot.getRebuildCount());
+    }
+
+    @Test
+    void testCurrent_RebuildsWhenCacheReloadsCatalog() {
+        when(sweetCatalogCache.getAll())
+                .thenReturn(List.of(sweet(1L, 10)))
+                .thenReturn(List.of(sweet(1L, 6)));
+        CatalogSnapshot.Snapshot before = catalogSnapshot.current();
+
+        // No local event: another instance wrote and the cache's refresh-ahead picked it up.
+        catalogSnapshot.current();
+        queued.get(0).run();
+        CatalogSnapshot.Snapshot after = catalogSnapshot.current();
+
+        assertTrue(new String(after.getJson(), StandardCharsets.UTF_8).contains("\"quantity\":6"));
+        assertNotEquals(before.getEtag(), after.getEtag());
+    }
+
+    @Test
+    void testCurrent_EtagFollowsBytes() {
+        when(sweetCatalogCache.getAll())
+                .thenReturn(List.of(sweet(1L, 10)))
+                .thenReturn(List.of(sweet(1L, 10)));
+        CatalogSnapshot.Snapshot first = catalogSnapshot.current();
+        catalogSnapshot.current();
+        queued.get(0).run();
+        CatalogSnapshot.Snapshot reloaded = catalogSnapshot.current();
+
+        assertNotSame(first, reloaded);
+        assertEquals(first.getEtag(), reloaded.getEtag());
+        assertEquals(first.getEtag().replace("\"", "") + "-gzip", first.getGzipEtag().replace("\"", ""));
+    }
+
+    @Test
+    void testCurrent_GzipMatchesJson() throws Exception {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(sweet(1L, 10), sweet(2L, 3)));
+
+        CatalogSnapshot.Snapshot snapshot = catalogSnapshot.current();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(snapshot.getGzip()))) {
+            assertArrayEquals(snapshot.getJson(), in.readAllBytes());
+        }
+    }
+
+    private Sweet sweet(Long id, int quantity) {
+        return Sweet.builder()
+                .id(id)
+                .name("Sweet " + id)
+                .category("Candy")
+                .price(new BigDecimal("1.99"))
+                .quantity(quantity)
+                .description("A test sweet")
+                .build();
+    }
+}
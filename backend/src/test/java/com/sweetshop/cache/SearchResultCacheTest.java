@@ -0,0 +1,173 @@
+package com.sweetshop.cache;
+
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.CatalogIndexRebuiltEvent;
+import com.sweetshop.event.SweetChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SearchResultCache and SearchKey.
+ */
+@ExtendWith(MockitoExtension.class)
+class SearchResultCacheTest {
+
+    private static final SearchKey CANDY = SearchKey.of(null, null, "Candy", null, new BigDecimal("5"));
+    private static final SearchKey TOFFEE = SearchKey.of(null, null, "Toffee", null, null);
+    private static final String ALL = "all";
+
+    @Mock
+    private SweetCatalogCache sweetCatalogCache;
+
+    private SearchResultCache cache;
+    private final AtomicInteger searches = new AtomicInteger();
+    private final AtomicLong clock = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        cache = new SearchResultCache(sweetCatalogCache, 10, 100, Duration.ofMinutes(5), Duration.ofSeconds(1),
+                clock::get);
+    }
+
+    @Test
+    void testGet_HitResolvesIdsInResultOrder() {
+        Sweet first = sweet(2L, "Candy", "1.00");
+        Sweet second = sweet(1L, "Candy", "2.00");
+        when(sweetCatalogCache.getAllById(List.of(2L, 1L))).thenReturn(List.of(first, second));
+
+        cache.get(CANDY, ALL, counting(List.of(first, second)));
+        List<Sweet> result = cache.get(SearchKey.of(null, " ", "Candy", null, new BigDecimal("5.00")), ALL,
+                counting(List.of()));
+
+        assertEquals(List.of(first, second), result);
+        assertEquals(1, searches.get());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void testOnSweetChanged_InvalidatesOnlyAffectedEntries() {
+        cache.get(CANDY, ALL, counting(List.of(sweet(1L, "Candy", "1.00"))));
+        cache.get(TOFFEE, ALL, counting(List.of(sweet(2L, "Toffee", "3.00"))));
+
+        // A new candy within the price bound can join the candy result; toffee is unaffected.
+        cache.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.CREATED, sweet(3L, "Candy", "4.00")));
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    void testOnSweetChanged_InvalidatesEntriesContainingSweet() {
+        cache.get(CANDY, ALL, counting(List.of(sweet(1L, "Candy", "1.00"))));
+
+        // Moved out of the category: no longer matches, but the cached result still lists it.
+        cache.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet(1L, "Toffee", "1.00")));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testOnSweetChanged_UnrelatedChangeKeepsEntry() {
+        cache.get(CANDY, ALL, counting(List.of(sweet(1L, "Candy", "1.00"))));
+
+        cache.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.CREATED, sweet(3L, "Candy", "9.00")));
+
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testGet_ResultComputedAcrossWriteIsNotStored() {
+        cache.get(CANDY, ALL, () -> {
+            cache.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.DELETED, sweet(9L, "Fudge", "1.00")));
+            return List.of(sweet(1L, "Candy", "1.00"));
+        });
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testGet_SearchAfterWriteDoesNotJoinEarlierSearch() {
+        List<List<Sweet>> afterWrite = new ArrayList<>();
+        cache.get(CANDY, ALL, () -> {
+            cache.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.CREATED, sweet(3L, "Candy", "4.00")));
+            afterWrite.add(cache.get(CANDY, ALL, counting(List.of(sweet(1L, "Candy", "1.00"),
+                    sweet(3L, "Candy", "4.00")))));
+            return List.of(sweet(1L, "Candy", "1.00"));
+        });
+
+        assertEquals(2, afterWrite.get(0).size());
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    void testGet_ExpiredEntryRunsSearchAgain() {
+        cache.get(CANDY, ALL, counting(List.of(sweet(1L, "Candy", "1.00"))));
+
+        clock.addAndGet(Duration.ofMinutes(5).toMillis());
+        cache.get(CANDY, ALL, counting(List.of(sweet(1L, "Candy", "1.00"))));
+
+        assertEquals(2, searches.get());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    void testOnIndexRebuilt_DropsEveryEntry() {
+        cache.get(CANDY, ALL, counting(List.of(sweet(1L, "Candy", "1.00"))));
+        cache.get(TOFFEE, ALL, counting(List.of(sweet(2L, "Toffee", "3.00"))));
+
+        cache.onIndexRebuilt(new CatalogIndexRebuiltEvent("TrigramIndex"));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testGet_LargeResultsAreNotCached() {
+        SearchResultCache small = new SearchResultCache(sweetCatalogCache, 10, 1, Duration.ofMinutes(5),
+                Duration.ofSeconds(1), clock::get);
+
+        small.get(CANDY, ALL, counting(List.of(sweet(1L, "Candy", "1.00"), sweet(2L, "Candy", "2.00"))));
+
+        assertEquals(0, small.size());
+    }
+
+    @Test
+    void testSearchKey_MatchesNormalizedTerms() {
+        SearchKey key = SearchKey.of("  BAR ", null, null, new BigDecimal("1.50"), null);
+
+        assertTrue(key.matches(sweet(1L, "Candy", "1.5")));
+        assertFalse(key.matches(sweet(1L, "Candy", "1.49")));
+        assertEquals(key, SearchKey.of("bar", "", null, new BigDecimal("1.5"), null));
+    }
+
+    private Supplier<List<Sweet>> counting(List<Sweet> result) {
+        return () -> {
+            searches.incrementAndGet();
+            return result;
+        };
+    }
+
+    private Sweet sweet(Long id, String category, String price) {
+        return Sweet.builder()
+                .id(id)
+                .name("Sweet Bar " + id)
+                .category(category)
+                .price(new BigDecimal(price))
+                .quantity(10)
+                .description("A test sweet")
+                .build();
+    }
+}
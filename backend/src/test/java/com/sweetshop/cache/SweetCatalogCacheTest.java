@@ -0,0 +1,208 @@
+package com.sweetshop.cache;
+
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.repository.SweetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SweetCatalogCache.
+ */
+@ExtendWith(MockitoExtension.class)
+class SweetCatalogCacheTest {
+
+    @Mock
+    private SweetRepository sweetRepository;
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private SweetCatalogCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SweetCatalogCache(sweetRepository, 2, Duration.ofSeconds(10),
+                Duration.ofSeconds(60), Duration.ofSeconds(1), Runnable::run, now::get);
+    }
+
+    @Test
+    void testGet_MissThenHit() {
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet(1L, 10)));
+
+        assertTrue(cache.get(1L).isPresent());
+        assertTrue(cache.get(1L).isPresent());
+
+        verify(sweetRepository, times(1)).findById(1L);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testGet_EvictsLeastRecentlyUsed() {
+        when(sweetRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.of(sweet(invocation.getArgument(0), 10)));
+
+        cache.get(1L);
+        cache.get(2L);
+        cache.get(1L);
+        cache.get(3L);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.get(2L);
+        verify(sweetRepository, times(2)).findById(2L);
+    }
+
+    @Test
+    void testGet_RefreshesAheadOfExpiry() {
+        when(sweetRepository.findById(1L))
+                .thenReturn(Optional.of(sweet(1L, 10)))
+                .thenReturn(Optional.of(sweet(1L, 7)));
+
+        cache.get(1L);
+        now.addAndGet(15_000);
+
+        assertEquals(10, cache.get(1L).orElseThrow().getQuantity());
+        assertEquals(7, cache.get(1L).orElseThrow().getQuantity());
+        assertEquals(1, cache.getRefreshCount());
+    }
+
+    @Test
+    void testGet_ReloadsAfterExpiry() {
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet(1L, 10)));
+
+        cache.get(1L);
+        now.addAndGet(61_000);
+        cache.get(1L);
+
+        verify(sweetRepository, times(2)).findById(1L);
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void testOnSweetChanged_UpdatesCachedStock() {
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet(1L, 10)));
+        when(sweetRepository.findAllRows()).thenReturn(List.of(sweet(1L, 10), sweet(2L, 5)));
+        cache.get(1L);
+        cache.getAll();
+
+        cache.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet(1L, 3)));
+
+        assertEquals(3, cache.get(1L).orElseThrow().getQuantity());
+        assertEquals(3, cache.getAll().get(0).getQuantity());
+        verify(sweetRepository, times(1)).findById(1L);
+        verify(sweetRepository, times(1)).findAllRows();
+    }
+
+    @Test
+    void testOnSweetChanged_CreateAndDeletePatchCatalog() {
+        when(sweetRepository.findAllRows()).thenReturn(List.of(sweet(1L, 10)));
+        cache.getAll();
+
+        cache.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.CREATED, sweet(2L, 4)));
+        cache.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.DELETED, sweet(1L, 10)));
+
+        List<Sweet> all = cache.getAll();
+        assertEquals(1, all.size());
+        assertEquals(2L, all.get(0).getId());
+        assertTrue(cache.get(1L).isEmpty());
+        verify(sweetRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void testGetVersion_WritesInSameMillisecondGiveDistinctTags() {
+        when(sweetRepository.findAllRows()).thenReturn(List.of(sweet(1L, 10)));
+        String loaded = cache.getVersion().toEtag();
+
+        cache.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet(1L, 9)));
+        String first = cache.getVersion().toEtag();
+        cache.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet(1L, 8)));
+        String second = cache.getVersion().toEtag();
+
+        assertEquals(3, Set.of(loaded, first, second).size());
+        assertEquals(1_000L, cache.getVersion().toLastModifiedMillis());
+        verify(sweetRepository, times(1)).findAllRows();
+    }
+
+    @Test
+    void testGetVersion_CatalogReloadMovesVersion() {
+        when(sweetRepository.findAllRows()).thenReturn(List.of(sweet(1L, 10)));
+        String before = cache.getVersion().toEtag();
+        now.addAndGet(15_000);
+
+        // The first read past the refresh interval reloads in the background.
+        cache.getVersion();
+
+        assertNotEquals(before, cache.getVersion().toEtag());
+        assertNotEquals(before, new SweetCatalogCache(sweetRepository, 2, Duration.ofSeconds(10),
+                Duration.ofSeconds(60), Duration.ofSeconds(1), Runnable::run, now::get).getVersion().toEtag());
+    }
+
+    @Test
+    void testLoad_DiscardedWhenWriteRacesIt() {
+        when(sweetRepository.findById(1L)).thenAnswer(invocation -> {
+            cache.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet(1L, 2)));
+            return Optional.of(sweet(1L, 10));
+        });
+
+        cache.get(1L);
+
+        assertEquals(2, cache.get(1L).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testGetAll_ReaderAfterWriteDoesNotJoinEarlierLoad() {
+        AtomicReference<List<Sweet>> afterWrite = new AtomicReference<>();
+        when(sweetRepository.findAllRows())
+                .thenAnswer(invocation -> {
+                    // A sweet is created while this load is in flight; the next reader must not join it.
+                    cache.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.CREATED, sweet(2L, 5)));
+                    afterWrite.set(cache.getAll());
+                    return List.of(sweet(1L, 10));
+                })
+                .thenReturn(List.of(sweet(1L, 10), sweet(2L, 5)));
+
+        cache.getAll();
+
+        assertEquals(2, afterWrite.get().size());
+        verify(sweetRepository, times(2)).findAllRows();
+    }
+
+    @Test
+    void testGetMany_LoadsAllMissesWithOneQuery() {
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet(1L, 10)));
+        when(sweetRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(sweet(2L, 5)));
+        cache.get(1L);
+
+        Map<Long, Sweet> found = cache.getMany(List.of(1L, 2L, 3L));
+
+        assertEquals(Set.of(1L, 2L), found.keySet());
+        assertEquals(Set.of(1L, 2L), cache.getMany(List.of(1L, 2L)).keySet());
+        verify(sweetRepository, times(1)).findAllById(any());
+    }
+
+    private Sweet sweet(Long id, int quantity) {
+        return Sweet.builder()
+                .id(id)
+                .name("Sweet " + id)
+                .category("Candy")
+                .price(new BigDecimal("1.99"))
+                .quantity(quantity)
+                .description("A test sweet")
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.sweetshop.concurrent;
+
+import com.sweetshop.exception.ConcurrentUpdateException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OptimisticRetry.
+ */
+class OptimisticRetryTest {
+
+    private final List<Long> sleeps = new ArrayList<>();
+    private final OptimisticRetry retry =
+            new OptimisticRetry(3, Duration.ofMillis(10), Duration.ofMillis(15), sleeps::add);
+
+    @Test
+    void testExecute_RetriesUntilWriteSucceeds() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = retry.execute(1L, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("stale");
+            }
+            return "saved";
+        });
+
+        assertEquals("saved", result);
+        assertEquals(3, calls.get());
+        assertEquals(3, retry.getAttemptCount(1L));
+        assertEquals(2, retry.getConflictCount(1L));
+        assertEquals(2, retry.getRetryCount(1L));
+        assertEquals(2, sleeps.size());
+    }
+
+    @Test
+    void testExecute_GivesUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ConcurrentUpdateException.class, () -> retry.execute(1L, () -> {
+            calls.incrementAndGet();
+            throw new OptimisticLockingFailureException("stale");
+        }));
+
+        assertEquals(3, calls.get());
+        assertEquals(3, retry.getConflictCount(1L));
+        assertEquals(2, retry.getRetryCount(1L));
+    }
+
+    @Test
+    void testExecute_DoesNotRetryOtherFailures() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalArgumentException.class, () -> retry.execute(1L, () -> {
+            calls.incrementAndGet();
+            throw new IllegalArgumentException("bad");
+        }));
+
+        assertEquals(1, calls.get());
+        assertEquals(0, retry.getConflictCount(1L));
+    }
+
+    @Test
+    void testBackoff_StaysWithinCappedExponentialCeiling() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(retry.backoffMillis(1) <= 10);
+            assertTrue(retry.backoffMillis(5) <= 15);
+            assertTrue(retry.backoffMillis(5) >= 0);
+        }
+    }
+
+    @Test
+    void testMetrics_RegisteredOnlyForContendedSweets() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        retry.bindTo(registry);
+
+        retry.execute(1L, () -> "quiet");
+        AtomicInteger calls = new AtomicInteger();
+        retry.execute(2L, () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new OptimisticLockingFailureException("stale");
+            }
+            return "saved";
+        });
+
+        assertNull(registry.find("inventory.write.conflicts").tag("sweet", "1").functionCounter());
+        FunctionCounter conflicts = registry.find("inventory.write.conflicts").tag("sweet", "2").functionCounter();
+        FunctionCounter attempts = registry.find("inventory.write.attempts").tag("sweet", "2").functionCounter();
+        assertNotNull(conflicts);
+        assertEquals(1.0, conflicts.count());
+        assertEquals(2.0, attempts.count());
+    }
+}
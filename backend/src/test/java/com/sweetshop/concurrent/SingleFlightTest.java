@@ -0,0 +1,125 @@
+package com.sweetshop.concurrent;
+
+import com.sweetshop.exception.ReadTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SingleFlight.
+ */
+class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testExecute_ConcurrentIdenticalReadsShareOneExecution() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test", Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger reads = new AtomicInteger();
+
+        Future<Integer> leader = executor.submit(() -> flight.execute("key", () -> {
+            started.countDown();
+            await(release);
+            return reads.incrementAndGet();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<Future<Integer>> followers = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            followers.add(executor.submit(() -> flight.execute("key", reads::incrementAndGet)));
+        }
+        waitForJoins(flight, 7);
+        release.countDown();
+
+        assertEquals(1, leader.get(5, TimeUnit.SECONDS));
+        for (Future<Integer> follower : followers) {
+            assertEquals(1, follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, reads.get());
+        assertEquals(1, flight.getExecutionCount());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    void testExecute_SequentialReadsDoNotShareResults() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test", Duration.ofSeconds(5));
+        AtomicInteger reads = new AtomicInteger();
+
+        flight.execute("key", reads::incrementAndGet);
+        int second = flight.execute("key", reads::incrementAndGet);
+
+        assertEquals(2, second);
+        assertEquals(0, flight.getJoinCount());
+    }
+
+    @Test
+    void testExecute_FollowerTimesOutWhileLeaderIsSlow() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test", Duration.ofMillis(50));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> flight.execute("key", () -> {
+            started.countDown();
+            await(release);
+            return 1;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(ReadTimeoutException.class, () -> flight.execute("key", () -> 2));
+        assertEquals(1, flight.getTimeoutCount());
+        release.countDown();
+    }
+
+    @Test
+    void testExecute_FollowersReceiveLeaderFailure() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test", Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Integer> leader = executor.submit(() -> flight.execute("key", () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("boom");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<Integer> follower = executor.submit(() -> flight.execute("key", () -> 2));
+        waitForJoins(flight, 1);
+        release.countDown();
+
+        Exception ex = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void waitForJoins(SingleFlight<?, ?> flight, int joins) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flight.getJoinCount() < joins && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(joins, flight.getJoinCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
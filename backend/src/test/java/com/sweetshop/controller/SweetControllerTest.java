@@ -1,11 +1,18 @@
 package com.sweetshop.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.cache.CatalogSnapshot;
+import com.sweetshop.dto.BulkRestockRequest;
+import com.sweetshop.dto.CheckoutItem;
+import com.sweetshop.dto.CheckoutRequest;
 import com.sweetshop.dto.PurchaseRequest;
+import com.sweetshop.dto.RestockItem;
 import com.sweetshop.dto.RestockRequest;
 import com.sweetshop.dto.SweetRequest;
 import com.sweetshop.entity.Sweet;
 import com.sweetshop.entity.User;
+import com.sweetshop.idempotency.IdempotencyFilter;
 import com.sweetshop.repository.SweetRepository;
 import com.sweetshop.repository.UserRepository;
 import com.sweetshop.security.JwtUtil;
@@ -18,10 +25,18 @@ import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -51,12 +66,15 @@ class SweetControllerTest {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
     private String adminToken;
     private String userToken;
     private Long sweetId;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws InterruptedException {
         // Clean up database
         sweetRepository.deleteAll();
         userRepository.deleteAll();
@@ -91,6 +109,7 @@ class SweetControllerTest {
                 .build();
         Sweet savedSweet = sweetRepository.save(sweet);
         sweetId = savedSweet.getId();
+        awaitSnapshot();
     }
 
     @Test
@@ -215,6 +234,191 @@ class SweetControllerTest {
                 .andExpect(jsonPath("$.error", equalTo("Insufficient quantity available")));
     }
 
+    @Test
+    void testPurchaseSweet_IdempotencyKey_ReplaysWithoutPurchasingAgain() throws Exception {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setQuantity(5);
+        String key = UUID.randomUUID().toString();
+
+        String first = mockMvc.perform(post("/sweets/" + sweetId + "/purchase")
+                        .header("Authorization", "Bearer " + userToken)
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER))
+                .andExpect(jsonPath("$.quantity", equalTo(95)))
+                .andReturn().getResponse().getContentAsString();
+
+        String retry = mockMvc.perform(post("/sweets/" + sweetId + "/purchase")
+                        .header("Authorization", "Bearer " + userToken)
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(first, retry);
+        assertEquals(95, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testPurchaseSweet_IdempotencyKeyReusedForDifferentRequest_Unprocessable() throws Exception {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setQuantity(5);
+        String key = UUID.randomUUID().toString();
+        mockMvc.perform(post("/sweets/" + sweetId + "/purchase")
+                        .header("Authorization", "Bearer " + userToken)
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        request.setQuantity(6);
+        mockMvc.perform(post("/sweets/" + sweetId + "/purchase")
+                        .header("Authorization", "Bearer " + userToken)
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.status", equalTo("UNPROCESSABLE_ENTITY")));
+
+        assertEquals(95, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testRestockSweet_IdempotencyKeyIsPerUser() throws Exception {
+        RestockRequest request = new RestockRequest();
+        request.setQuantity(10);
+        String key = UUID.randomUUID().toString();
+        mockMvc.perform(post("/sweets/" + sweetId + "/restock")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity", equalTo(110)));
+
+        // The same key from another user is a different key, so the request runs.
+        mockMvc.perform(post("/sweets/" + sweetId + "/restock")
+                        .header("Authorization", "Bearer " + userToken)
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void testPurchaseSweet_IdempotencyKeyTooLong_BadRequest() throws Exception {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setQuantity(5);
+
+        mockMvc.perform(post("/sweets/" + sweetId + "/purchase")
+                        .header("Authorization", "Bearer " + userToken)
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "k".repeat(256))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status", equalTo("BAD_REQUEST")));
+
+        assertEquals(100, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testCheckout_AllLinesPurchased() throws Exception {
+        Long gummyId = sweetRepository.save(Sweet.builder()
+                .name("Gummy Bears")
+                .category("Candy")
+                .price(new BigDecimal("1.50"))
+                .quantity(10)
+                .description("Chewy fruit gummies")
+                .build()).getId();
+        CheckoutRequest request = new CheckoutRequest(List.of(
+                new CheckoutItem(gummyId, 4),
+                new CheckoutItem(sweetId, 2)));
+
+        mockMvc.perform(post("/sweets/checkout")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed", equalTo(true)))
+                .andExpect(jsonPath("$.total", equalTo(13.98))) // 4 * 1.50 + 2 * 3.99
+                .andExpect(jsonPath("$.lines[0].sweetId", equalTo(gummyId.intValue())))
+                .andExpect(jsonPath("$.lines[0].status", equalTo("PURCHASED")))
+                .andExpect(jsonPath("$.lines[0].remainingQuantity", equalTo(6)))
+                .andExpect(jsonPath("$.lines[1].remainingQuantity", equalTo(98)));
+
+        assertEquals(98, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testCheckout_OneLineShort_NothingPurchased() throws Exception {
+        CheckoutRequest request = new CheckoutRequest(List.of(
+                new CheckoutItem(sweetId, 60),
+                new CheckoutItem(sweetId, 50),
+                new CheckoutItem(999999L, 1)));
+
+        mockMvc.perform(post("/sweets/checkout")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.completed", equalTo(false)))
+                .andExpect(jsonPath("$.lines[0].status", equalTo("INSUFFICIENT_QUANTITY")))
+                .andExpect(jsonPath("$.lines[1].status", equalTo("INSUFFICIENT_QUANTITY")))
+                .andExpect(jsonPath("$.lines[2].status", equalTo("NOT_FOUND")));
+
+        assertEquals(100, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testCheckout_EmptyCart_BadRequest() throws Exception {
+        mockMvc.perform(post("/sweets/checkout")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CheckoutRequest(List.of()))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testBulkRestock_Admin_ReportsEachLine() throws Exception {
+        BulkRestockRequest request = new BulkRestockRequest(List.of(
+                new RestockItem(sweetId, 10),
+                new RestockItem(999999L, 5),
+                new RestockItem(sweetId, 15)));
+
+        mockMvc.perform(post("/sweets/restock")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.restocked", equalTo(2)))
+                .andExpect(jsonPath("$.notFound", equalTo(1)))
+                .andExpect(jsonPath("$.lines[0].status", equalTo("RESTOCKED")))
+                .andExpect(jsonPath("$.lines[0].newQuantity", equalTo(125)))
+                .andExpect(jsonPath("$.lines[1].status", equalTo("NOT_FOUND")))
+                .andExpect(jsonPath("$.lines[1].newQuantity").doesNotExist());
+
+        assertEquals(125, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testBulkRestock_NonAdmin_Forbidden() throws Exception {
+        BulkRestockRequest request = new BulkRestockRequest(List.of(new RestockItem(sweetId, 10)));
+
+        mockMvc.perform(post("/sweets/restock")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", equalTo("Only admins can perform this action")));
+
+        assertEquals(100, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+    }
+
     @Test
     void testRestockSweet_Admin_Success() throws Exception {
         RestockRequest request = new RestockRequest();
@@ -268,4 +472,333 @@ class SweetControllerTest {
                 .andExpect(jsonPath("$[0].price", greaterThanOrEqualTo(2.0)))
                 .andExpect(jsonPath("$[0].price", lessThanOrEqualTo(5.0)));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSearchSweets_SparseFieldsByCategory() throws Exception {
+        mockMvc.perform(get("/sweets/search")
+                        .param("category", "Chocolate")
+                        .param("fields", "name,price"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", equalTo(sweetId.intValue())))
+                .andExpect(jsonPath("$[0].name", equalTo("Chocolate Bar")))
+                .andExpect(jsonPath("$[0].price", equalTo(3.99)))
+                .andExpect(jsonPath("$[0].description").doesNotExist())
+                .andExpect(jsonPath("$[0].quantity").doesNotExist());
+    }
+
+    @Test
+    void testGetSweetById_SparseFields() throws Exception {
+        mockMvc.perform(get("/sweets/" + sweetId).param("fields", "quantity"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", equalTo(sweetId.intValue())))
+                .andExpect(jsonPath("$.quantity", equalTo(100)))
+                .andExpect(jsonPath("$.name").doesNotExist());
+    }
+
+    @Test
+    void testGetAllSweets_SparseFields() throws Exception {
+        mockMvc.perform(get("/sweets").param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name", equalTo("Chocolate Bar")))
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+    }
+
+    @Test
+    void testGetAllSweets_UnknownField_BadRequest() throws Exception {
+        mockMvc.perform(get("/sweets").param("fields", "name,secret"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", equalTo("Unknown field: secret")));
+    }
+
+    @Test
+    void testGetSweetsByIds_ReportsMissingIds() throws Exception {
+        Sweet toffee = sweetRepository.save(Sweet.builder()
+                .name("Toffee")
+                .category("Candy")
+                .price(new BigDecimal("1.25"))
+                .quantity(10)
+                .description("Butter toffee")
+                .build());
+        long missingId = toffee.getId() + 1000;
+
+        mockMvc.perform(get("/sweets")
+                        .param("ids", toffee.getId() + "," + missingId + "," + sweetId)
+                        .param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].name", equalTo("Toffee")))
+                .andExpect(jsonPath("$.items[1].name", equalTo("Chocolate Bar")))
+                .andExpect(jsonPath("$.items[1].price").doesNotExist())
+                .andExpect(jsonPath("$.missingIds[0]", equalTo((int) missingId)));
+    }
+
+    @Test
+    void testGetSweetsByPrice_MostExpensiveFirst() throws Exception {
+        for (int i = 1; i <= 2; i++) {
+            sweetRepository.save(Sweet.builder()
+                    .name("Truffle " + i)
+                    .category("Chocolate")
+                    .price(new BigDecimal("9" + i + ".00"))
+                    .quantity(10)
+                    .description("Dark truffle")
+                    .build());
+        }
+
+        mockMvc.perform(get("/sweets/by-price")
+                        .param("direction", "desc")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name", equalTo("Truffle 2")))
+                .andExpect(jsonPath("$[1].name", equalTo("Truffle 1")));
+    }
+
+    @Test
+    void testGetSweetsPage_FollowsCursorToLastPage() throws Exception {
+        for (int i = 1; i <= 2; i++) {
+            sweetRepository.save(Sweet.builder()
+                    .name("Lollipop " + i)
+                    .category("Candy")
+                    .price(new BigDecimal("1.0" + i))
+                    .quantity(10)
+                    .description("Colourful lollipop")
+                    .build());
+        }
+
+        String body = mockMvc.perform(get("/sweets")
+                        .param("size", "2")
+                        .param("sort", "price"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].name", equalTo("Lollipop 1")))
+                .andExpect(jsonPath("$.hasNext", equalTo(true)))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(body).get("nextCursor").asText();
+
+        mockMvc.perform(get("/sweets")
+                        .param("size", "2")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].name", equalTo("Chocolate Bar")))
+                .andExpect(jsonPath("$.hasNext", equalTo(false)));
+    }
+
+    @Test
+    void testGetSweetsPage_SparseFieldsFollowCursor() throws Exception {
+        for (int i = 1; i <= 2; i++) {
+            sweetRepository.save(Sweet.builder()
+                    .name("Lollipop " + i)
+                    .category("Candy")
+                    .price(new BigDecimal("1.0" + i))
+                    .quantity(10)
+                    .description("Colourful lollipop")
+                    .build());
+        }
+
+        String body = mockMvc.perform(get("/sweets")
+                        .param("size", "2")
+                        .param("sort", "price")
+                        .param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[1].name", equalTo("Lollipop 2")))
+                .andExpect(jsonPath("$.items[1].price").doesNotExist())
+                .andExpect(jsonPath("$.items[1].description").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(body).get("nextCursor").asText();
+
+        mockMvc.perform(get("/sweets")
+                        .param("size", "2")
+                        .param("cursor", cursor)
+                        .param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].name", equalTo("Chocolate Bar")))
+                .andExpect(jsonPath("$.hasNext", equalTo(false)));
+    }
+
+    @Test
+    void testGetSweetsPage_InvalidCursor_BadRequest() throws Exception {
+        mockMvc.perform(get("/sweets")
+                        .param("size", "2")
+                        .param("cursor", "garbage"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportSweets_StreamsNdjson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/sweets/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(1, lines.length);
+        assertEquals("Chocolate Bar", objectMapper.readTree(lines[0]).get("name").asText());
+    }
+
+    @Test
+    void testImportSweets_Admin_StreamsProgress() throws Exception {
+        String csv = "name,category,price,quantity,description\n"
+                + "Chocolate Bar,Chocolate,4.49,40,Delicious chocolate bar\n"
+                + "Mint Drops,Candy,0.99,200,Cool peppermint drops\n";
+
+        MvcResult result = mockMvc.perform(post("/sweets/import")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        JsonNode summary = objectMapper.readTree(lines[lines.length - 1]);
+        assertEquals("COMPLETED", summary.get("type").asText());
+        assertEquals(1, summary.get("inserted").asInt());
+        assertEquals(1, summary.get("updated").asInt());
+        assertEquals(40, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testImportSweets_NonAdmin_Forbidden() throws Exception {
+        mockMvc.perform(post("/sweets/import")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType("text/csv")
+                        .content("name,category,price,quantity,description\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", equalTo("Only admins can perform this action")));
+    }
+
+    @Test
+    void testGetAllSweets_IfNoneMatch_NotModified() throws Exception {
+        String etag = mockMvc.perform(get("/sweets"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/sweets").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        String searchEtag = mockMvc.perform(get("/sweets/search").param("category", "Chocolate"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/sweets/search").param("category", "Chocolate").header("If-None-Match", searchEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testGetAllSweets_GzipBodyHasItsOwnETag() throws Exception {
+        String etag = mockMvc.perform(get("/sweets"))
+                .andReturn().getResponse().getHeader("ETag");
+        String gzipEtag = mockMvc.perform(get("/sweets").header("Accept-Encoding", "gzip"))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertEquals(etag.substring(0, etag.length() - 1) + "-gzip\"", gzipEtag);
+        mockMvc.perform(get("/sweets").header("Accept-Encoding", "gzip").header("If-None-Match", gzipEtag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/sweets").header("If-None-Match", gzipEtag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag));
+    }
+
+    @Test
+    void testGetAllSweets_ETagChangesAfterPurchase() throws Exception {
+        String etag = mockMvc.perform(get("/sweets"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        PurchaseRequest request = new PurchaseRequest();
+        request.setQuantity(1);
+        mockMvc.perform(post("/sweets/" + sweetId + "/purchase")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+        awaitSnapshot();
+
+        mockMvc.perform(get("/sweets").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].quantity", equalTo(99)));
+    }
+
+    @Test
+    void testGetSweetById_ETagChangesAfterPurchase() throws Exception {
+        String etag = mockMvc.perform(get("/sweets/" + sweetId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/sweets/" + sweetId).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        Thread.sleep(2);
+        PurchaseRequest request = new PurchaseRequest();
+        request.setQuantity(1);
+        mockMvc.perform(post("/sweets/" + sweetId + "/purchase")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/sweets/" + sweetId).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity", equalTo(99)));
+    }
+
+    @Test
+    void testGetAllSweets_GzipSnapshot() throws Exception {
+        byte[] body = mockMvc.perform(get("/sweets").header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("Chocolate Bar", objectMapper.readTree(in.readAllBytes()).get(0).get("name").asText());
+        }
+    }
+
+    @Test
+    void testGetAllSweets_GzipRefusedByQValue_Identity() throws Exception {
+        mockMvc.perform(get("/sweets").header("Accept-Encoding", "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$[0].name", equalTo("Chocolate Bar")));
+    }
+
+    @Test
+    void testSuggest_Public_Success() throws Exception {
+        mockMvc.perform(get("/sweets/suggest").param("prefix", "cho"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].text", hasItems("Chocolate Bar", "Chocolate")));
+    }
+
+    @Test
+    void testGetFacets_Public_Success() throws Exception {
+        mockMvc.perform(get("/sweets/facets").param("bucketWidth", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", equalTo(1)))
+                .andExpect(jsonPath("$.categories.Chocolate", equalTo(1)))
+                .andExpect(jsonPath("$.priceBuckets[0].from", equalTo(2.0)))
+                .andExpect(jsonPath("$.priceBuckets[0].count", equalTo(1)));
+    }
+
+    /**
+     * Wait for the background rebuild of the catalog snapshot, which GET /sweets serves.
+     */
+    private void awaitSnapshot() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!catalogSnapshot.isUpToDate()) {
+            catalogSnapshot.current();
+            assertTrue(System.nanoTime() < deadline, "Catalog snapshot was not rebuilt");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -17,6 +17,7 @@ class SweetTest {
         sweet.purchase(10);
 
         assertEquals(90, sweet.getQuantity());
+        assertEquals(10, sweet.getPopularity());
     }
 
     @Test
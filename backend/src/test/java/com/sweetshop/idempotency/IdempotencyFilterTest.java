@@ -0,0 +1,124 @@
+package com.sweetshop.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for IdempotencyFilter.
+ */
+@ExtendWith(MockitoExtension.class)
+class IdempotencyFilterTest {
+
+    private static final String BODY = "{\"quantity\":5}";
+
+    @Mock
+    private IdempotencyStore store;
+
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new IdempotencyFilter(store, new ObjectMapper());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("user", null, List.of()));
+        when(store.begin(eq("user\nk1"), anyString())).thenReturn(IdempotencyStore.Outcome.CLAIMED);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testCompleteFails_KeyKeptAndResponseSent() throws Exception {
+        doThrow(new DataAccessResourceFailureException("down"))
+                .when(store).complete(eq("user\nk1"), anyString(), any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(purchase(), response, (req, res) -> {
+            res.setContentType("application/json");
+            res.getWriter().write("{\"quantity\":95}");
+        });
+
+        assertEquals(200, response.getStatus());
+        assertEquals("{\"quantity\":95}", response.getContentAsString());
+        verify(store, times(IdempotencyFilter.COMPLETE_ATTEMPTS)).complete(eq("user\nk1"), anyString(), any());
+        verify(store, never()).release(any());
+    }
+
+    @Test
+    void testServerError_KeyReleased() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(purchase(), response, (req, res) -> ((HttpServletResponse) res).setStatus(503));
+
+        assertEquals(503, response.getStatus());
+        verify(store).release("user\nk1");
+        verify(store, never()).complete(any(), any(), any());
+    }
+
+    @Test
+    void testCachedBody_ReadListenerSeesWholeBody() throws Exception {
+        AtomicBoolean allRead = new AtomicBoolean();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(purchase(), response, (req, res) -> {
+            ServletInputStream in = req.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    StreamUtils.copy(in, read);
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allRead.set(true);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    fail(t);
+                }
+            });
+        });
+
+        assertEquals(BODY, read.toString(StandardCharsets.UTF_8));
+        assertTrue(allRead.get());
+    }
+
+    private static MockHttpServletRequest purchase() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/sweets/1/purchase");
+        request.setContextPath("/api");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "k1");
+        request.setContentType("application/json");
+        request.setContent(BODY.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,139 @@
+package com.sweetshop.idempotency;
+
+import com.sweetshop.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for IdempotencyStore.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyStoreTest {
+
+    private static final IdempotentResponse RESPONSE =
+            new IdempotentResponse(200, "application/json", "{\"id\":1,\"quantity\":7}");
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    private IdempotencyStore store;
+
+    /** A second instance sharing the table, as another node would. */
+    private IdempotencyStore otherStore;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        store = newStore();
+        otherStore = newStore();
+    }
+
+    @Test
+    void testBegin_NewKeyIsClaimed() {
+        assertEquals(IdempotencyStore.Outcome.Kind.CLAIMED, store.begin("user\nk1", "hash").getKind());
+        assertNull(repository.findById("user\nk1").orElseThrow().getStatus());
+    }
+
+    @Test
+    void testBegin_CompletedKeyReplaysFromMemoryAndDatabase() {
+        store.begin("user\nk1", "hash");
+        store.complete("user\nk1", "hash", RESPONSE);
+
+        IdempotencyStore.Outcome local = store.begin("user\nk1", "hash");
+        IdempotencyStore.Outcome remote = otherStore.begin("user\nk1", "hash");
+
+        assertEquals(IdempotencyStore.Outcome.Kind.REPLAY, local.getKind());
+        assertEquals(RESPONSE, local.getResponse());
+        assertEquals(IdempotencyStore.Outcome.Kind.REPLAY, remote.getKind());
+        assertEquals(RESPONSE, remote.getResponse());
+    }
+
+    @Test
+    void testBegin_RunningKeyIsInProgressOnEveryInstance() {
+        store.begin("user\nk1", "hash");
+
+        assertEquals(IdempotencyStore.Outcome.Kind.IN_PROGRESS, store.begin("user\nk1", "hash").getKind());
+        assertEquals(IdempotencyStore.Outcome.Kind.IN_PROGRESS, otherStore.begin("user\nk1", "hash").getKind());
+    }
+
+    @Test
+    void testBegin_DifferentRequestIsMismatch() {
+        store.begin("user\nk1", "hash");
+        store.complete("user\nk1", "hash", RESPONSE);
+
+        assertEquals(IdempotencyStore.Outcome.Kind.MISMATCH, store.begin("user\nk1", "other").getKind());
+        assertEquals(IdempotencyStore.Outcome.Kind.MISMATCH, otherStore.begin("user\nk1", "other").getKind());
+    }
+
+    @Test
+    void testRelease_KeyCanBeClaimedAgain() {
+        store.begin("user\nk1", "hash");
+
+        store.release("user\nk1");
+
+        assertEquals(IdempotencyStore.Outcome.Kind.CLAIMED, otherStore.begin("user\nk1", "hash").getKind());
+    }
+
+    @Test
+    void testBegin_AbandonedClaimLapsesAfterLease() {
+        store.begin("user\nk1", "hash");
+
+        clock.addAndGet(Duration.ofSeconds(61).toMillis());
+
+        assertEquals(IdempotencyStore.Outcome.Kind.CLAIMED, otherStore.begin("user\nk1", "hash").getKind());
+    }
+
+    @Test
+    void testBegin_ExpiredResponseIsNotReplayed() {
+        store.begin("user\nk1", "hash");
+        store.complete("user\nk1", "hash", RESPONSE);
+
+        clock.addAndGet(Duration.ofHours(25).toMillis());
+
+        assertEquals(IdempotencyStore.Outcome.Kind.CLAIMED, store.begin("user\nk1", "hash").getKind());
+    }
+
+    @Test
+    void testPurge_DeletesOnlyExpiredKeys() {
+        store.begin("user\nk1", "hash");
+        store.complete("user\nk1", "hash", RESPONSE);
+        store.begin("user\nk2", "hash");
+
+        clock.addAndGet(Duration.ofMinutes(2).toMillis());
+
+        assertEquals(1, store.purge());
+        assertTrue(repository.existsById("user\nk1"));
+        assertFalse(repository.existsById("user\nk2"));
+    }
+
+    @Test
+    void testBegin_EvictedKeyIsStillFoundInDatabase() {
+        IdempotencyStore small = new IdempotencyStore(repository, Duration.ofHours(24), Duration.ofSeconds(60),
+                1, Duration.ofMinutes(5), clock::get);
+        small.begin("user\nk1", "hash");
+        small.complete("user\nk1", "hash", RESPONSE);
+        small.begin("user\nk2", "hash");
+
+        IdempotencyStore.Outcome outcome = small.begin("user\nk1", "hash");
+
+        assertEquals(1, small.size());
+        assertEquals(IdempotencyStore.Outcome.Kind.REPLAY, outcome.getKind());
+        assertEquals(RESPONSE, outcome.getResponse());
+    }
+
+    private IdempotencyStore newStore() {
+        return new IdempotencyStore(repository, Duration.ofHours(24), Duration.ofSeconds(60), 100,
+                Duration.ofMinutes(5), clock::get);
+    }
+}
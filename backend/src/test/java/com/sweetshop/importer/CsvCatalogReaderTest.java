@@ -0,0 +1,86 @@
+package com.sweetshop.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CsvCatalogReader.
+ */
+class CsvCatalogReaderTest {
+
+    @Test
+    void testNext_ReadsColumnsByHeaderName() throws IOException {
+        CsvCatalogReader reader = reader("\uFEFFQuantity,Name,Price,Category,Description\r\n"
+                + "12,Kaju Katli,4.25,Mithai,Cashew fudge squares\r\n");
+
+        ImportRow row = reader.next();
+
+        assertTrue(row.isParsed());
+        assertEquals(2, row.getLine());
+        assertEquals("Kaju Katli", row.getRequest().getName());
+        assertEquals("Mithai", row.getRequest().getCategory());
+        assertEquals(new BigDecimal("4.25"), row.getRequest().getPrice());
+        assertEquals(12, row.getRequest().getQuantity());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void testNext_QuotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        CsvCatalogReader reader = reader("name,category,price,quantity,description\n"
+                + "\"Toffee, Salted\",Toffee,1.50,3,\"Say \"\"yum\"\"\nsecond line\"\n"
+                + "Fudge,Fudge,2.00,1,Plain vanilla fudge\n");
+
+        ImportRow first = reader.next();
+        ImportRow second = reader.next();
+
+        assertEquals("Toffee, Salted", first.getRequest().getName());
+        assertEquals("Say \"yum\"\nsecond line", first.getRequest().getDescription());
+        assertEquals(4, second.getLine());
+    }
+
+    @Test
+    void testNext_BadCellsAreReportedPerRow() throws IOException {
+        CsvCatalogReader reader = reader("name,category,price,quantity,description\n"
+                + "Ladoo,Mithai,cheap,many,Gram flour balls\n"
+                + "\n"
+                + "Barfi,Mithai,3.00\n"
+                + "Peda,Mithai,,5,Milk fudge rounds\n");
+
+        ImportRow badValues = reader.next();
+        ImportRow shortRow = reader.next();
+        ImportRow emptyPrice = reader.next();
+
+        assertEquals(List.of("price: Price must be a number", "quantity: Quantity must be a whole number"),
+                badValues.getErrors());
+        assertEquals(4, shortRow.getLine());
+        assertEquals(List.of("Expected 5 columns but found 3"), shortRow.getErrors());
+        assertTrue(emptyPrice.isParsed());
+        assertNull(emptyPrice.getRequest().getPrice());
+    }
+
+    @Test
+    void testNext_MissingColumnFailsTheUpload() {
+        CsvCatalogReader reader = reader("name,category,quantity,description\n");
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, reader::next);
+        assertEquals("CSV header is missing column: price", ex.getMessage());
+    }
+
+    @Test
+    void testNext_UnclosedQuoteFailsTheUpload() {
+        CsvCatalogReader reader = reader("name,category,price,quantity,description\n\"Runaway,x,1,1,y\n");
+
+        assertThrows(IllegalArgumentException.class, reader::next);
+    }
+
+    private static CsvCatalogReader reader(String csv) {
+        return new CsvCatalogReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,283 @@
+package com.sweetshop.inventory;
+
+import com.sweetshop.entity.LedgerOffset;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.repository.LedgerOffsetRepository;
+import com.sweetshop.repository.SweetRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for InventoryLedger.
+ */
+@ExtendWith(MockitoExtension.class)
+class InventoryLedgerTest {
+
+    @Mock
+    private SweetRepository sweetRepository;
+
+    @Mock
+    private LedgerOffsetRepository ledgerOffsetRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private Path journalPath;
+    private InventoryLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        journalPath = directory.resolve("inventory.journal");
+        ledger = newLedger();
+        lenient().when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet(1L, 10)));
+        lenient().when(sweetRepository.applySales(eq(1L), anyInt(), anyLong())).thenReturn(1);
+        lenient().when(ledgerOffsetRepository.findById(1L)).thenReturn(Optional.of(new LedgerOffset(1L, 0L)));
+        lenient().when(ledgerOffsetRepository.advance(eq(1L), anyLong())).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledger.shutdown();
+    }
+
+    @Test
+    void testPurchase_DecidedInMemory() {
+        ledger.enable(1L);
+
+        assertEquals(OptionalInt.of(7), ledger.purchase(1L, 3));
+        assertEquals(OptionalInt.of(7), ledger.available(1L));
+        assertThrows(IllegalArgumentException.class, () -> ledger.purchase(1L, 8));
+        assertEquals(OptionalInt.of(7), ledger.available(1L));
+        verify(sweetRepository, never()).applySales(any(), anyInt(), anyLong());
+    }
+
+    @Test
+    void testPurchase_CountsAcceptedSalesOnly() {
+        ledger.enable(1L);
+
+        ledger.purchase(1L, 3);
+        assertThrows(IllegalArgumentException.class, () -> ledger.purchase(1L, 8));
+
+        assertEquals(1, ledger.getSaleCount());
+        assertTrue(ledger.lastSaleAt(1L) > 0);
+        assertEquals(ledger.lastSaleAt(1L), ledger.lastSaleAt());
+        assertEquals(0, ledger.lastSaleAt(2L));
+    }
+
+    @Test
+    void testPurchase_NotManagedFallsThrough() {
+        assertEquals(OptionalInt.empty(), ledger.purchase(2L, 1));
+        assertFalse(ledger.isManaged(2L));
+    }
+
+    @Test
+    void testFlush_WritesPendingSalesInOneUpdate() throws IOException {
+        ledger.enable(1L);
+        ledger.purchase(1L, 2);
+        ledger.purchase(1L, 3);
+
+        ledger.flush();
+        ledger.flush();
+
+        verify(sweetRepository, times(1)).applySales(eq(1L), eq(5), anyLong());
+        verify(ledgerOffsetRepository, times(1)).advance(1L, 5);
+        verify(eventPublisher, times(1)).publishEvent(any(SweetChangedEvent.class));
+        assertEquals(0, ledger.pendingUnits());
+        // Compacted down to a mark of the offset the flush reached.
+        assertEquals("M 1 5\n", Files.readString(journalPath));
+    }
+
+    @Test
+    void testRefund_AfterFlush_WritesUnitsBackToRow() throws IOException {
+        ledger.enable(1L);
+        ledger.purchase(1L, 4);
+        ledger.flush();
+
+        ledger.refund(1L, 4);
+        ledger.flush();
+
+        assertEquals(OptionalInt.of(10), ledger.available(1L));
+        verify(sweetRepository).applySales(eq(1L), eq(4), anyLong());
+        verify(sweetRepository).applySales(eq(1L), eq(-4), anyLong());
+        assertEquals("M 1 0\n", Files.readString(journalPath));
+    }
+
+    @Test
+    void testRecover_AppliesJournaledSalesAfterCrash() throws IOException {
+        ledger.enable(1L);
+        ledger.purchase(1L, 4);
+        // Simulate a crash: the process dies without flushing.
+        InventoryLedger restarted = newLedger();
+
+        restarted.recover();
+
+        verify(sweetRepository, times(1)).applySales(eq(1L), eq(4), anyLong());
+        verify(ledgerOffsetRepository, times(1)).advance(1L, 4);
+        try (InventoryJournal journal = new InventoryJournal(journalPath, false)) {
+            assertEquals(Map.of(), journal.replay());
+        }
+        restarted.shutdown();
+    }
+
+    @Test
+    void testRecover_SkipsSalesTheTableAlreadyHas() throws IOException {
+        // The process died after a flush committed but before the journal was compacted.
+        Files.writeString(journalPath, "M 1 10\nS 1 4\nS 1 2\nR 1 1\nS 1 3\n", StandardCharsets.US_ASCII);
+        when(ledgerOffsetRepository.findById(1L)).thenReturn(Optional.of(new LedgerOffset(1L, 15L)));
+
+        ledger.recover();
+
+        // Offset 10 -> 15 covers the first three records; only the last sale is outstanding.
+        verify(sweetRepository, times(1)).applySales(eq(1L), eq(3), anyLong());
+        verify(ledgerOffsetRepository, times(1)).advance(1L, 3);
+        assertEquals(0, Files.size(journalPath));
+    }
+
+    @Test
+    void testRecover_AfterEverythingWasFlushed_AppliesNothing() throws IOException {
+        Files.writeString(journalPath, "M 1 0\nS 1 4\n", StandardCharsets.US_ASCII);
+        when(ledgerOffsetRepository.findById(1L)).thenReturn(Optional.of(new LedgerOffset(1L, 4L)));
+
+        ledger.recover();
+
+        verify(sweetRepository, never()).applySales(any(), anyInt(), anyLong());
+        assertEquals(0, Files.size(journalPath));
+    }
+
+    @Test
+    void testDisable_FlushesAndHandsBackToDatabase() {
+        ledger.enable(1L);
+        ledger.purchase(1L, 6);
+
+        ledger.disable(1L);
+
+        verify(sweetRepository, times(1)).applySales(eq(1L), eq(6), anyLong());
+        assertFalse(ledger.isManaged(1L));
+        assertEquals(OptionalInt.empty(), ledger.purchase(1L, 1));
+    }
+
+    @Test
+    void testWhileSuspended_ReseedsFromRow() {
+        ledger.enable(1L);
+        ledger.purchase(1L, 6);
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet(1L, 50)));
+
+        ledger.whileSuspended(1L, () -> null);
+
+        verify(sweetRepository, times(1)).applySales(eq(1L), eq(6), anyLong());
+        assertEquals(OptionalInt.of(50), ledger.available(1L));
+    }
+
+    @Test
+    void testCredit_AddsRestockedUnits() {
+        ledger.enable(1L);
+        ledger.purchase(1L, 10);
+
+        ledger.credit(1L, 5);
+
+        assertEquals(OptionalInt.of(5), ledger.available(1L));
+    }
+
+    @Test
+    void testDeletedSweet_IsDropped() {
+        ledger.enable(1L);
+
+        ledger.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.DELETED, sweet(1L, 10)));
+
+        assertFalse(ledger.isManaged(1L));
+    }
+
+    @Test
+    void testConcurrentPurchases_NeverOversell() throws Exception {
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet(1L, 1000)));
+        ledger.enable(1L);
+        AtomicInteger purchased = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < 8; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 250; i++) {
+                        try {
+                            ledger.purchase(1L, 1);
+                            purchased.incrementAndGet();
+                        } catch (IllegalArgumentException e) {
+                            // Sold out
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1000, purchased.get());
+        assertEquals(OptionalInt.of(0), ledger.available(1L));
+        assertEquals(1000, ledger.pendingUnits());
+    }
+
+    private InventoryLedger newLedger() {
+        return new InventoryLedger(sweetRepository, ledgerOffsetRepository, eventPublisher, transactionManager,
+                new InventoryJournal(journalPath, false), Set.of(), Duration.ofMinutes(1), 100_000);
+    }
+
+    private static Sweet sweet(Long id, int quantity) {
+        return Sweet.builder()
+                .id(id)
+                .name("Hot Sweet")
+                .category("Candy")
+                .price(new BigDecimal("1.00"))
+                .quantity(quantity)
+                .description("Flash sale")
+                .soldCount(0L)
+                .version(0L)
+                .build();
+    }
+}
@@ -0,0 +1,188 @@
+package com.sweetshop.inventory;
+
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.repository.SweetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for PurchaseBatcher.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PurchaseBatcherTest {
+
+    @Autowired
+    private SweetRepository sweetRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private PurchaseBatcher batcher;
+
+    private Long sweetId;
+
+    @BeforeEach
+    void setUp() {
+        sweetRepository.deleteAll();
+        sweetId = sweetRepository.save(Sweet.builder()
+                .name("Hot Sweet")
+                .category("Candy")
+                .price(new BigDecimal("1.00"))
+                .quantity(10)
+                .description("Flash sale")
+                .build()).getId();
+        batcher = new PurchaseBatcher(sweetRepository, eventPublisher, transactionManager,
+                true, Duration.ofMillis(50), 256);
+    }
+
+    @Test
+    void testPurchase_ReturnsQuantityAsOfThisPurchase() {
+        Sweet sweet = batcher.purchase(sweetId, 3);
+
+        assertEquals(7, sweet.getQuantity());
+        Sweet row = sweetRepository.findById(sweetId).orElseThrow();
+        assertEquals(7, row.getQuantity());
+        assertEquals(3L, row.getPopularity());
+    }
+
+    @Test
+    void testPurchase_InsufficientQuantity() {
+        assertThrows(IllegalArgumentException.class, () -> batcher.purchase(sweetId, 11));
+        assertEquals(10, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testPurchase_NotFound() {
+        assertThrows(ResourceNotFoundException.class, () -> batcher.purchase(999L, 1));
+    }
+
+    @Test
+    void testPurchase_AnsweredFromLockedRowWithoutReload() {
+        // A reload after commit would miss the row; the answer must not depend on it.
+        SweetRepository reloadMisses = (SweetRepository) Proxy.newProxyInstance(
+                SweetRepository.class.getClassLoader(), new Class<?>[]{SweetRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findById")) {
+                        return Optional.empty();
+                    }
+                    try {
+                        return method.invoke(sweetRepository, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+        PurchaseBatcher noReload = new PurchaseBatcher(reloadMisses, eventPublisher, transactionManager,
+                true, Duration.ofMillis(1), 256);
+
+        Sweet sweet = noReload.purchase(sweetId, 4);
+
+        Sweet row = sweetRepository.findById(sweetId).orElseThrow();
+        assertEquals(6, sweet.getQuantity());
+        assertEquals(row.getPopularity(), sweet.getPopularity());
+        assertEquals(row.getVersion(), sweet.getVersion());
+        assertEquals(row.getUpdatedAt(), sweet.getUpdatedAt());
+    }
+
+    @Test
+    void testConcurrentPurchases_ErrorInLeaderReleasesFollowers() throws Exception {
+        PurchaseBatcher failing = new PurchaseBatcher(sweetRepository, event -> {
+            throw new AssertionError("listener blew up");
+        }, transactionManager, true, Duration.ofMillis(200), 256);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Sweet> first = executor.submit(() -> failing.purchase(sweetId, 1));
+            Future<Sweet> second = executor.submit(() -> failing.purchase(sweetId, 1));
+
+            for (Future<Sweet> purchase : List.of(first, second)) {
+                ExecutionException ex = assertThrows(ExecutionException.class,
+                        () -> purchase.get(30, TimeUnit.SECONDS));
+                assertInstanceOf(AssertionError.class, ex.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConcurrentPurchases_ShareBatchesAndRejectOnceStockRunsOut() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < 8; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        Sweet sweet = batcher.purchase(sweetId, 3);
+                        assertTrue(sweet.getQuantity() >= 0);
+                        accepted.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 10 units fit three purchases of 3, whichever batches they landed in
+        assertEquals(3, accepted.get());
+        assertEquals(5, rejected.get());
+        assertEquals(1, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+        assertEquals(8, batcher.getPurchaseCount());
+        assertTrue(batcher.getBatchCount() < 8);
+    }
+
+    @Test
+    void testConcurrentPurchases_FullBatchCommitsBeforeWindowEnds() throws Exception {
+        PurchaseBatcher small = new PurchaseBatcher(sweetRepository, eventPublisher, transactionManager,
+                true, Duration.ofSeconds(10), 2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            long began = System.nanoTime();
+            Future<Sweet> first = executor.submit(() -> small.purchase(sweetId, 1));
+            Future<Sweet> second = executor.submit(() -> small.purchase(sweetId, 1));
+            first.get(30, TimeUnit.SECONDS);
+            second.get(30, TimeUnit.SECONDS);
+
+            assertTrue(System.nanoTime() - began < Duration.ofSeconds(10).toNanos());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(8, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+    }
+}
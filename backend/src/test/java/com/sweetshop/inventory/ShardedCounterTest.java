@@ -0,0 +1,45 @@
+package com.sweetshop.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ShardedCounter.
+ */
+class ShardedCounterTest {
+
+    @Test
+    void testSplit_SpreadsRemainderOverFirstShards() {
+        assertArrayEquals(new long[]{4, 3, 3}, ShardedCounter.split(10, 3));
+        assertArrayEquals(new long[]{0, 0}, ShardedCounter.split(0, 2));
+    }
+
+    @Test
+    void testTake_FallsOverToAShardWithEnough() {
+        ShardedCounter counter = new ShardedCounter(new long[]{0, 0, 5, 0});
+
+        int shard = counter.take(3);
+
+        assertEquals(2, shard);
+        assertEquals(2, counter.get(2));
+        assertEquals(2, counter.sum());
+    }
+
+    @Test
+    void testTake_FailsWhenNoSingleShardHoldsEnough() {
+        ShardedCounter counter = new ShardedCounter(new long[]{2, 2, 2});
+
+        assertEquals(-1, counter.take(3));
+        assertEquals(6, counter.sum());
+    }
+
+    @Test
+    void testTryTake_NeverGoesNegative() {
+        ShardedCounter counter = new ShardedCounter(new long[]{1});
+
+        assertTrue(counter.tryTake(0, 1));
+        assertFalse(counter.tryTake(0, 1));
+        assertEquals(0, counter.get(0));
+    }
+}
@@ -0,0 +1,226 @@
+package com.sweetshop.inventory;
+
+import com.sweetshop.cache.CatalogSnapshot;
+import com.sweetshop.entity.StockShard;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.repository.StockShardRepository;
+import com.sweetshop.repository.SweetRepository;
+import com.sweetshop.service.SweetService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for ShardedStock.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ShardedStockTest {
+
+    @Autowired
+    private SweetService sweetService;
+
+    @Autowired
+    private ShardedStock shardedStock;
+
+    @Autowired
+    private SweetRepository sweetRepository;
+
+    @Autowired
+    private StockShardRepository stockShardRepository;
+
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
+    private Long sweetId;
+
+    @BeforeEach
+    void setUp() {
+        stockShardRepository.deleteAll();
+        sweetRepository.deleteAll();
+        sweetId = sweetRepository.save(Sweet.builder()
+                .name("Hot Sweet")
+                .category("Candy")
+                .price(new BigDecimal("1.00"))
+                .quantity(100)
+                .description("Flash sale")
+                .build()).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        shardedStock.disable(sweetId);
+    }
+
+    @Test
+    void testEnable_MovesRowQuantityIntoShards() {
+        Sweet sweet = sweetService.setInventoryMode(sweetId, InventoryMode.SHARDED);
+
+        assertEquals(100, sweet.getQuantity());
+        assertEquals(0, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+        assertEquals(100, stockShardRepository.findAll().stream().mapToInt(StockShard::getQuantity).sum());
+    }
+
+    @Test
+    void testPurchase_ReportsSummedQuantity() {
+        sweetService.setInventoryMode(sweetId, InventoryMode.SHARDED);
+
+        Sweet sweet = sweetService.purchaseSweet(sweetId, 3);
+
+        assertEquals(97, sweet.getQuantity());
+        assertEquals(97, sweetService.getSweetById(sweetId).getQuantity());
+    }
+
+    @Test
+    void testPurchase_EveryReadAndTheCatalogVersionSeeShardSales() throws InterruptedException {
+        sweetService.setInventoryMode(sweetId, InventoryMode.SHARDED);
+        String etag = sweetService.getCatalogVersion().toEtag();
+
+        sweetService.purchaseSweet(sweetId, 3);
+
+        assertEquals(97, sweetService.getAllSweets().get(0).getQuantity());
+        assertEquals(97, sweetService.searchSweets(null, "Candy", null, null).get(0).getQuantity());
+        assertEquals(97, sweetService.getSweetsPage("id", "asc", null, 10).getItems().get(0).getQuantity());
+        assertEquals(97, sweetService.getSweetsByIds(List.of(sweetId)).get(0).getQuantity());
+        // Shard sales publish no event; the first stale read queues the snapshot rebuild.
+        catalogSnapshot.current();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!catalogSnapshot.isUpToDate() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(new String(catalogSnapshot.current().getJson(), StandardCharsets.UTF_8).contains("\"quantity\":97"));
+        assertNotEquals(etag, sweetService.getCatalogVersion().toEtag());
+    }
+
+    @Test
+    void testPurchase_LargerThanAnyShardRebalances() {
+        sweetService.setInventoryMode(sweetId, InventoryMode.SHARDED);
+        long rebalances = shardedStock.getRebalanceCount();
+
+        Sweet sweet = sweetService.purchaseSweet(sweetId, 60);
+
+        assertEquals(40, sweet.getQuantity());
+        assertEquals(rebalances + 1, shardedStock.getRebalanceCount());
+        assertEquals(60L, sweetRepository.findById(sweetId).orElseThrow().getPopularity());
+    }
+
+    @Test
+    void testPurchase_InsufficientAcrossAllShards() {
+        sweetService.setInventoryMode(sweetId, InventoryMode.SHARDED);
+
+        assertThrows(IllegalArgumentException.class, () -> sweetService.purchaseSweet(sweetId, 101));
+        assertEquals(100, sweetService.getSweetById(sweetId).getQuantity());
+    }
+
+    @Test
+    void testRestock_IsPooledIntoShardsAtRebalance() {
+        sweetService.setInventoryMode(sweetId, InventoryMode.SHARDED);
+
+        sweetService.restockSweet(sweetId, 50);
+        Sweet sweet = sweetService.purchaseSweet(sweetId, 120);
+
+        assertEquals(30, sweet.getQuantity());
+        assertEquals(0, sweetRepository.findById(sweetId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void testDisable_FoldsShardsBackIntoRow() {
+        sweetService.setInventoryMode(sweetId, InventoryMode.SHARDED);
+        sweetService.purchaseSweet(sweetId, 5);
+
+        sweetService.setInventoryMode(sweetId, InventoryMode.DATABASE);
+
+        Sweet row = sweetRepository.findById(sweetId).orElseThrow();
+        assertEquals(95, row.getQuantity());
+        assertEquals(5L, row.getPopularity());
+        assertTrue(stockShardRepository.findAll().isEmpty());
+    }
+
+    @Test
+    void testPurchase_DiscoversShardsSwitchedByAnotherInstance() {
+        // Another instance moved the row's stock into shards; this one has not refreshed yet.
+        List<StockShard> shards = new ArrayList<>();
+        for (int shard = 0; shard < 4; shard++) {
+            shards.add(new StockShard(sweetId, shard, 25, 0L));
+        }
+        stockShardRepository.saveAll(shards);
+        sweetRepository.syncStock(sweetId, 0, 0, System.currentTimeMillis());
+        assertFalse(shardedStock.isManaged(sweetId));
+
+        Sweet sweet = sweetService.purchaseSweet(sweetId, 3);
+
+        assertEquals(97, sweet.getQuantity());
+        assertTrue(shardedStock.isManaged(sweetId));
+    }
+
+    @Test
+    void testRefresh_PicksUpAnotherInstancesSalesAndFold() {
+        sweetService.setInventoryMode(sweetId, InventoryMode.SHARDED);
+        long sales = shardedStock.getSaleCount();
+
+        // Another instance sells from shard 0, then folds the shards back into the row.
+        assertEquals(1, stockShardRepository.take(sweetId, 0, 5));
+        shardedStock.refresh();
+
+        assertEquals(95, sweetService.getSweetById(sweetId).getQuantity());
+        assertTrue(shardedStock.getSaleCount() > sales);
+
+        stockShardRepository.deleteBySweetId(sweetId);
+        sweetRepository.syncStock(sweetId, 95, 5, System.currentTimeMillis());
+        shardedStock.refresh();
+
+        assertFalse(shardedStock.isManaged(sweetId));
+        assertEquals(95, sweetService.purchaseSweet(sweetId, 95).getQuantity() + 95);
+    }
+
+    @Test
+    void testConcurrentPurchases_NeverOversell() throws Exception {
+        sweetService.setInventoryMode(sweetId, InventoryMode.SHARDED);
+        AtomicInteger purchased = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < 8; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 25; i++) {
+                        try {
+                            sweetService.purchaseSweet(sweetId, 1);
+                            purchased.incrementAndGet();
+                        } catch (IllegalArgumentException e) {
+                            // Sold out
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(100, purchased.get());
+        assertEquals(0, sweetService.getSweetById(sweetId).getQuantity());
+        assertEquals(0, stockShardRepository.findAll().stream().mapToInt(StockShard::getQuantity).sum());
+    }
+}
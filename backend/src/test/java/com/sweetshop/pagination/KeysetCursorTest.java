@@ -0,0 +1,44 @@
+package com.sweetshop.pagination;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for KeysetCursor.
+ */
+class KeysetCursorTest {
+
+    @Test
+    void testEncodeDecode_RoundTrip() {
+        KeysetCursor cursor = new KeysetCursor(SweetSortField.PRICE, Sort.Direction.DESC, "3.99", 42L);
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+        assertEquals(new BigDecimal("3.99"), decoded.getLastPrice());
+        assertEquals(42L, decoded.getLastId());
+    }
+
+    @Test
+    void testDecode_MalformedToken() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not-a-cursor"));
+    }
+
+    @Test
+    void testDecode_TamperedSortKey() {
+        String token = new KeysetCursor(SweetSortField.UPDATED_AT, Sort.Direction.ASC, "abc", 1L).encode();
+
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token));
+    }
+
+    @Test
+    void testSortField_FromParameter() {
+        assertEquals(SweetSortField.UPDATED_AT, SweetSortField.fromParameter("updatedAt"));
+        assertEquals(SweetSortField.PRICE, SweetSortField.fromParameter("PRICE"));
+        assertThrows(IllegalArgumentException.class, () -> SweetSortField.fromParameter("name"));
+    }
+}
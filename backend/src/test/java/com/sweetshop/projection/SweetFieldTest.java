@@ -0,0 +1,48 @@
+package com.sweetshop.projection;
+
+import com.sweetshop.dto.SweetResponse;
+import com.sweetshop.entity.Sweet;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SweetField.
+ */
+class SweetFieldTest {
+
+    @Test
+    void testParse_AlwaysIncludesId() {
+        assertEquals(EnumSet.of(SweetField.ID, SweetField.NAME, SweetField.UPDATED_AT),
+                SweetField.parse(" name, updatedAt "));
+    }
+
+    @Test
+    void testParse_BlankSelectsAll() {
+        assertEquals(SweetField.all(), SweetField.parse(""));
+        assertEquals(SweetField.all(), SweetField.parse(null));
+    }
+
+    @Test
+    void testParse_UnknownField() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> SweetField.parse("name,password"));
+        assertEquals("Unknown field: password", ex.getMessage());
+    }
+
+    @Test
+    void testSweetResponse_OnlySelectedFieldsSet() {
+        Sweet sweet = Sweet.builder().id(7L).name("Barfi").price(new BigDecimal("2.50"))
+                .description("Milk fudge").build();
+
+        SweetResponse response = SweetResponse.from(sweet, SweetField.parse("price"));
+
+        assertEquals(7L, response.getId());
+        assertEquals(new BigDecimal("2.50"), response.getPrice());
+        assertNull(response.getName());
+        assertNull(response.getDescription());
+    }
+}
@@ -0,0 +1,222 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.IdempotencyRecord;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.pagination.KeysetCursor;
+import com.sweetshop.pagination.SweetSortField;
+import com.sweetshop.projection.SweetField;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Flyway migrations against an embedded database and checks that the
+ * SQL generated for the catalog queries is planned on the indexes they create.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:migrations;DB_CLOSE_DELAY=-1",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.sweetshop.repository.SchemaMigrationTest$GeneratedSql"
+})
+@ActiveProfiles("test")
+class SchemaMigrationTest {
+
+    private static final String[] CATEGORIES = {"Candy", "Chocolate", "Toffee", "Fudge", "Mithai"};
+    private static final PageRequest PAGE = PageRequest.of(0, 21);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SweetRepository sweetRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM sweets");
+        long now = System.currentTimeMillis();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            rows.add(new Object[]{"Sweet " + i, CATEGORIES[i % CATEGORIES.length],
+                    BigDecimal.valueOf(i % 500 + 1, 2), 10, "Seeded sweet", now, now + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO sweets (name, category, price, quantity, description, " +
+                "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void testMigrationsApplied() {
+        Integer applied = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM \"flyway_schema_history\" WHERE \"success\" = TRUE AND \"version\" IS NOT NULL",
+                Integer.class);
+
+        assertEquals(9, applied);
+    }
+
+    @Test
+    void testEntityMapsOntoMigratedSchema() {
+        Sweet saved = sweetRepository.save(Sweet.builder()
+                .name("Kaju Katli")
+                .category("Mithai")
+                .price(new BigDecimal("4.25"))
+                .quantity(5)
+                .description("Cashew fudge")
+                .build());
+
+        Sweet loaded = sweetRepository.findById(saved.getId()).orElseThrow();
+        assertEquals(0L, loaded.getSoldCount());
+        assertEquals(0L, loaded.getVersion());
+        assertEquals(0, new BigDecimal("4.25").compareTo(loaded.getPrice()));
+    }
+
+    @Test
+    void testCategorySearchUsesCategoryPriceIndex() {
+        String plan = explainGenerated(() -> sweetRepository.search(null, "Candy", null, null), "Candy");
+
+        assertTrue(plan.contains("IDX_SWEETS_CATEGORY_PRICE: CATEGORY ="), plan);
+    }
+
+    @Test
+    void testPriceRangeSearchUsesPriceIndex() {
+        BigDecimal min = new BigDecimal("1.00");
+        BigDecimal max = new BigDecimal("1.50");
+
+        String plan = explainGenerated(() -> sweetRepository.search(null, null, min, max), min, max);
+
+        assertTrue(plan.contains("IDX_SWEETS_PRICE_ID: PRICE >="), plan);
+    }
+
+    @Test
+    void testPriceKeysetPagesSeekOnPriceIndex() {
+        BigDecimal price = new BigDecimal("2.50");
+
+        String ascending = explainGenerated(() -> sweetRepository.findPageAfterPriceAsc(price, 100L, PAGE),
+                price, price, 100L, 0, PAGE.getPageSize());
+        String descending = explainGenerated(() -> sweetRepository.findPageAfterPriceDesc(price, 100L, PAGE),
+                price, price, 100L, 0, PAGE.getPageSize());
+
+        assertTrue(ascending.contains("IDX_SWEETS_PRICE_ID: PRICE >="), ascending);
+        assertTrue(descending.contains("IDX_SWEETS_PRICE_ID: PRICE <="), descending);
+    }
+
+    @Test
+    void testSparsePriceKeysetPageSeeksOnPriceIndex() {
+        BigDecimal price = new BigDecimal("2.50");
+        KeysetCursor after = new KeysetCursor(SweetSortField.PRICE, Sort.Direction.ASC, price.toPlainString(), 100L);
+
+        String plan = explainGenerated(() -> sweetRepository.findPageColumns(SweetField.parse("name"),
+                SweetSortField.PRICE, Sort.Direction.ASC, after, PAGE.getPageSize()),
+                price, price, 100L, PAGE.getPageSize());
+
+        assertTrue(plan.contains("IDX_SWEETS_PRICE_ID: PRICE >="), plan);
+        assertFalse(plan.contains("DESCRIPTION"), plan);
+    }
+
+    @Test
+    void testUpdatedAtKeysetPagesSeekOnUpdatedAtIndex() {
+        long updatedAt = System.currentTimeMillis();
+
+        String ascending = explainGenerated(() -> sweetRepository.findPageAfterUpdatedAtAsc(updatedAt, 100L, PAGE),
+                updatedAt, updatedAt, 100L, 0, PAGE.getPageSize());
+        String descending = explainGenerated(() -> sweetRepository.findPageAfterUpdatedAtDesc(updatedAt, 100L, PAGE),
+                updatedAt, updatedAt, 100L, 0, PAGE.getPageSize());
+
+        assertTrue(ascending.contains("IDX_SWEETS_UPDATED_AT_ID: UPDATED_AT >="), ascending);
+        assertTrue(descending.contains("IDX_SWEETS_UPDATED_AT_ID: UPDATED_AT <="), descending);
+    }
+
+    @Test
+    void testNameLookupUsesNameIndex() {
+        String plan = explainGenerated(() -> sweetRepository.findByNameInOrderByIdAsc(List.of("Sweet 1", "Sweet 2")),
+                "Sweet 1", "Sweet 2");
+
+        assertTrue(plan.contains("IDX_SWEETS_NAME_ID: NAME IN"), plan);
+    }
+
+    @Test
+    void testSequenceIdsNeverCollideWithRowsInsertedWithDefaultIds() {
+        Set<Long> seeded = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM sweets", Long.class));
+
+        // More than one allocation block, so Hibernate has to draw from the sequence again.
+        List<Sweet> sweets = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            sweets.add(Sweet.builder()
+                    .name("Soan Papdi " + i)
+                    .category("Mithai")
+                    .price(new BigDecimal("2.75"))
+                    .quantity(5)
+                    .description("Flaky gram flour sweet")
+                    .build());
+        }
+        List<Sweet> saved = sweetRepository.saveAll(sweets);
+
+        Set<Long> savedIds = new HashSet<>();
+        for (Sweet sweet : saved) {
+            assertFalse(seeded.contains(sweet.getId()), "id " + sweet.getId() + " already used by a seeded row");
+            assertTrue(savedIds.add(sweet.getId()), "id " + sweet.getId() + " handed out twice");
+        }
+        assertEquals(seeded.size() + saved.size(), sweetRepository.count());
+    }
+
+    @Test
+    void testIdempotencyRecordMapsOntoMigratedSchema() {
+        idempotencyRecordRepository.claim("user\nkey-1", "a".repeat(64), 1_000L);
+        idempotencyRecordRepository.complete("user\nkey-1", 200, "application/json", "{\"id\":1}", 2_000L);
+
+        IdempotencyRecord loaded = idempotencyRecordRepository.findById("user\nkey-1").orElseThrow();
+        assertEquals(200, loaded.getStatus());
+        assertEquals("{\"id\":1}", loaded.getResponseBody());
+        assertEquals(2_000L, loaded.getExpiresAt());
+        assertEquals(1, idempotencyRecordRepository.deleteExpired(2_001L));
+    }
+
+    /**
+     * Run a repository query and explain the SQL Hibernate generated for it.
+     *
+     * @param query the repository call
+     * @param parameters the values to bind, in the order the generated SQL uses them
+     * @return the plan, upper case
+     */
+    private String explainGenerated(Runnable query, Object... parameters) {
+        List<String> statements = GeneratedSql.STATEMENTS.get();
+        statements.clear();
+        query.run();
+        String sql = statements.get(statements.size() - 1);
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Records the SQL Hibernate prepares, so the plans checked are those of the real queries.
+     * Per thread, so the background shard refresh does not get in between.
+     */
+    public static class GeneratedSql implements StatementInspector {
+
+        private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.get().add(sql);
+            return sql;
+        }
+    }
+}
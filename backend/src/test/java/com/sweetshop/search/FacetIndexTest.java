@@ -0,0 +1,90 @@
+package com.sweetshop.search;
+
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for FacetIndex and FacetCounts.
+ */
+@ExtendWith(MockitoExtension.class)
+class FacetIndexTest {
+
+    private static final BigDecimal FIVE = new BigDecimal("5");
+
+    @Mock
+    private SweetCatalogCache sweetCatalogCache;
+
+    private FacetIndex facetIndex;
+
+    @BeforeEach
+    void setUp() {
+        facetIndex = new FacetIndex(sweetCatalogCache, Duration.ofMinutes(5), () -> 0L);
+        lenient().when(sweetCatalogCache.getAll()).thenReturn(List.of(
+                sweet(1L, "Candy", "1.50"),
+                sweet(2L, "Candy", "6.00"),
+                sweet(3L, "Chocolate", "4.99"),
+                sweet(4L, "Chocolate", "12.00")));
+    }
+
+    @Test
+    void testFacets_Unfiltered() {
+        FacetCounts facets = facetIndex.facets(null, null, null, FIVE);
+
+        assertEquals(4, facets.getTotal());
+        assertEquals(Map.of("Candy", 2L, "Chocolate", 2L), facets.getCategories());
+        assertEquals(Map.of(new BigDecimal("0.00"), 2L, new BigDecimal("5.00"), 1L, new BigDecimal("10.00"), 1L),
+                facets.getPriceBuckets());
+    }
+
+    @Test
+    void testFacets_EachFacetIgnoresItsOwnFilter() {
+        FacetCounts facets = facetIndex.facets("Candy", null, new BigDecimal("5.00"), FIVE);
+
+        assertEquals(1, facets.getTotal());
+        // Categories honour the price filter only; buckets honour the category filter only.
+        assertEquals(Map.of("Candy", 1L, "Chocolate", 1L), facets.getCategories());
+        assertEquals(Map.of(new BigDecimal("0.00"), 1L, new BigDecimal("5.00"), 1L), facets.getPriceBuckets());
+    }
+
+    @Test
+    void testOnSweetChanged_MovesCounts() {
+        facetIndex.facets(null, null, null, FIVE);
+
+        facetIndex.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet(2L, "Chocolate", "6.00")));
+        facetIndex.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.DELETED, sweet(1L, "Candy", "1.50")));
+
+        FacetCounts facets = facetIndex.facets(null, null, null, FIVE);
+        assertEquals(Map.of("Chocolate", 3L), facets.getCategories());
+        assertEquals(3, facets.getTotal());
+    }
+
+    @Test
+    void testFacetCounts_RejectsZeroBucketWidth() {
+        assertThrows(IllegalArgumentException.class, () -> new FacetCounts(null, null, null, BigDecimal.ZERO));
+    }
+
+    private Sweet sweet(Long id, String category, String price) {
+        return Sweet.builder()
+                .id(id)
+                .name("Sweet " + id)
+                .category(category)
+                .price(new BigDecimal(price))
+                .quantity(10)
+                .description("A test sweet")
+                .build();
+    }
+}
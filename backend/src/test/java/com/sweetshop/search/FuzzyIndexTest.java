@@ -0,0 +1,114 @@
+package com.sweetshop.search;
+
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for FuzzyIndex.
+ */
+@ExtendWith(MockitoExtension.class)
+class FuzzyIndexTest {
+
+    @Mock
+    private SweetCatalogCache sweetCatalogCache;
+
+    private FuzzyIndex fuzzyIndex;
+
+    @BeforeEach
+    void setUp() {
+        fuzzyIndex = new FuzzyIndex(sweetCatalogCache, Duration.ofMinutes(5), () -> 0L);
+    }
+
+    @Test
+    void testSearch_ToleratesTypos() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(
+                sweet(1L, "Gulab Jamun", 0),
+                sweet(2L, "Rasgulla", 0),
+                sweet(3L, "Kaju Katli", 0)));
+
+        assertEquals(List.of(1L), ids(fuzzyIndex.search("gulab jamon")));
+        assertEquals(List.of(2L), ids(fuzzyIndex.search("rasgula")));
+        assertEquals(List.of(1L), ids(fuzzyIndex.search("JAMON")));
+        assertTrue(fuzzyIndex.search("xyzzy").isEmpty());
+    }
+
+    @Test
+    void testSearch_RanksByDistanceThenPopularity() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(
+                sweet(1L, "Peda", 5),
+                sweet(2L, "Kesar Peda", 50),
+                sweet(3L, "Pera", 500)));
+
+        // "peda" is an exact token of 1 and 2, one edit away from 3.
+        assertEquals(List.of(2L, 1L, 3L), ids(fuzzyIndex.search("peda")));
+    }
+
+    @Test
+    void testSearch_KeepsOnlyTheBestFilteredMatches() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(
+                sweet(1L, "Peda", 5),
+                sweet(2L, "Kesar Peda", 50),
+                sweet(3L, "Pera", 500),
+                sweet(4L, "Malai Peda", 20)));
+
+        assertEquals(List.of(2L, 4L), ids(fuzzyIndex.search("peda", sweet -> true, 2)));
+        assertEquals(List.of(4L, 1L, 3L), ids(fuzzyIndex.search("peda", sweet -> sweet.getId() != 2L, 10)));
+    }
+
+    @Test
+    void testSearch_ShortQueryRequiresExactTerm() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(sweet(1L, "Ab", 0), sweet(2L, "Ac", 0)));
+
+        assertEquals(List.of(1L), ids(fuzzyIndex.search("ab")));
+    }
+
+    @Test
+    void testOnSweetChanged_TombstonesRemovedTerms() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(sweet(1L, "Jalebi", 0)));
+        assertEquals(1, fuzzyIndex.search("jalebi").size());
+
+        fuzzyIndex.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet(1L, "Imarti", 0)));
+
+        assertTrue(fuzzyIndex.search("jalebi").isEmpty());
+        assertEquals(List.of(1L), ids(fuzzyIndex.search("imarti")));
+    }
+
+    @Test
+    void testDistance() {
+        int[] previous = new int[8];
+        int[] current = new int[8];
+
+        assertEquals(0, FuzzyIndex.distance("kitten", "kitten", previous, current));
+        assertEquals(3, FuzzyIndex.distance("kitten", "sitting", previous, current));
+        assertEquals(6, FuzzyIndex.distance("kitten", "", previous, current));
+    }
+
+    private List<Long> ids(List<Sweet> sweets) {
+        return sweets.stream().map(Sweet::getId).toList();
+    }
+
+    private Sweet sweet(Long id, String name, long sold) {
+        return Sweet.builder()
+                .id(id)
+                .name(name)
+                .category("Indian")
+                .price(new BigDecimal("1.99"))
+                .quantity(10)
+                .soldCount(sold)
+                .description("A test sweet")
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package com.sweetshop.search;
+
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PriceIndex.
+ */
+@ExtendWith(MockitoExtension.class)
+class PriceIndexTest {
+
+    @Mock
+    private SweetCatalogCache sweetCatalogCache;
+
+    private PriceIndex priceIndex;
+
+    @BeforeEach
+    void setUp() {
+        priceIndex = new PriceIndex(sweetCatalogCache, Duration.ofMinutes(5), () -> 0L);
+        lenient().when(sweetCatalogCache.getAll()).thenReturn(List.of(
+                sweet(1L, "Candy", "1.50"),
+                sweet(2L, "Candy", "6.00"),
+                sweet(3L, "Chocolate", "4.99"),
+                sweet(4L, "Chocolate", "1.50"),
+                sweet(5L, "Chocolate", "12.00")));
+    }
+
+    @Test
+    void testRange_AscendingWithIdTieBreak() {
+        assertEquals(List.of(1L, 4L, 3L, 2L, 5L), ids(priceIndex.range(null, null, null, false, 10)));
+    }
+
+    @Test
+    void testRange_DescendingWithinBoundsAndLimit() {
+        List<Sweet> result = priceIndex.range(new BigDecimal("1.50"), new BigDecimal("6"), null, true, 3);
+
+        assertEquals(List.of(2L, 3L, 4L), ids(result));
+    }
+
+    @Test
+    void testRange_FiltersCategoryAndRoundsBoundsInward() {
+        List<Sweet> result = priceIndex.range(new BigDecimal("1.501"), new BigDecimal("12.009"), "Chocolate", false, 10);
+
+        assertEquals(List.of(3L, 5L), ids(result));
+    }
+
+    @Test
+    void testRange_EmptyWhenBoundsCross() {
+        assertTrue(priceIndex.range(new BigDecimal("5"), new BigDecimal("4"), null, false, 10).isEmpty());
+    }
+
+    @Test
+    void testOnSweetChanged_MovesRepricedSweet() {
+        priceIndex.range(null, null, null, false, 10);
+
+        priceIndex.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED, sweet(5L, "Chocolate", "0.50")));
+        priceIndex.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.DELETED, sweet(1L, "Candy", "1.50")));
+
+        assertEquals(List.of(5L, 4L, 3L, 2L), ids(priceIndex.range(null, null, null, false, 10)));
+        assertEquals(List.of(5L), ids(priceIndex.range(null, new BigDecimal("1"), null, false, 10)));
+    }
+
+    private static List<Long> ids(List<Sweet> sweets) {
+        return sweets.stream().map(Sweet::getId).toList();
+    }
+
+    private Sweet sweet(Long id, String category, String price) {
+        return Sweet.builder()
+                .id(id)
+                .name("Sweet " + id)
+                .category(category)
+                .price(new BigDecimal(price))
+                .quantity(10)
+                .description("A test sweet")
+                .build();
+    }
+}
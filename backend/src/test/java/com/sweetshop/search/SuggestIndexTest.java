@@ -0,0 +1,105 @@
+package com.sweetshop.search;
+
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SuggestIndex.
+ */
+@ExtendWith(MockitoExtension.class)
+class SuggestIndexTest {
+
+    @Mock
+    private SweetCatalogCache sweetCatalogCache;
+
+    private SuggestIndex suggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        suggestIndex = new SuggestIndex(sweetCatalogCache, Duration.ofMinutes(5), 3, () -> 0L);
+    }
+
+    @Test
+    void testSuggest_RanksByPopularity() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(
+                sweet(1L, "Kaju Katli", "Indian", 5),
+                sweet(2L, "Kaju Roll", "Indian", 50),
+                sweet(3L, "Kalakand", "Indian", 20),
+                sweet(4L, "Gulab Jamun", "Indian", 1)));
+
+        assertEquals(List.of("Kaju Roll", "Kalakand", "Kaju Katli"), texts(suggestIndex.suggest("KA", 10)));
+        assertEquals(List.of("Kaju Roll", "Kaju Katli"), texts(suggestIndex.suggest("kaju", 10)));
+        assertEquals(List.of("Kaju Roll"), texts(suggestIndex.suggest("kaju", 1)));
+        assertTrue(suggestIndex.suggest("kx", 10).isEmpty());
+    }
+
+    @Test
+    void testSuggest_IncludesCategories() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(
+                sweet(1L, "Milk Cake", "Milk Sweets", 3),
+                sweet(2L, "Rasmalai", "Milk Sweets", 4)));
+
+        List<SuggestIndex.Suggestion> suggestions = suggestIndex.suggest("mil", 10);
+
+        assertEquals("Milk Sweets", suggestions.get(0).getText());
+        assertEquals(SuggestIndex.Suggestion.Type.CATEGORY, suggestions.get(0).getType());
+        assertEquals(7, suggestions.get(0).getScore());
+        assertEquals("Milk Cake", suggestions.get(1).getText());
+    }
+
+    @Test
+    void testSuggest_PrefixEndingInsideEdge() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(sweet(1L, "Jalebi", "Fried", 1)));
+
+        assertEquals(List.of("Jalebi"), texts(suggestIndex.suggest("jal", 10)));
+        assertTrue(suggestIndex.suggest("jalx", 10).isEmpty());
+    }
+
+    @Test
+    void testOnSweetChanged_UpdatesRankingAndRemovals() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(
+                sweet(1L, "Peda", "Indian", 10),
+                sweet(2L, "Pedha Special", "Indian", 5)));
+        assertEquals(List.of("Peda", "Pedha Special"), texts(suggestIndex.suggest("ped", 10)));
+
+        suggestIndex.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED,
+                sweet(2L, "Pedha Special", "Indian", 25)));
+        assertEquals(List.of("Pedha Special", "Peda"), texts(suggestIndex.suggest("ped", 10)));
+
+        suggestIndex.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.DELETED,
+                sweet(1L, "Peda", "Indian", 10)));
+        assertEquals(List.of("Pedha Special"), texts(suggestIndex.suggest("ped", 10)));
+    }
+
+    private List<String> texts(List<SuggestIndex.Suggestion> suggestions) {
+        return suggestions.stream()
+                .filter(suggestion -> suggestion.getType() == SuggestIndex.Suggestion.Type.NAME)
+                .map(SuggestIndex.Suggestion::getText)
+                .toList();
+    }
+
+    private Sweet sweet(Long id, String name, String category, long sold) {
+        return Sweet.builder()
+                .id(id)
+                .name(name)
+                .category(category)
+                .price(new BigDecimal("1.99"))
+                .quantity(10)
+                .soldCount(sold)
+                .description("A test sweet")
+                .build();
+    }
+}
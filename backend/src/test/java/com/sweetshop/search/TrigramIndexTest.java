@@ -0,0 +1,122 @@
+package com.sweetshop.search;
+
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TrigramIndex.
+ */
+@ExtendWith(MockitoExtension.class)
+class TrigramIndexTest {
+
+    @Mock
+    private SweetCatalogCache sweetCatalogCache;
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private TrigramIndex trigramIndex;
+
+    @BeforeEach
+    void setUp() {
+        trigramIndex = new TrigramIndex(sweetCatalogCache, Duration.ofMinutes(5), now::get);
+    }
+
+    @Test
+    void testSearchName_SubstringIgnoringCase() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(
+                sweet(1L, "Gulab Jamun", "Soft milk dumplings in syrup"),
+                sweet(2L, "Kaju Katli", "Cashew fudge"),
+                sweet(3L, "Jamun Special", "Dark gulab jamun")));
+
+        List<Sweet> result = trigramIndex.searchName("JAMUN");
+
+        assertEquals(List.of(1L, 3L), result.stream().map(Sweet::getId).toList());
+        assertTrue(trigramIndex.searchName("jamunx").isEmpty());
+    }
+
+    @Test
+    void testSearchName_ShortTermFallsBackToScan() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(
+                sweet(1L, "Ladoo", "Round sweet"),
+                sweet(2L, "Barfi", "Milk fudge")));
+
+        assertEquals(1, trigramIndex.searchName("la").size());
+        assertEquals(2, trigramIndex.searchName("").size());
+    }
+
+    @Test
+    void testSearchName_VerifiesTrigramCandidates() {
+        // "abcab" has every trigram of "bcabc" without containing it, so it must be rejected.
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(
+                sweet(1L, "abcab", "x"),
+                sweet(2L, "xbcabcx", "x")));
+
+        assertEquals(List.of(2L), trigramIndex.searchName("bcabc").stream().map(Sweet::getId).toList());
+    }
+
+    @Test
+    void testSearchText_MatchesDescription() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(
+                sweet(1L, "Kaju Katli", "Cashew fudge"),
+                sweet(2L, "Barfi", "Milk fudge")));
+
+        assertEquals(2, trigramIndex.searchText("fudge").size());
+        assertTrue(trigramIndex.searchName("fudge").isEmpty());
+    }
+
+    @Test
+    void testOnSweetChanged_UpdatesPostings() {
+        when(sweetCatalogCache.getAll()).thenReturn(List.of(sweet(1L, "Rasgulla", "Spongy balls")));
+        trigramIndex.searchName("ras");
+
+        trigramIndex.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.UPDATED,
+                sweet(1L, "Rasmalai", "Spongy balls in milk")));
+        trigramIndex.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.CREATED,
+                sweet(2L, "Rasgulla", "Spongy balls")));
+
+        assertEquals(List.of(2L), trigramIndex.searchName("gulla").stream().map(Sweet::getId).toList());
+        assertEquals(List.of(1L), trigramIndex.searchName("malai").stream().map(Sweet::getId).toList());
+
+        trigramIndex.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Type.DELETED,
+                sweet(2L, "Rasgulla", "Spongy balls")));
+        assertTrue(trigramIndex.searchName("gulla").isEmpty());
+        verify(sweetCatalogCache, times(1)).getAll();
+    }
+
+    @Test
+    void testSearchName_RebuildsAfterInterval() {
+        when(sweetCatalogCache.getAll())
+                .thenReturn(List.of(sweet(1L, "Peda", "Milk sweet")))
+                .thenReturn(List.of(sweet(1L, "Peda", "Milk sweet"), sweet(2L, "Kesar Peda", "Saffron")));
+        assertEquals(1, trigramIndex.searchName("peda").size());
+
+        now.addAndGet(Duration.ofMinutes(6).toMillis());
+
+        assertEquals(2, trigramIndex.searchName("peda").size());
+        assertEquals(2, trigramIndex.size());
+    }
+
+    private Sweet sweet(Long id, String name, String description) {
+        return Sweet.builder()
+                .id(id)
+                .name(name)
+                .category("Indian")
+                .price(new BigDecimal("1.99"))
+                .quantity(10)
+                .description(description)
+                .build();
+    }
+}
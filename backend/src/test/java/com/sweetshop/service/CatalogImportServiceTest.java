@@ -0,0 +1,141 @@
+package com.sweetshop.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.dto.ImportEvent;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.importer.ImportFormat;
+import com.sweetshop.inventory.InventoryLedger;
+import com.sweetshop.inventory.ShardedStock;
+import com.sweetshop.repository.SweetRepository;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for CatalogImportService.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CatalogImportServiceTest {
+
+    @Autowired
+    private SweetRepository sweetRepository;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private ShardedStock shardedStock;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CatalogImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        sweetRepository.deleteAll();
+        sweetRepository.save(Sweet.builder()
+                .name("Kaju Katli")
+                .category("Mithai")
+                .price(new BigDecimal("4.00"))
+                .quantity(1)
+                .description("Old supplier listing")
+                .build());
+        importService = new CatalogImportService(sweetRepository, inventoryLedger, shardedStock, validator,
+                objectMapper, transactionManager, 2);
+    }
+
+    @Test
+    void testImport_UpsertsByNameInBatches() throws Exception {
+        String upload = """
+                {"name":"Kaju Katli","category":"Mithai","price":4.25,"quantity":20,"description":"Cashew fudge squares"}
+                {"name":"Gulab Jamun","category":"Mithai","price":2.50,"quantity":30,"description":"Syrup-soaked dumplings"}
+
+                {"name":"Rasgulla","category":"Mithai","price":2.00,"quantity":25,"description":"Spongy cheese balls"}
+                """;
+        List<JsonNode> events = new ArrayList<>();
+
+        ImportEvent result = importCatalog(ImportFormat.NDJSON, upload, events);
+
+        assertEquals(ImportEvent.Type.COMPLETED, result.getType());
+        assertEquals(3L, result.getRows());
+        assertEquals(2L, result.getInserted());
+        assertEquals(1L, result.getUpdated());
+        assertEquals(0L, result.getFailed());
+        assertEquals(List.of("PROGRESS", "PROGRESS", "COMPLETED"),
+                events.stream().map(event -> event.get("type").asText()).toList());
+        assertEquals(3, sweetRepository.count());
+        Sweet updated = sweetRepository.findByNameInOrderByIdAsc(List.of("Kaju Katli")).get(0);
+        assertEquals(20, updated.getQuantity());
+        assertEquals("Cashew fudge squares", updated.getDescription());
+    }
+
+    @Test
+    void testImport_ReportsInvalidRowsAndKeepsGoing() throws Exception {
+        String upload = """
+                name,category,price,quantity,description
+                Soan Papdi,Mithai,2.75,10,Flaky gram flour sweet
+                X,Mithai,-1,10,Too short a name
+                Jalebi,Mithai,1.25,8,Crisp syrupy spirals
+                """;
+        List<JsonNode> events = new ArrayList<>();
+
+        ImportEvent result = importCatalog(ImportFormat.CSV, upload, events);
+
+        assertEquals(3L, result.getRows());
+        assertEquals(2L, result.getInserted());
+        assertEquals(1L, result.getFailed());
+        JsonNode error = events.get(0);
+        assertEquals("ERROR", error.get("type").asText());
+        assertEquals(3, error.get("line").asInt());
+        assertEquals("name: Name must be between 2 and 100 characters", error.get("errors").get(0).asText());
+        assertEquals("price: Price must be greater than 0", error.get("errors").get(1).asText());
+    }
+
+    @Test
+    void testImport_MalformedUploadKeepsCommittedBatches() throws Exception {
+        String upload = """
+                name,category,price,quantity,description
+                Soan Papdi,Mithai,2.75,10,Flaky gram flour sweet
+                Jalebi,Mithai,1.25,8,Crisp syrupy spirals
+                "Runaway,Mithai,1.00,1,Never closed
+                """;
+
+        ImportEvent result = importCatalog(ImportFormat.CSV, upload, new ArrayList<>());
+
+        assertEquals(ImportEvent.Type.FAILED, result.getType());
+        assertEquals(2L, result.getInserted());
+        assertEquals(3, sweetRepository.count());
+    }
+
+    private ImportEvent importCatalog(ImportFormat format, String upload, List<JsonNode> events) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImportEvent result = importService.importCatalog(
+                new ByteArrayInputStream(upload.getBytes(StandardCharsets.UTF_8)), format, out);
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            events.add(objectMapper.readTree(line));
+        }
+        return result;
+    }
+}
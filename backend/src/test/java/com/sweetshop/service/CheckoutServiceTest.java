@@ -0,0 +1,162 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.CheckoutItem;
+import com.sweetshop.dto.CheckoutLineResponse;
+import com.sweetshop.dto.CheckoutResponse;
+import com.sweetshop.entity.StockShard;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.inventory.InventoryMode;
+import com.sweetshop.repository.StockShardRepository;
+import com.sweetshop.repository.SweetRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for CheckoutService with carts mixing inventory modes.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CheckoutServiceTest {
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private SweetService sweetService;
+
+    @Autowired
+    private SweetRepository sweetRepository;
+
+    @Autowired
+    private StockShardRepository stockShardRepository;
+
+    private Long shardedId;
+    private Long ledgerId;
+    private Long otherLedgerId;
+    private Long otherShardedId;
+    private Long plainId;
+
+    @BeforeEach
+    void setUp() {
+        stockShardRepository.deleteAll();
+        sweetRepository.deleteAll();
+        // Created in this order so the two kinds alternate by ID.
+        shardedId = save("Hot Fudge");
+        ledgerId = save("Hot Toffee");
+        otherLedgerId = save("Hot Nougat");
+        otherShardedId = save("Hot Praline");
+        plainId = save("Plain Mint");
+        sweetService.setInventoryMode(shardedId, InventoryMode.SHARDED);
+        sweetService.setInventoryMode(ledgerId, InventoryMode.LEDGER);
+        sweetService.setInventoryMode(otherLedgerId, InventoryMode.LEDGER);
+        sweetService.setInventoryMode(otherShardedId, InventoryMode.SHARDED);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (Long id : List.of(shardedId, ledgerId, otherLedgerId, otherShardedId)) {
+            sweetService.setInventoryMode(id, InventoryMode.DATABASE);
+        }
+    }
+
+    @Test
+    void testCheckout_MixedModesAllPurchased() {
+        CheckoutResponse response = checkoutService.checkout(List.of(
+                new CheckoutItem(shardedId, 3),
+                new CheckoutItem(ledgerId, 4),
+                new CheckoutItem(plainId, 5)));
+
+        assertTrue(response.isCompleted());
+        assertEquals(List.of(97, 96, 95), response.getLines().stream()
+                .map(CheckoutLineResponse::getRemainingQuantity).toList());
+        assertEquals(97, sweetService.getSweetById(shardedId).getQuantity());
+        assertEquals(96, sweetService.getSweetById(ledgerId).getQuantity());
+        assertEquals(95, sweetService.getSweetById(plainId).getQuantity());
+    }
+
+    @Test
+    void testCheckout_PlainLineShort_GivesBackLedgerAndShardStock() {
+        CheckoutResponse response = checkoutService.checkout(List.of(
+                new CheckoutItem(shardedId, 3),
+                new CheckoutItem(ledgerId, 4),
+                new CheckoutItem(plainId, 500)));
+
+        assertFalse(response.isCompleted());
+        assertEquals(CheckoutLineResponse.Status.NOT_PURCHASED, response.getLines().get(0).getStatus());
+        assertEquals(CheckoutLineResponse.Status.NOT_PURCHASED, response.getLines().get(1).getStatus());
+        assertEquals(CheckoutLineResponse.Status.INSUFFICIENT_QUANTITY, response.getLines().get(2).getStatus());
+        assertEquals(100, sweetService.getSweetById(shardedId).getQuantity());
+        assertEquals(100, sweetService.getSweetById(ledgerId).getQuantity());
+        assertEquals(100, sweetService.getSweetById(plainId).getQuantity());
+    }
+
+    @Test
+    void testCheckout_LedgerLineShort_GivesBackShardStock() {
+        CheckoutResponse response = checkoutService.checkout(List.of(
+                new CheckoutItem(shardedId, 3),
+                new CheckoutItem(ledgerId, 101)));
+
+        assertFalse(response.isCompleted());
+        assertEquals(CheckoutLineResponse.Status.INSUFFICIENT_QUANTITY, response.getLines().get(1).getStatus());
+        assertEquals(100, sweetService.getSweetById(shardedId).getQuantity());
+        assertEquals(100, sweetService.getSweetById(ledgerId).getQuantity());
+        assertEquals(0L, sweetRepository.findById(shardedId).orElseThrow().getPopularity()
+                + stockShardRepository.findAll().stream()
+                        .filter(shard -> shard.getSweetId().equals(shardedId))
+                        .mapToLong(StockShard::getSoldCount).sum());
+    }
+
+    @Test
+    void testConcurrentCheckouts_OppositeModeOrder_AllComplete() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> carts = new ArrayList<>();
+        try {
+            for (int t = 0; t < 40; t++) {
+                // Sharded before ledger in one cart, ledger before sharded in the other.
+                List<CheckoutItem> items = t % 2 == 0
+                        ? List.of(new CheckoutItem(shardedId, 1), new CheckoutItem(ledgerId, 1))
+                        : List.of(new CheckoutItem(otherLedgerId, 1), new CheckoutItem(otherShardedId, 1));
+                carts.add(executor.submit(() -> {
+                    start.await();
+                    return checkoutService.checkout(items).isCompleted();
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> cart : carts) {
+                assertTrue(cart.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (Long id : List.of(shardedId, ledgerId, otherLedgerId, otherShardedId)) {
+            assertEquals(80, sweetService.getSweetById(id).getQuantity());
+        }
+    }
+
+    private Long save(String name) {
+        return sweetRepository.save(Sweet.builder()
+                .name(name)
+                .category("Candy")
+                .price(new BigDecimal("1.00"))
+                .quantity(100)
+                .description("Checkout fixture")
+                .build()).getId();
+    }
+}
@@ -0,0 +1,100 @@
+package com.sweetshop.service;
+
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.repository.SweetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress test for concurrent purchases of one hot sweet.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PurchaseConcurrencyTest {
+
+    private static final int STOCK = 400;
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 100;
+
+    @Autowired
+    private SweetService sweetService;
+
+    @Autowired
+    private SweetRepository sweetRepository;
+
+    private Long sweetId;
+
+    @BeforeEach
+    void setUp() {
+        sweetRepository.deleteAll();
+        Sweet sweet = Sweet.builder()
+                .name("Hot Sweet")
+                .category("Candy")
+                .price(new BigDecimal("1.00"))
+                .quantity(STOCK)
+                .description("Flash sale")
+                .build();
+        sweetId = sweetRepository.save(sweet).getId();
+    }
+
+    @Test
+    void testConcurrentPurchases_NeverOversell() throws Exception {
+        AtomicInteger purchased = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        try {
+                            sweetService.purchaseSweet(sweetId, 1);
+                            purchased.incrementAndGet();
+                        } catch (IllegalArgumentException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            long began = System.nanoTime();
+            start.countDown();
+            for (Future<?> worker : workers) {
+                // Any other exception (lock timeout, lost update) fails the test here.
+                worker.get(60, TimeUnit.SECONDS);
+            }
+            double seconds = (System.nanoTime() - began) / 1_000_000_000.0;
+            System.out.printf(Locale.ROOT, "%d purchase attempts on one sweet with %d threads: %.0f ops/s%n",
+                    THREADS * ATTEMPTS_PER_THREAD, THREADS, THREADS * ATTEMPTS_PER_THREAD / seconds);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Sweet result = sweetRepository.findById(sweetId).orElseThrow();
+        assertEquals(STOCK, purchased.get());
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD - STOCK, rejected.get());
+        assertEquals(0, result.getQuantity());
+        assertEquals(STOCK, result.getPopularity());
+        assertTrue(result.getQuantity() >= 0);
+    }
+}
@@ -1,23 +1,54 @@
 package com.sweetshop.service;
 
+import com.sweetshop.cache.SearchResultCache;
+import com.sweetshop.cache.SweetCatalogCache;
+import com.sweetshop.concurrent.OptimisticRetry;
+import com.sweetshop.dto.BulkRestockResponse;
+import com.sweetshop.dto.CatalogVersion;
+import com.sweetshop.dto.RestockItem;
+import com.sweetshop.dto.RestockLineResponse;
 import com.sweetshop.dto.SweetRequest;
 import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
 import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.inventory.InventoryLedger;
+import com.sweetshop.inventory.LiveStock;
+import com.sweetshop.inventory.PurchaseBatcher;
+import com.sweetshop.inventory.ShardedStock;
+import com.sweetshop.pagination.CatalogPage;
+import com.sweetshop.pagination.KeysetCursor;
+import com.sweetshop.pagination.SweetSortField;
+import com.sweetshop.projection.SweetField;
 import com.sweetshop.repository.SweetRepository;
+import com.sweetshop.search.FacetIndex;
+import com.sweetshop.search.FuzzyIndex;
+import com.sweetshop.search.PriceIndex;
+import com.sweetshop.search.SuggestIndex;
+import com.sweetshop.search.TrigramIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -29,7 +60,18 @@ class SweetServiceTest {
     @Mock
     private SweetRepository sweetRepository;
 
-    @InjectMocks
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private InventoryLedger inventoryLedger;
+
+    @Mock
+    private ShardedStock shardedStock;
+
+    @Mock
+    private PurchaseBatcher purchaseBatcher;
+
     private SweetService sweetService;
 
     private Sweet sweet;
@@ -37,6 +79,24 @@ class SweetServiceTest {
 
     @BeforeEach
     void setUp() {
+        SweetCatalogCache cache = new SweetCatalogCache(
+                sweetRepository, 100, Duration.ofMinutes(1), Duration.ofMinutes(5), Duration.ofSeconds(2));
+        TrigramIndex trigramIndex = new TrigramIndex(cache, Duration.ofMinutes(5));
+        FuzzyIndex fuzzyIndex = new FuzzyIndex(cache, Duration.ofMinutes(5));
+        SuggestIndex suggestIndex = new SuggestIndex(cache, Duration.ofMinutes(5), 10);
+        FacetIndex facetIndex = new FacetIndex(cache, Duration.ofMinutes(5));
+        PriceIndex priceIndex = new PriceIndex(cache, Duration.ofMinutes(5));
+        SearchResultCache searchResultCache = new SearchResultCache(cache, 100, 1000, Duration.ofMinutes(5),
+                Duration.ofSeconds(2));
+        sweetService = new SweetService(sweetRepository, cache, trigramIndex, fuzzyIndex, suggestIndex,
+                facetIndex, priceIndex, searchResultCache, eventPublisher,
+                new OptimisticRetry(3, Duration.ZERO, Duration.ZERO), inventoryLedger, shardedStock, purchaseBatcher,
+                new LiveStock(inventoryLedger, shardedStock));
+        lenient().when(inventoryLedger.whileSuspended(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(shardedStock.whileSuspended(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+
         sweet = Sweet.builder()
                 .id(1L)
                 .name("Chocolate Bar")
@@ -74,7 +134,7 @@ class SweetServiceTest {
         // Arrange
         Sweet sweet2 = Sweet.builder().id(2L).name("Candy").category("Hard Candy").build();
         List<Sweet> sweets = Arrays.asList(sweet, sweet2);
-        when(sweetRepository.findAll()).thenReturn(sweets);
+        when(sweetRepository.findAllRows()).thenReturn(sweets);
 
         // Act
         List<Sweet> result = sweetService.getAllSweets();
@@ -82,7 +142,23 @@ class SweetServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals(2, result.size());
-        verify(sweetRepository, times(1)).findAll();
+        verify(sweetRepository, times(1)).findAllRows();
+    }
+
+    @Test
+    void testGetAllSweets_LedgerSalesMoveQuantityAndCatalogVersion() {
+        when(sweetRepository.findAllRows()).thenReturn(List.of(sweet));
+        String before = sweetService.getCatalogVersion().toEtag();
+
+        when(inventoryLedger.managesAny()).thenReturn(true);
+        when(inventoryLedger.available(1L)).thenReturn(OptionalInt.of(96));
+        when(inventoryLedger.getSaleCount()).thenReturn(1L);
+        when(inventoryLedger.lastSaleAt()).thenReturn(2_000L);
+
+        assertEquals(96, sweetService.getAllSweets().get(0).getQuantity());
+        CatalogVersion after = sweetService.getCatalogVersion();
+        assertNotEquals(before, after.toEtag());
+        assertEquals(2_000L, after.toLastModifiedMillis());
     }
 
     @Test
@@ -132,6 +208,23 @@ class SweetServiceTest {
         verify(sweetRepository, times(1)).save(any(Sweet.class));
     }
 
+    @Test
+    void testUpdateSweet_RetriesOnVersionConflict() {
+        // Arrange
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
+        when(sweetRepository.save(any(Sweet.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Sweet.class, 1L))
+                .thenReturn(sweet);
+
+        // Act
+        Sweet result = sweetService.updateSweet(1L, sweetRequest);
+
+        // Assert
+        assertNotNull(result);
+        verify(sweetRepository, times(2)).findById(1L);
+        verify(sweetRepository, times(2)).save(any(Sweet.class));
+    }
+
     @Test
     void testUpdateSweet_NotFound() {
         // Arrange
@@ -174,56 +267,336 @@ class SweetServiceTest {
     @Test
     void testPurchaseSweet_Success() {
         // Arrange
+        when(sweetRepository.purchaseIfAvailable(eq(1L), eq(10), anyLong())).thenReturn(1);
         when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
-        when(sweetRepository.save(any(Sweet.class))).thenReturn(sweet);
 
         // Act
         Sweet result = sweetService.purchaseSweet(1L, 10);
 
         // Assert
         assertNotNull(result);
-        verify(sweetRepository, times(1)).findById(1L);
-        verify(sweetRepository, times(1)).save(any(Sweet.class));
+        verify(sweetRepository, times(1)).purchaseIfAvailable(eq(1L), eq(10), anyLong());
+        verify(sweetRepository, never()).save(any(Sweet.class));
+        verify(eventPublisher, times(1)).publishEvent(any(SweetChangedEvent.class));
     }
 
     @Test
     void testPurchaseSweet_InsufficientQuantity() {
         // Arrange
-        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
+        when(sweetRepository.purchaseIfAvailable(eq(1L), eq(101), anyLong())).thenReturn(0);
+        when(sweetRepository.existsById(1L)).thenReturn(true);
 
         // Act & Assert
         assertThrows(IllegalArgumentException.class, () -> {
             sweetService.purchaseSweet(1L, 101);
         });
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testPurchaseSweet_LedgerSweetSkipsDatabaseWrite() {
+        // Arrange
+        when(inventoryLedger.purchase(1L, 10)).thenReturn(OptionalInt.of(90));
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
+
+        // Act
+        Sweet result = sweetService.purchaseSweet(1L, 10);
+
+        // Assert
+        assertEquals(90, result.getQuantity());
+        verify(sweetRepository, never()).purchaseIfAvailable(any(), anyInt(), anyLong());
+    }
+
+    @Test
+    void testPurchaseSweet_BatchingRoutesThroughBatcher() {
+        // Arrange
+        when(purchaseBatcher.isEnabled()).thenReturn(true);
+        when(purchaseBatcher.purchase(1L, 10)).thenReturn(sweet.toBuilder().quantity(90).build());
+
+        // Act
+        Sweet result = sweetService.purchaseSweet(1L, 10);
+
+        // Assert
+        assertEquals(90, result.getQuantity());
+        verify(sweetRepository, never()).purchaseIfAvailable(any(), anyInt(), anyLong());
+    }
+
+    @Test
+    void testPurchaseSweet_NotFound() {
+        // Arrange
+        when(sweetRepository.purchaseIfAvailable(eq(999L), eq(1), anyLong())).thenReturn(0);
+        when(sweetRepository.existsById(999L)).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> {
+            sweetService.purchaseSweet(999L, 1);
+        });
     }
 
     @Test
     void testRestockSweet_Success() {
         // Arrange
+        when(sweetRepository.restock(eq(1L), eq(50), anyLong())).thenReturn(1);
         when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
-        when(sweetRepository.save(any(Sweet.class))).thenReturn(sweet);
 
         // Act
         Sweet result = sweetService.restockSweet(1L, 50);
 
         // Assert
         assertNotNull(result);
-        verify(sweetRepository, times(1)).findById(1L);
-        verify(sweetRepository, times(1)).save(any(Sweet.class));
+        verify(sweetRepository, times(1)).restock(eq(1L), eq(50), anyLong());
+        verify(sweetRepository, never()).save(any(Sweet.class));
+        verify(eventPublisher, times(1)).publishEvent(any(SweetChangedEvent.class));
+    }
+
+    @Test
+    void testRestockSweet_NotFound() {
+        // Arrange
+        when(sweetRepository.restock(eq(999L), eq(50), anyLong())).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> {
+            sweetService.restockSweet(999L, 50);
+        });
+    }
+
+    @Test
+    void testRestockSweets_ReportsMissingSweetsPerLine() {
+        // Arrange
+        when(sweetRepository.restockAll(eq(List.of(1L, 999L)), eq(List.of(50, 5)), anyLong()))
+                .thenReturn(new int[]{1, 0});
+        when(sweetRepository.findAllById(List.of(1L)))
+                .thenReturn(List.of(sweet.toBuilder().quantity(150).build()));
+
+        // Act
+        BulkRestockResponse result = sweetService.restockSweets(List.of(
+                new RestockItem(1L, 50), new RestockItem(999L, 5)));
+
+        // Assert
+        assertEquals(1, result.getRestocked());
+        assertEquals(1, result.getNotFound());
+        assertEquals(RestockLineResponse.Status.RESTOCKED, result.getLines().get(0).getStatus());
+        assertEquals(150, result.getLines().get(0).getNewQuantity());
+        assertEquals(RestockLineResponse.Status.NOT_FOUND, result.getLines().get(1).getStatus());
+        verify(inventoryLedger).credit(1L, 50);
+        verify(inventoryLedger, never()).credit(eq(999L), anyInt());
+        verify(eventPublisher, times(1)).publishEvent(any(SweetChangedEvent.class));
     }
 
     @Test
     void testSearchSweets_ByName() {
         // Arrange
-        List<Sweet> sweets = Arrays.asList(sweet);
-        when(sweetRepository.search("Chocolate", null, null, null)).thenReturn(sweets);
+        Sweet candy = Sweet.builder().id(2L).name("Candy Cane").category("Candy")
+                .price(new BigDecimal("0.99")).description("Peppermint stick").build();
+        when(sweetRepository.findAllRows()).thenReturn(Arrays.asList(sweet, candy));
 
         // Act
-        List<Sweet> result = sweetService.searchSweets("Chocolate", null, null, null);
+        List<Sweet> result = sweetService.searchSweets("chocOLATE", null, null, null);
 
         // Assert
         assertNotNull(result);
         assertEquals(1, result.size());
-        verify(sweetRepository, times(1)).search("Chocolate", null, null, null);
+        assertEquals("Chocolate Bar", result.get(0).getName());
+        verify(sweetRepository, never()).search(any(), any(), any(), any());
+    }
+
+    @Test
+    void testSearchSweets_ByNameAppliesPriceFilter() {
+        // Arrange
+        when(sweetRepository.findAllRows()).thenReturn(Arrays.asList(sweet));
+
+        // Act
+        List<Sweet> result = sweetService.searchSweets("Choc", null, new BigDecimal("5.00"), null);
+
+        // Assert
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void testSearchSweets_ByCategoryUsesRepository() {
+        // Arrange
+        when(sweetRepository.search(null, "Chocolate", null, null)).thenReturn(Arrays.asList(sweet));
+
+        // Act
+        List<Sweet> result = sweetService.searchSweets(null, "Chocolate", null, null);
+
+        // Assert
+        assertEquals(1, result.size());
+        verify(sweetRepository, times(1)).search(null, "Chocolate", null, null);
+    }
+
+    @Test
+    void testSearchSweets_SparseCategorySearchSelectsOnlyRequestedColumns() {
+        // Arrange
+        Set<SweetField> fields = SweetField.parse("name");
+        Sweet partial = Sweet.builder().id(1L).name("Chocolate Bar").build();
+        when(sweetRepository.findColumns(fields, "Chocolate")).thenReturn(List.of(partial));
+
+        // Act
+        List<Sweet> result = sweetService.searchSweets(null, null, "Chocolate", null, null, fields);
+
+        // Assert
+        assertEquals(List.of(partial), result);
+        verify(sweetRepository, never()).search(any(), any(), any(), any());
+    }
+
+    @Test
+    void testGetSweetsPage_SparseSelectionReadsOnlySelectedColumns() {
+        // Arrange
+        Set<SweetField> fields = SweetField.parse("name");
+        KeysetCursor cursor = new KeysetCursor(SweetSortField.PRICE, Sort.Direction.ASC, "1.50", 1L);
+        Sweet partial = Sweet.builder().id(2L).name("Candy Cane").price(new BigDecimal("1.75")).build();
+        when(sweetRepository.findPageColumns(fields, SweetSortField.PRICE, Sort.Direction.ASC,
+                cursor, 21)).thenReturn(List.of(partial));
+
+        // Act
+        CatalogPage page = sweetService.getSweetsPage(null, null, cursor.encode(), 20, fields);
+
+        // Assert
+        assertEquals(List.of(partial), page.getItems());
+        verify(sweetRepository, never()).findPageAfterPriceAsc(any(), any(), any());
+    }
+
+    @Test
+    void testSearchSweets_ByPriceRangeUsesPriceIndex() {
+        // Arrange
+        Sweet candy = Sweet.builder().id(2L).name("Candy Cane").category("Candy")
+                .price(new BigDecimal("0.99")).build();
+        when(sweetRepository.findAllRows()).thenReturn(Arrays.asList(sweet, candy));
+
+        // Act
+        List<Sweet> result = sweetService.searchSweets(null, null, new BigDecimal("0.50"), new BigDecimal("1.00"));
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals("Candy Cane", result.get(0).getName());
+        verify(sweetRepository, never()).search(any(), any(), any(), any());
+    }
+
+    @Test
+    void testGetSweetsByPrice_DescendingWithLimit() {
+        // Arrange
+        Sweet candy = Sweet.builder().id(2L).name("Candy Cane").category("Candy")
+                .price(new BigDecimal("0.99")).build();
+        Sweet toffee = Sweet.builder().id(3L).name("Toffee").category("Candy")
+                .price(new BigDecimal("7.50")).build();
+        when(sweetRepository.findAllRows()).thenReturn(Arrays.asList(sweet, candy, toffee));
+
+        // Act
+        List<Sweet> result = sweetService.getSweetsByPrice(null, null, null, "desc", 2);
+
+        // Assert
+        assertEquals(List.of(3L, 1L), result.stream().map(Sweet::getId).toList());
+    }
+
+    @Test
+    void testGetSweetsByPrice_RejectsInvalidLimit() {
+        assertThrows(IllegalArgumentException.class,
+                () -> sweetService.getSweetsByPrice(null, null, null, "asc", 0));
+    }
+
+    @Test
+    void testSearchSweets_RepeatedCategorySearchServedFromResultCache() {
+        // Arrange
+        when(sweetRepository.search(null, "Chocolate", null, null)).thenReturn(Arrays.asList(sweet));
+        when(sweetRepository.findAllRows()).thenReturn(Arrays.asList(sweet));
+
+        // Act
+        sweetService.searchSweets(null, "Chocolate", null, null);
+        List<Sweet> result = sweetService.searchSweets("  ", "Chocolate", null, null);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals("Chocolate Bar", result.get(0).getName());
+        verify(sweetRepository, times(1)).search(null, "Chocolate", null, null);
+    }
+
+    @Test
+    void testGetSweetsByIds_PreservesRequestOrderAndSkipsMissing() {
+        // Arrange
+        Sweet candy = Sweet.builder().id(2L).name("Candy Cane").category("Candy")
+                .price(new BigDecimal("0.99")).build();
+        when(sweetRepository.findAllById(any())).thenReturn(Arrays.asList(sweet, candy));
+
+        // Act
+        List<Sweet> result = sweetService.getSweetsByIds(Arrays.asList(2L, 9L, 1L, 2L));
+
+        // Assert
+        assertEquals(List.of(2L, 1L), result.stream().map(Sweet::getId).toList());
+        verify(sweetRepository, times(1)).findAllById(any());
+        verify(sweetRepository, never()).findById(any());
+    }
+
+    @Test
+    void testGetSweetsByIds_RejectsEmptyRequest() {
+        assertThrows(IllegalArgumentException.class, () -> sweetService.getSweetsByIds(List.of()));
+    }
+
+    @Test
+    void testGetSweetById_ServedFromCacheOnSecondRead() {
+        // Arrange
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
+
+        // Act
+        sweetService.getSweetById(1L);
+        Sweet result = sweetService.getSweetById(1L);
+
+        // Assert
+        assertEquals("Chocolate Bar", result.getName());
+        verify(sweetRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testGetSweetsPage_FirstPageReturnsCursor() {
+        // Arrange
+        Sweet sweet2 = Sweet.builder().id(2L).name("Candy").price(new BigDecimal("0.99")).build();
+        Sweet third = Sweet.builder().id(3L).name("Toffee").price(new BigDecimal("1.50")).build();
+        when(sweetRepository.findAllBy(any(Pageable.class))).thenReturn(Arrays.asList(sweet, sweet2, third));
+
+        // Act
+        CatalogPage page = sweetService.getSweetsPage("id", "asc", null, 2);
+
+        // Assert
+        assertEquals(2, page.getItems().size());
+        assertTrue(page.hasNext());
+        KeysetCursor cursor = KeysetCursor.decode(page.getNextCursor());
+        assertEquals(SweetSortField.ID, cursor.getSortField());
+        assertEquals(2L, cursor.getLastId());
+    }
+
+    @Test
+    void testGetSweetsPage_SeeksPastCursor() {
+        // Arrange
+        Sweet sweet2 = Sweet.builder().id(2L).name("Candy").price(new BigDecimal("2.49")).build();
+        String token = new KeysetCursor(SweetSortField.PRICE, Sort.Direction.ASC, "1.99", 1L).encode();
+        when(sweetRepository.findPageAfterPriceAsc(eq(new BigDecimal("1.99")), eq(1L), any(Pageable.class)))
+                .thenReturn(List.of(sweet2));
+
+        // Act
+        CatalogPage page = sweetService.getSweetsPage("id", "asc", token, 2);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertFalse(page.hasNext());
+        verify(sweetRepository, never()).findAllBy(any(Pageable.class));
+    }
+
+    @Test
+    void testGetSweetsPage_InvalidSize() {
+        assertThrows(IllegalArgumentException.class,
+                () -> sweetService.getSweetsPage("id", "asc", null, 0));
+    }
+
+    @Test
+    void testFuzzySearchSweets_FindsMisspelledName() {
+        // Arrange
+        when(sweetRepository.findAllRows()).thenReturn(Arrays.asList(sweet));
+
+        // Act
+        List<Sweet> result = sweetService.fuzzySearchSweets("chocolat bar", null, null, null, 10);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals("Chocolate Bar", result.get(0).getName());
     }
-}
\ No newline at end of file
+}